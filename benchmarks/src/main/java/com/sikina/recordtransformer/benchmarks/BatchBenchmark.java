@@ -0,0 +1,108 @@
+package com.sikina.recordtransformer.benchmarks;
+
+import com.sikina.recordtransformer.RecordBatch;
+import com.sikina.recordtransformer.RecordTransformation;
+import com.sikina.recordtransformer.RecordTransformer;
+import com.sikina.recordtransformer.RecordTransformers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Reprices every trade in an array, one record at a time and through a {@link RecordBatch}.
+ *
+ * The *Reprice benchmarks change one double component of every record. The per-record ones build a
+ * new record for each; {@link #batchReprice()} updates a column in place, and
+ * {@link #batchRepriceAndBuild()} adds building every record afterwards. The build* benchmarks
+ * allocate each representation from scratch, so with the gc profiler their allocation per op is the
+ * memory each one takes: an array of records against an array per component.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BatchBenchmark {
+    public record Trade(long id, int quantity, double price, String symbol) {
+    }
+
+    private static final RecordTransformation<Trade> REPRICE = RecordTransformation.builder(Trade.class)
+        .update(Trade::price, price -> price * 1.01)
+        .build();
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Trade[] trades;
+    private RecordBatch<Trade> batch;
+
+    @Setup
+    public void setUp() {
+        trades = IntStream.range(0, size)
+            .mapToObj(i -> new Trade(i, i % 100, 100 + i % 7, "T" + i % 50))
+            .toArray(Trade[]::new);
+        batch = RecordBatch.of(Trade.class, trades);
+    }
+
+    @Benchmark
+    public Trade[] byHandReprice() {
+        Trade[] out = new Trade[size];
+        for (int i = 0; i < size; i++) {
+            Trade t = trades[i];
+            out[i] = new Trade(t.id(), t.quantity(), t.price() * 1.01, t.symbol());
+        }
+        return out;
+    }
+
+    @Benchmark
+    public Trade[] transformerReprice() {
+        Trade[] out = new Trade[size];
+        RecordTransformer<Trade> transformer = RecordTransformers.threadLocal(trades[0]);
+        for (int i = 0; i < size; i++) {
+            Trade t = trades[i];
+            out[i] = transformer.reset(t).withDouble("price", t.price() * 1.01).transform().rec();
+        }
+        return out;
+    }
+
+    @Benchmark
+    public Trade[] transformationReprice() {
+        return REPRICE.applyAll(trades);
+    }
+
+    @Benchmark
+    public RecordBatch<Trade> batchReprice() {
+        return batch.updateDouble(Trade::price, price -> price * 1.01);
+    }
+
+    @Benchmark
+    public Trade[] batchRepriceAndBuild() {
+        return batch.updateDouble(Trade::price, price -> price * 1.01).toArray();
+    }
+
+    @Benchmark
+    public Trade[] buildRecords() {
+        Trade[] out = new Trade[size];
+        for (int i = 0; i < size; i++) {
+            out[i] = new Trade(i, i % 100, 100 + i % 7, trades[i].symbol());
+        }
+        return out;
+    }
+
+    @Benchmark
+    public RecordBatch<Trade> buildBatch() {
+        return RecordBatch.of(Trade.class, trades);
+    }
+}
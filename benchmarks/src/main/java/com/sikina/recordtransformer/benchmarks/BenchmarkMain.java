@@ -0,0 +1,51 @@
+package com.sikina.recordtransformer.benchmarks;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.stream.IntStream;
+
+/**
+ * The entry point of the benchmarks jar. It takes the same arguments as JMH's own main, with two
+ * different defaults: the gc profiler is on unless other profilers are given, so every result comes
+ * with its allocation rate, and without {@code -t} the benchmarks run once for each thread count in
+ * {@link #THREADS} that the machine has the cores for.
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar                      # everything
+ * java -jar benchmarks/target/benchmarks.jar TransformBenchmark -p width=64 -t 1
+ * </pre>
+ */
+public final class BenchmarkMain {
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+            || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        int[] threads = options.getThreads().hasValue()
+            ? new int[]{options.getThreads().get()}
+            : IntStream.of(THREADS).filter(t -> t == 1 || t <= cores).toArray();
+        for (int t : threads) {
+            ChainedOptionsBuilder run = new OptionsBuilder().parent(options).threads(t);
+            if (options.getProfilers().isEmpty()) {
+                run.addProfiler(GCProfiler.class);
+            }
+            new Runner(run.build()).run();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.sikina.recordtransformer.benchmarks;
+
+import com.sikina.recordtransformer.RecordTransformer;
+import com.sikina.recordtransformer.RecordTransformers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Moves a million sessions, which only ever take a dozen distinct states, to their next state,
+ * with {@link RecordTransformers#intern(Class, int) interning} on and off.
+ *
+ * The score is the time to transform every session. After each iteration the benchmark prints what
+ * the sessions retain: the number of distinct record instances, and the used heap after a full gc.
+ * Without interning every session holds its own record; with it, equal sessions share one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class InternBenchmark {
+    public record Session(String region, int tier, long quota, boolean active) {
+    }
+
+    private static final String[] REGIONS = {"eu", "us", "ap"};
+    private static final int SESSIONS = 1_000_000;
+
+    @Param({"false", "true"})
+    public boolean interning;
+
+    private Session[] sessions;
+
+    @Setup
+    public void setUp() {
+        RecordTransformers.intern(Session.class, interning ? 1024 : 0);
+        sessions = IntStream.range(0, SESSIONS)
+            .mapToObj(i -> new Session(REGIONS[i % REGIONS.length], i % 4, 1000, i % 2 == 0))
+            .toArray(Session[]::new);
+    }
+
+    @Benchmark
+    public Session[] advance() {
+        RecordTransformer<Session> transformer = RecordTransformers.threadLocal(sessions[0]);
+        for (int i = 0; i < SESSIONS; i++) {
+            Session s = sessions[i];
+            sessions[i] = transformer.reset(s)
+                .withInt("tier", (s.tier() + 1) % 4)
+                .withLong("quota", s.tier() == 3 ? 1000 : s.quota() + 500)
+                .transform()
+                .rec();
+        }
+        return sessions;
+    }
+
+    @TearDown(Level.Iteration)
+    public void retained() {
+        int distinct = distinct();
+        System.gc();
+        long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        System.out.printf("%n  distinct sessions: %d, used heap: %d MB, %s%n",
+            distinct, used >> 20, RecordTransformers.internCounts(Session.class));
+    }
+
+    private int distinct() {
+        Set<Session> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        Collections.addAll(distinct, sessions);
+        return distinct.size();
+    }
+
+    @TearDown
+    public void tearDown() {
+        RecordTransformers.intern(Session.class, 0);
+    }
+}
@@ -0,0 +1,60 @@
+package com.sikina.recordtransformer.benchmarks;
+
+import com.sikina.recordtransformer.RecordTransformer;
+import com.sikina.recordtransformer.RecordTransformers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An event loop that transforms a record {@link #writes} times for every time it reads it, with an
+ * eager and a lazy transformer. At 1 write per read the lazy transformer builds as many records as the
+ * eager one, and only adds the folding; the more writes per read, the more records it doesn't build.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LazyBenchmark {
+    public record Position(String symbol, long quantity, double price, long updates, int venue) {
+    }
+
+    @Param({"1", "4", "16", "64"})
+    public int writes;
+
+    @Param({"false", "true"})
+    public boolean lazy;
+
+    private RecordTransformer<Position> transformer;
+    private long tick;
+
+    @Setup
+    public void setUp() {
+        Position start = new Position("ACME", 0, 10, 0, 1);
+        transformer = lazy ? RecordTransformers.lazy(start) : new RecordTransformer<>(start);
+    }
+
+    @Benchmark
+    public Position writesThenRead() {
+        for (int i = 0; i < writes; i++) {
+            tick++;
+            transformer.withLong("quantity", tick)
+                .withDouble("price", 10 + (tick & 7))
+                .update(Position::updates, updates -> updates + 1)
+                .transform();
+        }
+        return transformer.rec();
+    }
+}
@@ -0,0 +1,84 @@
+package com.sikina.recordtransformer.benchmarks;
+
+import com.sikina.recordtransformer.RecordMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps an order DTO to a domain record: most components copied by name, one renamed, one converted
+ * and one computed. {@link #reflective()} is the usual generic alternative, which looks up each
+ * target component's source accessor by name and calls it and the constructor reflectively.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MapperBenchmark {
+    public record OrderDto(long orderId, String customer, int quantity, double price, String currency, boolean rush) {
+    }
+
+    public record Order(long id, String customer, int quantity, double total, String currency, boolean rush) {
+    }
+
+    private final OrderDto dto = new OrderDto(42, "acme", 3, 9.5, "eur", true);
+
+    private RecordMapper<OrderDto, Order> mapper;
+    private Constructor<Order> constructor;
+    private Method[] accessors;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        mapper = RecordMapper.builder(OrderDto.class, Order.class)
+            .map(Order::id, OrderDto::orderId)
+            .map(Order::currency, OrderDto::currency, String::toUpperCase)
+            .compute(Order::total, o -> o.quantity() * o.price())
+            .build();
+        RecordComponent[] components = Order.class.getRecordComponents();
+        Class<?>[] types = new Class<?>[components.length];
+        accessors = new Method[components.length];
+        for (int i = 0; i < components.length; i++) {
+            types[i] = components[i].getType();
+            String name = components[i].getName();
+            accessors[i] = name.equals("id") || name.equals("total") ? null : OrderDto.class.getMethod(name);
+        }
+        constructor = Order.class.getDeclaredConstructor(types);
+    }
+
+    @Benchmark
+    public Order byHand() {
+        return new Order(dto.orderId(), dto.customer(), dto.quantity(), dto.quantity() * dto.price(),
+            dto.currency().toUpperCase(), dto.rush());
+    }
+
+    @Benchmark
+    public Order mapper() {
+        return mapper.map(dto);
+    }
+
+    @Benchmark
+    public Order reflective() throws ReflectiveOperationException {
+        Object[] args = new Object[accessors.length];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = accessors[i] == null ? null : accessors[i].invoke(dto);
+        }
+        args[0] = dto.orderId();
+        args[3] = dto.quantity() * dto.price();
+        args[4] = ((String) args[4]).toUpperCase();
+        return constructor.newInstance(args);
+    }
+}
@@ -0,0 +1,100 @@
+package com.sikina.recordtransformer.benchmarks;
+
+import com.sikina.recordtransformer.ConcurrentRecordTransformer;
+import com.sikina.recordtransformer.RecordTransformation;
+import com.sikina.recordtransformer.RecordTransformer;
+import com.sikina.recordtransformer.RecordTransformers;
+
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One record type the benchmarks transform, and every way of replacing its first component.
+ *
+ * Each call replaces component {@code c0} of the current record, alternating between two values so
+ * that every call really changes the record, and keeps the result as the next current record. The
+ * subclasses supply the two ways that need the record's type spelled out: the hand-written
+ * {@code new Record(...)} baseline and the transformer generated by the annotation processor.
+ *
+ * @param <T> the record type
+ */
+abstract class Shape<T extends Record> {
+    private final Object[] values;
+    private final List<RecordTransformation<T>> transformations;
+    private final ConcurrentRecordTransformer<T> shared;
+    private T rec;
+    private int flip;
+
+    /**
+     * @param type the record type
+     * @param filler the value of every component in the first record
+     * @param first the first value c0 is set to
+     * @param second the value c0 alternates with
+     */
+    Shape(Class<T> type, Object filler, Object first, Object second) {
+        values = new Object[]{first, second};
+        transformations = List.of(
+            RecordTransformation.builder(type).setTypeUnsafe("c0", first).build(),
+            RecordTransformation.builder(type).setTypeUnsafe("c0", second).build()
+        );
+        rec = filled(type, filler);
+        shared = new ConcurrentRecordTransformer<>(rec);
+    }
+
+    private static <T extends Record> T filled(Class<T> type, Object filler) {
+        RecordComponent[] components = type.getRecordComponents();
+        Object[] arguments = new Object[components.length];
+        Arrays.fill(arguments, filler);
+        try {
+            return type
+                .getDeclaredConstructor(Arrays.stream(components).map(RecordComponent::getType).toArray(Class[]::new))
+                .newInstance(arguments);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("can't build a " + type.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * @return a copy of rec with c0 replaced by the value at index, built by calling the constructor
+     */
+    abstract T byHand(T rec, int index);
+
+    /**
+     * @return a copy of rec with c0 replaced by the value at index, built by the processor's transformer
+     */
+    abstract T processorGenerated(T rec, int index);
+
+    private int next() {
+        flip ^= 1;
+        return flip;
+    }
+
+    T byHand() {
+        return rec = byHand(rec, next());
+    }
+
+    T processorGenerated() {
+        return rec = processorGenerated(rec, next());
+    }
+
+    T runtimeGenerated() {
+        return rec = RecordTransformers.generated(rec).withTypeUnsafe("c0", values[next()]).transform().rec();
+    }
+
+    T recordTransformer() {
+        return rec = new RecordTransformer<>(rec).withTypeUnsafe("c0", values[next()]).transform().rec();
+    }
+
+    T threadLocalTransformer() {
+        return rec = RecordTransformers.threadLocal(rec).withTypeUnsafe("c0", values[next()]).transform().rec();
+    }
+
+    T recordTransformation() {
+        return rec = transformations.get(next()).apply(rec);
+    }
+
+    T concurrentTransformer() {
+        return shared.apply(transformations.get(next()));
+    }
+}
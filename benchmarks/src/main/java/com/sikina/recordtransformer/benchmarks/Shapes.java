@@ -0,0 +1,367 @@
+package com.sikina.recordtransformer.benchmarks;
+
+import com.sikina.recordtransformer.Transformable;
+
+/**
+ * The records {@link TransformBenchmark} transforms: one per component type and width, each with its
+ * components named c0, c1, ... and a {@link Shape} that builds it by hand and through the transformer
+ * the annotation processor generates for it.
+ */
+final class Shapes {
+    static final Leaf ZERO = new Leaf(0);
+    static final Leaf ONE = new Leaf(1);
+    static final Leaf TWO = new Leaf(2);
+
+    private Shapes() {
+    }
+
+    /**
+     * @param type int, string or record
+     * @param width the number of components, one of 1, 4, 16 or 64
+     */
+    static Shape<?> of(String type, int width) {
+        return switch (type + width) {
+            case "int1" -> new Ints1Shape();
+            case "int4" -> new Ints4Shape();
+            case "int16" -> new Ints16Shape();
+            case "int64" -> new Ints64Shape();
+            case "string1" -> new Strings1Shape();
+            case "string4" -> new Strings4Shape();
+            case "string16" -> new Strings16Shape();
+            case "string64" -> new Strings64Shape();
+            case "record1" -> new Leaves1Shape();
+            case "record4" -> new Leaves4Shape();
+            case "record16" -> new Leaves16Shape();
+            case "record64" -> new Leaves64Shape();
+            default -> throw new IllegalArgumentException("no record with " + width + " " + type + " components");
+        };
+    }
+
+    public record Leaf(int value) {
+    }
+
+    @Transformable
+    public record Ints1(int c0) {
+    }
+
+    @Transformable
+    public record Ints4(int c0, int c1, int c2, int c3) {
+    }
+
+    @Transformable
+    public record Ints16(
+        int c0, int c1, int c2, int c3, int c4, int c5, int c6, int c7, int c8, int c9, int c10, int c11,
+        int c12, int c13, int c14, int c15
+    ) {
+    }
+
+    @Transformable
+    public record Ints64(
+        int c0, int c1, int c2, int c3, int c4, int c5, int c6, int c7, int c8, int c9, int c10, int c11,
+        int c12, int c13, int c14, int c15, int c16, int c17, int c18, int c19, int c20, int c21, int c22,
+        int c23, int c24, int c25, int c26, int c27, int c28, int c29, int c30, int c31, int c32, int c33,
+        int c34, int c35, int c36, int c37, int c38, int c39, int c40, int c41, int c42, int c43, int c44,
+        int c45, int c46, int c47, int c48, int c49, int c50, int c51, int c52, int c53, int c54, int c55,
+        int c56, int c57, int c58, int c59, int c60, int c61, int c62, int c63
+    ) {
+    }
+
+    @Transformable
+    public record Strings1(String c0) {
+    }
+
+    @Transformable
+    public record Strings4(String c0, String c1, String c2, String c3) {
+    }
+
+    @Transformable
+    public record Strings16(
+        String c0, String c1, String c2, String c3, String c4, String c5, String c6, String c7, String c8,
+        String c9, String c10, String c11, String c12, String c13, String c14, String c15
+    ) {
+    }
+
+    @Transformable
+    public record Strings64(
+        String c0, String c1, String c2, String c3, String c4, String c5, String c6, String c7, String c8,
+        String c9, String c10, String c11, String c12, String c13, String c14, String c15, String c16,
+        String c17, String c18, String c19, String c20, String c21, String c22, String c23, String c24,
+        String c25, String c26, String c27, String c28, String c29, String c30, String c31, String c32,
+        String c33, String c34, String c35, String c36, String c37, String c38, String c39, String c40,
+        String c41, String c42, String c43, String c44, String c45, String c46, String c47, String c48,
+        String c49, String c50, String c51, String c52, String c53, String c54, String c55, String c56,
+        String c57, String c58, String c59, String c60, String c61, String c62, String c63
+    ) {
+    }
+
+    @Transformable
+    public record Leaves1(Leaf c0) {
+    }
+
+    @Transformable
+    public record Leaves4(Leaf c0, Leaf c1, Leaf c2, Leaf c3) {
+    }
+
+    @Transformable
+    public record Leaves16(
+        Leaf c0, Leaf c1, Leaf c2, Leaf c3, Leaf c4, Leaf c5, Leaf c6, Leaf c7, Leaf c8, Leaf c9, Leaf c10,
+        Leaf c11, Leaf c12, Leaf c13, Leaf c14, Leaf c15
+    ) {
+    }
+
+    @Transformable
+    public record Leaves64(
+        Leaf c0, Leaf c1, Leaf c2, Leaf c3, Leaf c4, Leaf c5, Leaf c6, Leaf c7, Leaf c8, Leaf c9, Leaf c10,
+        Leaf c11, Leaf c12, Leaf c13, Leaf c14, Leaf c15, Leaf c16, Leaf c17, Leaf c18, Leaf c19, Leaf c20,
+        Leaf c21, Leaf c22, Leaf c23, Leaf c24, Leaf c25, Leaf c26, Leaf c27, Leaf c28, Leaf c29, Leaf c30,
+        Leaf c31, Leaf c32, Leaf c33, Leaf c34, Leaf c35, Leaf c36, Leaf c37, Leaf c38, Leaf c39, Leaf c40,
+        Leaf c41, Leaf c42, Leaf c43, Leaf c44, Leaf c45, Leaf c46, Leaf c47, Leaf c48, Leaf c49, Leaf c50,
+        Leaf c51, Leaf c52, Leaf c53, Leaf c54, Leaf c55, Leaf c56, Leaf c57, Leaf c58, Leaf c59, Leaf c60,
+        Leaf c61, Leaf c62, Leaf c63
+    ) {
+    }
+
+    private static final class Ints1Shape extends Shape<Ints1> {
+        Ints1Shape() {
+            super(Ints1.class, 0, 1, 2);
+        }
+
+        @Override
+        Ints1 byHand(Ints1 rec, int index) {
+            return new Ints1(index + 1);
+        }
+
+        @Override
+        Ints1 processorGenerated(Ints1 rec, int index) {
+            return new Shapes_Ints1Transformer(rec).withC0(index + 1).transform().rec();
+        }
+    }
+
+    private static final class Ints4Shape extends Shape<Ints4> {
+        Ints4Shape() {
+            super(Ints4.class, 0, 1, 2);
+        }
+
+        @Override
+        Ints4 byHand(Ints4 rec, int index) {
+            return new Ints4(index + 1, rec.c1(), rec.c2(), rec.c3());
+        }
+
+        @Override
+        Ints4 processorGenerated(Ints4 rec, int index) {
+            return new Shapes_Ints4Transformer(rec).withC0(index + 1).transform().rec();
+        }
+    }
+
+    private static final class Ints16Shape extends Shape<Ints16> {
+        Ints16Shape() {
+            super(Ints16.class, 0, 1, 2);
+        }
+
+        @Override
+        Ints16 byHand(Ints16 rec, int index) {
+            return new Ints16(
+                index + 1, rec.c1(), rec.c2(), rec.c3(), rec.c4(), rec.c5(), rec.c6(), rec.c7(), rec.c8(),
+                rec.c9(), rec.c10(), rec.c11(), rec.c12(), rec.c13(), rec.c14(), rec.c15()
+            );
+        }
+
+        @Override
+        Ints16 processorGenerated(Ints16 rec, int index) {
+            return new Shapes_Ints16Transformer(rec).withC0(index + 1).transform().rec();
+        }
+    }
+
+    private static final class Ints64Shape extends Shape<Ints64> {
+        Ints64Shape() {
+            super(Ints64.class, 0, 1, 2);
+        }
+
+        @Override
+        Ints64 byHand(Ints64 rec, int index) {
+            return new Ints64(
+                index + 1, rec.c1(), rec.c2(), rec.c3(), rec.c4(), rec.c5(), rec.c6(), rec.c7(), rec.c8(),
+                rec.c9(), rec.c10(), rec.c11(), rec.c12(), rec.c13(), rec.c14(), rec.c15(), rec.c16(),
+                rec.c17(), rec.c18(), rec.c19(), rec.c20(), rec.c21(), rec.c22(), rec.c23(), rec.c24(),
+                rec.c25(), rec.c26(), rec.c27(), rec.c28(), rec.c29(), rec.c30(), rec.c31(), rec.c32(),
+                rec.c33(), rec.c34(), rec.c35(), rec.c36(), rec.c37(), rec.c38(), rec.c39(), rec.c40(),
+                rec.c41(), rec.c42(), rec.c43(), rec.c44(), rec.c45(), rec.c46(), rec.c47(), rec.c48(),
+                rec.c49(), rec.c50(), rec.c51(), rec.c52(), rec.c53(), rec.c54(), rec.c55(), rec.c56(),
+                rec.c57(), rec.c58(), rec.c59(), rec.c60(), rec.c61(), rec.c62(), rec.c63()
+            );
+        }
+
+        @Override
+        Ints64 processorGenerated(Ints64 rec, int index) {
+            return new Shapes_Ints64Transformer(rec).withC0(index + 1).transform().rec();
+        }
+    }
+
+    private static final class Strings1Shape extends Shape<Strings1> {
+        private static final String[] VALUES = {"first", "second"};
+
+        Strings1Shape() {
+            super(Strings1.class, "", VALUES[0], VALUES[1]);
+        }
+
+        @Override
+        Strings1 byHand(Strings1 rec, int index) {
+            return new Strings1(VALUES[index]);
+        }
+
+        @Override
+        Strings1 processorGenerated(Strings1 rec, int index) {
+            return new Shapes_Strings1Transformer(rec).withC0(VALUES[index]).transform().rec();
+        }
+    }
+
+    private static final class Strings4Shape extends Shape<Strings4> {
+        private static final String[] VALUES = {"first", "second"};
+
+        Strings4Shape() {
+            super(Strings4.class, "", VALUES[0], VALUES[1]);
+        }
+
+        @Override
+        Strings4 byHand(Strings4 rec, int index) {
+            return new Strings4(VALUES[index], rec.c1(), rec.c2(), rec.c3());
+        }
+
+        @Override
+        Strings4 processorGenerated(Strings4 rec, int index) {
+            return new Shapes_Strings4Transformer(rec).withC0(VALUES[index]).transform().rec();
+        }
+    }
+
+    private static final class Strings16Shape extends Shape<Strings16> {
+        private static final String[] VALUES = {"first", "second"};
+
+        Strings16Shape() {
+            super(Strings16.class, "", VALUES[0], VALUES[1]);
+        }
+
+        @Override
+        Strings16 byHand(Strings16 rec, int index) {
+            return new Strings16(
+                VALUES[index], rec.c1(), rec.c2(), rec.c3(), rec.c4(), rec.c5(), rec.c6(), rec.c7(), rec.c8(),
+                rec.c9(), rec.c10(), rec.c11(), rec.c12(), rec.c13(), rec.c14(), rec.c15()
+            );
+        }
+
+        @Override
+        Strings16 processorGenerated(Strings16 rec, int index) {
+            return new Shapes_Strings16Transformer(rec).withC0(VALUES[index]).transform().rec();
+        }
+    }
+
+    private static final class Strings64Shape extends Shape<Strings64> {
+        private static final String[] VALUES = {"first", "second"};
+
+        Strings64Shape() {
+            super(Strings64.class, "", VALUES[0], VALUES[1]);
+        }
+
+        @Override
+        Strings64 byHand(Strings64 rec, int index) {
+            return new Strings64(
+                VALUES[index], rec.c1(), rec.c2(), rec.c3(), rec.c4(), rec.c5(), rec.c6(), rec.c7(), rec.c8(),
+                rec.c9(), rec.c10(), rec.c11(), rec.c12(), rec.c13(), rec.c14(), rec.c15(), rec.c16(),
+                rec.c17(), rec.c18(), rec.c19(), rec.c20(), rec.c21(), rec.c22(), rec.c23(), rec.c24(),
+                rec.c25(), rec.c26(), rec.c27(), rec.c28(), rec.c29(), rec.c30(), rec.c31(), rec.c32(),
+                rec.c33(), rec.c34(), rec.c35(), rec.c36(), rec.c37(), rec.c38(), rec.c39(), rec.c40(),
+                rec.c41(), rec.c42(), rec.c43(), rec.c44(), rec.c45(), rec.c46(), rec.c47(), rec.c48(),
+                rec.c49(), rec.c50(), rec.c51(), rec.c52(), rec.c53(), rec.c54(), rec.c55(), rec.c56(),
+                rec.c57(), rec.c58(), rec.c59(), rec.c60(), rec.c61(), rec.c62(), rec.c63()
+            );
+        }
+
+        @Override
+        Strings64 processorGenerated(Strings64 rec, int index) {
+            return new Shapes_Strings64Transformer(rec).withC0(VALUES[index]).transform().rec();
+        }
+    }
+
+    private static final class Leaves1Shape extends Shape<Leaves1> {
+        private static final Leaf[] VALUES = {ONE, TWO};
+
+        Leaves1Shape() {
+            super(Leaves1.class, ZERO, VALUES[0], VALUES[1]);
+        }
+
+        @Override
+        Leaves1 byHand(Leaves1 rec, int index) {
+            return new Leaves1(VALUES[index]);
+        }
+
+        @Override
+        Leaves1 processorGenerated(Leaves1 rec, int index) {
+            return new Shapes_Leaves1Transformer(rec).withC0(VALUES[index]).transform().rec();
+        }
+    }
+
+    private static final class Leaves4Shape extends Shape<Leaves4> {
+        private static final Leaf[] VALUES = {ONE, TWO};
+
+        Leaves4Shape() {
+            super(Leaves4.class, ZERO, VALUES[0], VALUES[1]);
+        }
+
+        @Override
+        Leaves4 byHand(Leaves4 rec, int index) {
+            return new Leaves4(VALUES[index], rec.c1(), rec.c2(), rec.c3());
+        }
+
+        @Override
+        Leaves4 processorGenerated(Leaves4 rec, int index) {
+            return new Shapes_Leaves4Transformer(rec).withC0(VALUES[index]).transform().rec();
+        }
+    }
+
+    private static final class Leaves16Shape extends Shape<Leaves16> {
+        private static final Leaf[] VALUES = {ONE, TWO};
+
+        Leaves16Shape() {
+            super(Leaves16.class, ZERO, VALUES[0], VALUES[1]);
+        }
+
+        @Override
+        Leaves16 byHand(Leaves16 rec, int index) {
+            return new Leaves16(
+                VALUES[index], rec.c1(), rec.c2(), rec.c3(), rec.c4(), rec.c5(), rec.c6(), rec.c7(), rec.c8(),
+                rec.c9(), rec.c10(), rec.c11(), rec.c12(), rec.c13(), rec.c14(), rec.c15()
+            );
+        }
+
+        @Override
+        Leaves16 processorGenerated(Leaves16 rec, int index) {
+            return new Shapes_Leaves16Transformer(rec).withC0(VALUES[index]).transform().rec();
+        }
+    }
+
+    private static final class Leaves64Shape extends Shape<Leaves64> {
+        private static final Leaf[] VALUES = {ONE, TWO};
+
+        Leaves64Shape() {
+            super(Leaves64.class, ZERO, VALUES[0], VALUES[1]);
+        }
+
+        @Override
+        Leaves64 byHand(Leaves64 rec, int index) {
+            return new Leaves64(
+                VALUES[index], rec.c1(), rec.c2(), rec.c3(), rec.c4(), rec.c5(), rec.c6(), rec.c7(), rec.c8(),
+                rec.c9(), rec.c10(), rec.c11(), rec.c12(), rec.c13(), rec.c14(), rec.c15(), rec.c16(),
+                rec.c17(), rec.c18(), rec.c19(), rec.c20(), rec.c21(), rec.c22(), rec.c23(), rec.c24(),
+                rec.c25(), rec.c26(), rec.c27(), rec.c28(), rec.c29(), rec.c30(), rec.c31(), rec.c32(),
+                rec.c33(), rec.c34(), rec.c35(), rec.c36(), rec.c37(), rec.c38(), rec.c39(), rec.c40(),
+                rec.c41(), rec.c42(), rec.c43(), rec.c44(), rec.c45(), rec.c46(), rec.c47(), rec.c48(),
+                rec.c49(), rec.c50(), rec.c51(), rec.c52(), rec.c53(), rec.c54(), rec.c55(), rec.c56(),
+                rec.c57(), rec.c58(), rec.c59(), rec.c60(), rec.c61(), rec.c62(), rec.c63()
+            );
+        }
+
+        @Override
+        Leaves64 processorGenerated(Leaves64 rec, int index) {
+            return new Shapes_Leaves64Transformer(rec).withC0(VALUES[index]).transform().rec();
+        }
+    }
+}
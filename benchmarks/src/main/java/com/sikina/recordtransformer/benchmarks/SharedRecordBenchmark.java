@@ -0,0 +1,55 @@
+package com.sikina.recordtransformer.benchmarks;
+
+import com.sikina.recordtransformer.ConcurrentRecordTransformer;
+import com.sikina.recordtransformer.RecordTransformation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Every thread bumps the same counter in one shared record, so with more than one thread the
+ * compare-and-set loops retry. The baseline is the same loop written by hand, with
+ * {@link AtomicReference#updateAndGet} and the canonical constructor.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SharedRecordBenchmark {
+    public record Counters(long hits, long misses, long evictions, String name) {
+    }
+
+    private static final Counters START = new Counters(0, 0, 0, "cache");
+
+    private final AtomicReference<Counters> byHand = new AtomicReference<>(START);
+    private final ConcurrentRecordTransformer<Counters> shared = new ConcurrentRecordTransformer<>(START);
+    private final RecordTransformation<Counters> hit = RecordTransformation.builder(Counters.class)
+        .update(Counters::hits, hits -> hits + 1)
+        .build();
+
+    @Benchmark
+    public Counters byHand() {
+        return byHand.updateAndGet(c -> new Counters(c.hits() + 1, c.misses(), c.evictions(), c.name()));
+    }
+
+    @Benchmark
+    public Counters concurrentUpdate() {
+        return shared.update(Counters::hits, hits -> hits + 1);
+    }
+
+    @Benchmark
+    public Counters concurrentApply() {
+        return shared.apply(hit);
+    }
+}
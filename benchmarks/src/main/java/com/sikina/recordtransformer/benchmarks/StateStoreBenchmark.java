@@ -0,0 +1,124 @@
+package com.sikina.recordtransformer.benchmarks;
+
+import com.sikina.recordtransformer.RecordStateStore;
+import com.sikina.recordtransformer.RecordTransformer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Threads apply deposits to 10,000 accounts, with keys drawn from a Zipf distribution: a skew of 0
+ * spreads them evenly, 1.2 sends about half of the deposits to the ten hottest accounts.
+ *
+ * An operation is a burst of {@link #BURST} deposits, then waiting until they can be read.
+ * {@code store} sends them to a {@link RecordStateStore}; {@code locked} is the map of
+ * transformers under one lock that the store replaces. Throughput mode gives bursts per second, and
+ * sample mode the distribution of burst times, including their tail.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StateStoreBenchmark {
+    public record Account(int id, long balance, int deposits) {
+    }
+
+    static final int ACCOUNTS = 10_000;
+    static final int BURST = 1000;
+
+    private static final Consumer<RecordTransformer<Account>> DEPOSIT = t -> t
+        .update(t.rec()::balance, balance -> balance + 10)
+        .update(t.rec()::deposits, deposits -> deposits + 1);
+
+    @State(Scope.Benchmark)
+    public static class Stores {
+        @Param({"0", "1.2"})
+        public double skew;
+
+        private RecordStateStore<Integer, Account> store;
+        private final Map<Integer, RecordTransformer<Account>> locked = new HashMap<>();
+
+        @Setup
+        public void setUp() {
+            store = RecordStateStore.builder(Account.class, (Integer id) -> new Account(id, 0, 0)).build();
+        }
+
+        @TearDown
+        public void tearDown() {
+            store.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Keys {
+        private Integer[] keys;
+        private int next;
+
+        @Setup
+        public void setUp(Stores stores) {
+            keys = zipf(stores.skew, 1 << 16, new SplittableRandom(Thread.currentThread().getId()));
+        }
+
+        Integer next() {
+            Integer key = keys[next];
+            next = (next + 1) & (keys.length - 1);
+            return key;
+        }
+    }
+
+    /**
+     * @return count keys in [0, ACCOUNTS), the k-th most frequent drawn in proportion to 1 / k^skew
+     */
+    static Integer[] zipf(double skew, int count, SplittableRandom random) {
+        double[] cumulative = new double[ACCOUNTS];
+        double total = 0;
+        for (int k = 0; k < ACCOUNTS; k++) {
+            total += 1 / Math.pow(k + 1, skew);
+            cumulative[k] = total;
+        }
+        Integer[] keys = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            int k = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            keys[i] = k >= 0 ? k : Math.min(-k - 1, ACCOUNTS - 1);
+        }
+        return keys;
+    }
+
+    @Benchmark
+    public void store(Stores stores, Keys keys) {
+        for (int i = 0; i < BURST; i++) {
+            stores.store.update(keys.next(), DEPOSIT);
+        }
+        stores.store.flush().join();
+    }
+
+    @Benchmark
+    public void locked(Stores stores, Keys keys) {
+        Map<Integer, RecordTransformer<Account>> locked = stores.locked;
+        for (int i = 0; i < BURST; i++) {
+            Integer key = keys.next();
+            synchronized (locked) {
+                RecordTransformer<Account> t = locked.computeIfAbsent(key, id -> new RecordTransformer<>(new Account(id, 0, 0)));
+                DEPOSIT.accept(t);
+                t.transform();
+            }
+        }
+    }
+}
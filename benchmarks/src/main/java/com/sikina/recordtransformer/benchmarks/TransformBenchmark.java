@@ -0,0 +1,78 @@
+package com.sikina.recordtransformer.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replaces one component of a record with every transform strategy, against {@link #byHand()}, a
+ * hand-written call to the canonical constructor. The record's width and component type are
+ * parameters, so the results show how each strategy scales with the work the constructor call can't
+ * avoid. Every thread transforms its own record; run with more threads to see contention on the
+ * caches the strategies share, like the per-class metadata.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TransformBenchmark {
+    @Param({"1", "4", "16", "64"})
+    public int width;
+
+    @Param({"int", "string", "record"})
+    public String type;
+
+    private Shape<?> shape;
+
+    @Setup
+    public void setUp() {
+        shape = Shapes.of(type, width);
+    }
+
+    @Benchmark
+    public Record byHand() {
+        return shape.byHand();
+    }
+
+    @Benchmark
+    public Record processorGenerated() {
+        return shape.processorGenerated();
+    }
+
+    @Benchmark
+    public Record runtimeGenerated() {
+        return shape.runtimeGenerated();
+    }
+
+    @Benchmark
+    public Record recordTransformer() {
+        return shape.recordTransformer();
+    }
+
+    @Benchmark
+    public Record threadLocalTransformer() {
+        return shape.threadLocalTransformer();
+    }
+
+    @Benchmark
+    public Record recordTransformation() {
+        return shape.recordTransformation();
+    }
+
+    @Benchmark
+    public Record concurrentTransformer() {
+        return shape.concurrentTransformer();
+    }
+}
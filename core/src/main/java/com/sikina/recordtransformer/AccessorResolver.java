@@ -0,0 +1,67 @@
+package com.sikina.recordtransformer;
+
+import java.io.Serializable;
+import java.lang.invoke.SerializedLambda;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Maps a serializable method reference like {@code rec::name} to the name of the method it refers to.
+ *
+ * Every evaluation of the same method reference expression produces an instance of the same
+ * lambda class, and all of those instances point at the same implementation method. So the
+ * writeReplace reflection only has to happen once per lambda class; after that, resolving an
+ * accessor is a ClassValue lookup.
+ * Not for external use.
+ */
+final class AccessorResolver {
+    /**
+     * Holds the resolved name for one lambda class. Two threads may both resolve the name the
+     * first time around, but they will both get the same String, so the race is harmless.
+     */
+    private static final class ResolvedName {
+        private String name;
+    }
+
+    private static final ClassValue<ResolvedName> NAMES = new ClassValue<>() {
+        @Override
+        protected ResolvedName computeValue(Class<?> type) {
+            return new ResolvedName();
+        }
+    };
+
+    private AccessorResolver() {
+    }
+
+    /**
+     * @param getter a serializable method reference to a record component accessor
+     * @return the name of the method the getter refers to
+     * @throws GetterException if the getter cannot be transformed into a SerializedLambda
+     */
+    static String componentName(Serializable getter) throws GetterException {
+        long start = Instrumentation.start();
+        ResolvedName resolved = NAMES.get(getter.getClass());
+        String name = resolved.name;
+        boolean cached = name != null;
+        if (!cached) {
+            name = implMethodName(getter);
+            resolved.name = name;
+        }
+        Instrumentation.accessorResolved(cached, start);
+        return name;
+    }
+
+    private static String implMethodName(Serializable getter) throws GetterException {
+        try {
+            // From https://docs.oracle.com/en/java/javase/17/docs/api/java.base/java/lang/invoke/LambdaMetafactory.html
+            // When FLAG_SERIALIZABLE is set in flags, the function objects will implement Serializable,
+            // and will have a writeReplace method that returns an appropriate SerializedLambda.
+            Method m = getter.getClass().getDeclaredMethod("writeReplace");
+            m.setAccessible(true);
+            SerializedLambda replacement = (SerializedLambda) m.invoke(getter);
+            return replacement.getImplMethodName();
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new GetterException(e);
+        }
+    }
+}
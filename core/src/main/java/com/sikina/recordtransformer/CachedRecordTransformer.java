@@ -0,0 +1,25 @@
+package com.sikina.recordtransformer;
+
+/**
+ * A RecordTransformer that shares its getters with every other transformer for the same record class.
+ *
+ * The getters live in a ClassValue keyed by the record's Class (see RecordMetadata), so they are
+ * computed exactly once per class without any locking, records with the same name from different
+ * class loaders never collide, and the cache entry is released when its record class is unloaded.
+ * Plain RecordTransformers now use the same cache, so this class is kept for compatibility.
+ *
+ * @param <T> the type of the record being wrapped.
+ */
+public class CachedRecordTransformer<T extends Record> extends RecordTransformer<T>{
+
+    /**
+     * The first transformer for a record class resolves that class's getters; every transformer
+     * after that just looks them up.
+     *
+     * @param rec the record to transform
+     * @throws GetterException thrown if the wrapper can't get record components from rec
+     */
+    public CachedRecordTransformer(T rec) throws GetterException {
+        super(rec);
+    }
+}
@@ -0,0 +1,24 @@
+package com.sikina.recordtransformer;
+
+/**
+ * How transform decides whether a queued value is the same as the component's current value.
+ * If every queued value is the same, transform keeps the current record instead of building an
+ * equal one.
+ *
+ * Components of a primitive type are always compared by value.
+ *
+ * @see RecordTransformers#compare(Class, Component, Comparison)
+ */
+public enum Comparison {
+    /**
+     * The value is the same if it is the same instance. This is the default: it is cheap, and it
+     * never skips a transform that would have changed anything.
+     */
+    IDENTITY,
+
+    /**
+     * The value is the same if it {@code equals} the current value. Use this for components that
+     * are usually replaced with equal copies, like strings parsed from input.
+     */
+    EQUALS
+}
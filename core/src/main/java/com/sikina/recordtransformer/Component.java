@@ -0,0 +1,20 @@
+package com.sikina.recordtransformer;
+
+import java.io.Serializable;
+
+/**
+ * A serializable, unbound getter, like {@code MyRecord::name}. Where an {@link Accessor} names a
+ * component of one particular record, a Component names it for every record of the type, which
+ * is what a {@link RecordTransformation} needs to describe its updates before it sees any records.
+ *
+ * @param <R> the type of the record
+ * @param <V> the type of the component
+ */
+@FunctionalInterface
+public interface Component<R extends Record, V> extends Serializable {
+    /**
+     * @param rec the record to read from
+     * @return the value in the record that corresponds to this field
+     */
+    V get(R rec);
+}
@@ -0,0 +1,176 @@
+package com.sikina.recordtransformer;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * A transformer that can be shared between threads without locking.
+ *
+ * RecordTransformer queues updates in a buffer that belongs to one thread. This class has no queue
+ * instead: the current record is published through an AtomicReference, and each change is applied
+ * to it as a whole, by building the new record from the current one and swapping it in with a
+ * compare-and-set. If another thread got there first, the change is applied again to the record it
+ * published. Readers always see a complete record, and every change sees every change before it.
+ *
+ * Because a change can be applied more than once, update functions should be free of side effects,
+ * as they should for {@link AtomicReference#updateAndGet(UnaryOperator)}.
+ *
+ * @param <T> the type of the record being wrapped.
+ */
+public final class ConcurrentRecordTransformer<T extends Record> {
+    private final AtomicReference<T> rec;
+    private final RecordMetadata<T> metadata;
+
+    /**
+     * @param rec the record to transform
+     * @throws GetterException thrown if the wrapper can't get record components from rec
+     */
+    public ConcurrentRecordTransformer(T rec) throws GetterException {
+        this.rec = new AtomicReference<>(rec);
+        metadata = RecordMetadata.of(rec.getClass());
+    }
+
+    /**
+     * @return the current record
+     */
+    public T rec() {
+        return rec.get();
+    }
+
+    /**
+     * Atomically replace a component of the current record.
+     *
+     * @param component a getter on record T, like {@code MyRecord::name}
+     * @param value the new value for the component
+     * @param <V> the type of the component
+     * @return the record with the new value. If the component already had that value (see
+     * {@link Comparison}), this is the current record, which is left in place.
+     * @throws GetterException if the component cannot be transformed into a SerializableLambda, or
+     * reading a component of the current record fails
+     * @throws ConstructorException if the record's constructor throws
+     */
+    public <V> T set(Component<T, V> component, V value) throws GetterException, ConstructorException {
+        int slot = metadata.indexOf(AccessorResolver.componentName(component));
+        long start = Instrumentation.start();
+        while (true) {
+            T current = rec.get();
+            T next = slot < 0 ? current : replace(current, slot, value);
+            if (next == current || rec.compareAndSet(current, next)) {
+                return counted(slot, current, next, start);
+            }
+        }
+    }
+
+    /**
+     * Atomically replace a component of the current record with a function of its value. The
+     * function is called again if another thread changes the record first.
+     *
+     * @param component a getter on record T, like {@code MyRecord::name}
+     * @param function computes the new value of the component from the current one
+     * @param <V> the type of the component
+     * @return the updated record. If the function returned the component's current value, this is
+     * the current record, which is left in place.
+     * @throws GetterException if the component cannot be transformed into a SerializableLambda, or
+     * reading a component of the current record fails
+     * @throws ConstructorException if the function's result doesn't match the component's type, or the
+     * record's constructor throws
+     */
+    public <V> T update(Component<T, V> component, UnaryOperator<V> function) throws GetterException, ConstructorException {
+        int slot = metadata.indexOf(AccessorResolver.componentName(component));
+        long start = Instrumentation.start();
+        while (true) {
+            T current = rec.get();
+            T next = current;
+            if (slot >= 0) {
+                //noinspection unchecked
+                next = replace(current, slot, function.apply((V) readValue(slot, current)));
+            }
+            if (next == current || rec.compareAndSet(current, next)) {
+                return counted(slot, current, next, start);
+            }
+        }
+    }
+
+    /**
+     * Atomically apply a transformation to the current record. This is how to change several
+     * components at once: build the transformation once and reuse it. It is applied again if another
+     * thread changes the record first.
+     *
+     * @param transformation the updates to apply
+     * @return the transformed record
+     * @throws GetterException thrown if reading a component of the current record fails
+     * @throws ConstructorException thrown if an updated value doesn't match its component's type,
+     * or the record's constructor throws
+     */
+    public T apply(RecordTransformation<T> transformation) throws GetterException, ConstructorException {
+        while (true) {
+            T current = rec.get();
+            T next = transformation.apply(current);
+            if (next == current || rec.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Count a change once it is in place, so that the rounds lost to other threads aren't counted too.
+     *
+     * @return next
+     */
+    private T counted(int slot, T current, T next, long start) {
+        if (slot >= 0) {
+            metadata.counted(next != current, start);
+        }
+        return next;
+    }
+
+    /**
+     * @return a copy of current with one component replaced, or current itself if the value is the same
+     */
+    private T replace(T current, int slot, Object value) {
+        int kind = metadata.kind(slot);
+        Object[] references = new Object[metadata.size()];
+        long[] bits = new long[metadata.size()];
+        for (int i = 0; i < references.length; i++) {
+            if (i == slot) {
+                continue;
+            } else if (metadata.kind(i) == PrimitiveSlots.REFERENCE) {
+                references[i] = readValue(i, current);
+            } else {
+                bits[i] = readBits(i, current);
+            }
+        }
+        if (kind == PrimitiveSlots.REFERENCE) {
+            if (metadata.same(slot, readValue(slot, current), value)) {
+                return current;
+            }
+            references[slot] = value;
+        } else if (PrimitiveSlots.acceptsBoxed(kind, value)) {
+            bits[slot] = PrimitiveSlots.fromBoxed(kind, value);
+            if (bits[slot] == readBits(slot, current)) {
+                return current;
+            }
+        } else {
+            throw new ConstructorException(new IllegalArgumentException(
+                "argument type mismatch for component " + metadata.name(slot)
+            ));
+        }
+        return metadata.construct(references, bits);
+    }
+
+    private long readBits(int slot, T current) {
+        try {
+            return metadata.bits(slot, current);
+        } catch (RuntimeException e) {
+            throw new GetterException(e);
+        }
+    }
+
+    private Object readValue(int slot, T current) {
+        try {
+            return metadata.getter(slot).apply(current);
+        } catch (RuntimeException e) {
+            throw new GetterException(e);
+        }
+    }
+}
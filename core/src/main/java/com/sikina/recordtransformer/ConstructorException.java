@@ -5,7 +5,12 @@ package com.sikina.recordtransformer;
  * of a record being wrapped by RecordLens
  */
 public class ConstructorException extends RuntimeException {
-    ConstructorException(Throwable e) {
+    /**
+     * Public so that transformers generated into the record's package can throw it.
+     *
+     * @param e what the constructor, or looking it up, threw
+     */
+    public ConstructorException(Throwable e) {
         super("Error finding or invoking constructor", e);
     }
 }
@@ -0,0 +1,353 @@
+package com.sikina.recordtransformer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.function.UnaryOperator;
+
+/**
+ * A transformer backed by a class generated at runtime for one record type. The generated class
+ * keeps a typed slot for every component, reads the components with direct accessor calls, and
+ * transforms by calling the canonical constructor directly, so once it exists nothing on the hot
+ * path uses reflection. Get one from {@link RecordTransformers#generated(Record)}.
+ *
+ * The class is generated the first time a record type is seen, as a hidden class in the record's
+ * own package. That means the record's package has to be open to this library, and the record has
+ * to live in the same module as this library (e.g. both on the class path of one class loader).
+ *
+ * Unlike RecordTransformer, a value that doesn't match its component's type fails as soon as it is
+ * queued, with a ClassCastException (or NullPointerException for a null primitive), rather than in transform().
+ * Boxed numbers still widen into primitive components (an Integer into a long or a float, say), as they
+ * would for the constructor.
+ *
+ * Subclasses are generated by the library. Don't extend this class yourself.
+ *
+ * @param <T> the type of the record being wrapped.
+ */
+public abstract class GeneratedTransformer<T extends Record> implements Transformer<T> {
+    private static final ClassValue<GeneratedTransformer<?>> PROTOTYPES = new ClassValue<>() {
+        @Override
+        protected GeneratedTransformer<?> computeValue(Class<?> type) {
+            return prototype(RecordMetadata.of(type.asSubclass(Record.class)));
+        }
+    };
+
+    private RecordMetadata<T> metadata;
+    private T rec;
+    // false until a value that differs from rec's is stored, so transforms that change nothing can keep rec
+    private boolean changed;
+
+    protected GeneratedTransformer() {
+    }
+
+    static <T extends Record> GeneratedTransformer<T> of(T rec) throws GetterException {
+        // the prototype cache holds every record type, so the type parameter is lost in storage
+        //noinspection unchecked
+        GeneratedTransformer<T> prototype = (GeneratedTransformer<T>) PROTOTYPES.get(rec.getClass());
+        GeneratedTransformer<T> transformer = prototype.newInstance();
+        transformer.metadata = prototype.metadata;
+        transformer.bind(rec);
+        return transformer;
+    }
+
+    /**
+     * Generate the transformer class for a record type now, rather than for its first transformer.
+     */
+    static void preload(Class<? extends Record> recordClass) throws GetterException {
+        PROTOTYPES.get(recordClass);
+    }
+
+    /**
+     * Generate, define and instantiate the transformer class for a record type. This is the
+     * expensive part of creating a GeneratedTransformer, and happens once per record type.
+     */
+    static <T extends Record> GeneratedTransformer<T> prototype(RecordMetadata<T> metadata) throws GetterException {
+        byte[] bytes = TransformerClassWriter.write(metadata);
+        try {
+            MethodHandles.Lookup lookup = MethodHandles
+                .privateLookupIn(metadata.recordClass(), MethodHandles.lookup())
+                .defineHiddenClass(bytes, true, MethodHandles.Lookup.ClassOption.NESTMATE);
+            //noinspection unchecked
+            GeneratedTransformer<T> prototype = (GeneratedTransformer<T>) lookup
+                .findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                .invoke();
+            prototype.metadata = metadata;
+            return prototype;
+        } catch (Throwable e) {
+            throw new GetterException(e);
+        }
+    }
+
+    /**
+     * @return a new, empty instance of the generated class
+     */
+    protected abstract GeneratedTransformer<T> newInstance();
+
+    /**
+     * Copy every component of rec into its slot.
+     */
+    protected abstract void load(Record rec);
+
+    /**
+     * @return the value in one slot, boxed if it is a primitive
+     */
+    protected abstract Object get(int slot);
+
+    /**
+     * Replace the value in one slot.
+     */
+    protected abstract void set(int slot, Object value);
+
+    /**
+     * Replace the value in an int, long or double slot, encoded as {@link PrimitiveSlots} does.
+     * Calls for any other slot are ignored.
+     */
+    protected abstract void setBits(int slot, long bits);
+
+    /**
+     * @return a new record built from the slots
+     */
+    protected abstract Record construct();
+
+    private void bind(T rec) throws GetterException {
+        try {
+            load(rec);
+        } catch (RuntimeException e) {
+            throw new GetterException(e);
+        }
+        this.rec = rec;
+    }
+
+    /**
+     * Start over with another record of the same type, dropping any updates that haven't been transformed.
+     * The slots are reloaded in place, so nothing is allocated.
+     *
+     * @param rec the record to transform next
+     * @return this, for chaining
+     * @throws IllegalArgumentException if rec isn't of the class this transformer was generated for
+     * @throws GetterException if reading a component of rec fails
+     */
+    public GeneratedTransformer<T> reset(T rec) throws GetterException {
+        if (rec.getClass() != metadata.recordClass()) {
+            throw new IllegalArgumentException(
+                "can't reset a transformer for " + metadata.recordClass().getName() + " to a " + rec.getClass().getName()
+            );
+        }
+        bind(rec);
+        changed = false;
+        return this;
+    }
+
+    @Override
+    public T rec() {
+        return rec;
+    }
+
+    /**
+     * Lazily changes the field referenced by the getter to the new value.
+     * This value change will not be reflected in rec() until you call transform().
+     *
+     * @param getter A getter on record T - used to enforce type checking and reference the field being changed
+     * @param <V> The type of the field being changed
+     * @return PartialTransformation curried with this transformer and the slot for this getter.
+     * @throws GetterException if the getter cannot be transformed into a SerializableLambda
+     */
+    public <V> PartialTransformation<GeneratedTransformer<T>, V> with(Accessor<V> getter) throws GetterException {
+        return new PartialTransformation<>(
+            this, this::put, metadata.indexOf(AccessorResolver.componentName(getter)), metadata, this::putPath
+        );
+    }
+
+    /**
+     * The int counterpart of {@link #with(Accessor)}. The value is stored without boxing if the
+     * component is an int, long or double.
+     *
+     * @param getter An int getter on record T
+     * @return IntPartialTransformation curried with this transformer and the slot for this getter.
+     * @throws GetterException if the getter cannot be transformed into a SerializableLambda
+     */
+    public IntPartialTransformation<GeneratedTransformer<T>> withInt(IntAccessor getter) throws GetterException {
+        return new IntPartialTransformation<>(this, this::putInt, metadata.indexOf(AccessorResolver.componentName(getter)));
+    }
+
+    /**
+     * The long counterpart of {@link #with(Accessor)}. The value is stored without boxing if the
+     * component is a long or double.
+     *
+     * @param getter A long getter on record T
+     * @return LongPartialTransformation curried with this transformer and the slot for this getter.
+     * @throws GetterException if the getter cannot be transformed into a SerializableLambda
+     */
+    public LongPartialTransformation<GeneratedTransformer<T>> withLong(LongAccessor getter) throws GetterException {
+        return new LongPartialTransformation<>(this, this::putLong, metadata.indexOf(AccessorResolver.componentName(getter)));
+    }
+
+    /**
+     * The double counterpart of {@link #with(Accessor)}. The value is stored without boxing if the
+     * component is a double.
+     *
+     * @param getter A double getter on record T
+     * @return DoublePartialTransformation curried with this transformer and the slot for this getter.
+     * @throws GetterException if the getter cannot be transformed into a SerializableLambda
+     */
+    public DoublePartialTransformation<GeneratedTransformer<T>> withDouble(DoubleAccessor getter) throws GetterException {
+        return new DoublePartialTransformation<>(this, this::putDouble, metadata.indexOf(AccessorResolver.componentName(getter)));
+    }
+
+    /**
+     * Changes the field referenced by the getter to the result of applying function to it.
+     * The function sees the value the field will have in the next record, so updates to the same field
+     * build on each other and on with(): {@code with(rec::a).as(1)} followed by
+     * {@code update(rec::a, a -> a + 1)} leaves 2 queued. Only one record is built when you call transform().
+     *
+     * @param getter A getter on record T - used to enforce type checking and reference the field being changed
+     * @param function computes the field's new value from its queued value
+     * @param <V> The type of the field being changed
+     * @return this, for chaining
+     * @throws GetterException if the getter cannot be transformed into a SerializableLambda
+     */
+    public <V> GeneratedTransformer<T> update(Accessor<V> getter, UnaryOperator<V> function) throws GetterException {
+        int slot = metadata.indexOf(AccessorResolver.componentName(getter));
+        if (slot >= 0) {
+            //noinspection unchecked
+            put(slot, function.apply((V) get(slot)));
+        }
+        return this;
+    }
+
+    @Override
+    public GeneratedTransformer<T> withTypeUnsafe(String key, Object value) {
+        put(metadata.indexOf(key), value);
+        return this;
+    }
+
+    @Override
+    public GeneratedTransformer<T> withInt(String key, int value) {
+        putInt(metadata.indexOf(key), value);
+        return this;
+    }
+
+    @Override
+    public GeneratedTransformer<T> withLong(String key, long value) {
+        putLong(metadata.indexOf(key), value);
+        return this;
+    }
+
+    @Override
+    public GeneratedTransformer<T> withDouble(String key, double value) {
+        putDouble(metadata.indexOf(key), value);
+        return this;
+    }
+
+    private void put(int slot, Object value) {
+        // keys that don't name a component are ignored, as they are by RecordTransformer
+        if (slot < 0) {
+            return;
+        }
+        // boxed numbers widen into primitive slots the way they would for Constructor.newInstance
+        int kind = metadata.kind(slot);
+        if (kind != PrimitiveSlots.REFERENCE && PrimitiveSlots.acceptsBoxed(kind, value)) {
+            storeBits(slot, PrimitiveSlots.fromBoxed(kind, value));
+        } else {
+            store(slot, widen(metadata.type(slot), value));
+        }
+    }
+
+    /**
+     * The other primitive slots hold the exact boxed type, so widen into them here what the constructor
+     * would widen: anything but a double into a float, and a byte into a short.
+     *
+     * @return value as a component of the given type, or value itself if it isn't one that widens to it
+     */
+    private static Object widen(Class<?> type, Object value) {
+        if (type == float.class) {
+            if (value instanceof Character c) {
+                return (float) c;
+            } else if (value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long) {
+                return ((Number) value).floatValue();
+            }
+        } else if (type == short.class && value instanceof Byte b) {
+            return (short) b;
+        }
+        return value;
+    }
+
+    private void store(int slot, Object value) {
+        if (!changed) {
+            try {
+                changed = !metadata.same(slot, metadata.getter(slot).apply(rec), value);
+            } catch (RuntimeException e) {
+                changed = true;
+            }
+        }
+        set(slot, value);
+    }
+
+    private void storeBits(int slot, long bits) {
+        if (!changed) {
+            try {
+                changed = metadata.bits(slot, rec) != bits;
+            } catch (RuntimeException e) {
+                changed = true;
+            }
+        }
+        setBits(slot, bits);
+    }
+
+    /**
+     * The slots are typed, so there is nowhere to keep nested updates until transform. Instead the
+     * records on the path are rebuilt right away, from the value in the slot.
+     */
+    private void putPath(int slot, RecordPath path, Object value) {
+        store(slot, path.rebuild(get(slot), value));
+    }
+
+    private void putInt(int slot, int value) {
+        if (slot >= 0 && PrimitiveSlots.acceptsInt(metadata.kind(slot))) {
+            storeBits(slot, PrimitiveSlots.fromInt(metadata.kind(slot), value));
+        } else {
+            put(slot, value);
+        }
+    }
+
+    private void putLong(int slot, long value) {
+        if (slot >= 0 && PrimitiveSlots.acceptsLong(metadata.kind(slot))) {
+            storeBits(slot, PrimitiveSlots.fromLong(metadata.kind(slot), value));
+        } else {
+            put(slot, value);
+        }
+    }
+
+    private void putDouble(int slot, double value) {
+        if (slot >= 0 && PrimitiveSlots.acceptsDouble(metadata.kind(slot))) {
+            storeBits(slot, PrimitiveSlots.fromDouble(value));
+        } else {
+            put(slot, value);
+        }
+    }
+
+    /**
+     * The slots already hold every component of the new record, so transforming is a single
+     * constructor call. If no value different from the current record's has been stored since the
+     * last transform, the current record is kept and the constructor isn't called at all.
+     */
+    @Override
+    public GeneratedTransformer<T> transform() throws ConstructorException {
+        long start = Instrumentation.start();
+        if (!changed) {
+            metadata.counted(false, start);
+            return this;
+        }
+        try {
+            rec = metadata.intern(metadata.recordClass().cast(construct()));
+        } catch (RuntimeException e) {
+            // drop the values the constructor rejected, as RecordTransformer does, so they don't fail
+            // every transform after this one
+            load(rec);
+            changed = false;
+            throw new ConstructorException(e);
+        }
+        changed = false;
+        metadata.counted(true, start);
+        return this;
+    }
+}
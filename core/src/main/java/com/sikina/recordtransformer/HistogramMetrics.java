@@ -0,0 +1,133 @@
+package com.sikina.recordtransformer;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link TransformMetrics} that keep a {@link LatencyHistogram} of transform times and a count of
+ * transforms per record type, plus hit and miss counts for the accessor and getter caches. Everything
+ * is recorded without locking, and can be read at any time while transforms carry on.
+ *
+ * <pre>
+ * HistogramMetrics metrics = new HistogramMetrics();
+ * RecordTransformers.metrics(metrics);
+ * ...
+ * for (Class&lt;? extends Record&gt; type : metrics.recordTypes()) {
+ *     System.out.println(type.getSimpleName() + " " + metrics.counts(type) + " " + metrics.latency(type));
+ * }
+ * </pre>
+ *
+ * The metrics hold on to every record type they have seen; drop them to let those classes go.
+ */
+public final class HistogramMetrics implements TransformMetrics {
+    private static final class RecordTypeMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder constructed = new LongAdder();
+    }
+
+    private final Map<Class<? extends Record>, RecordTypeMetrics> recordTypes = new ConcurrentHashMap<>();
+    private final LatencyHistogram accessorResolution = new LatencyHistogram();
+    private final LongAdder accessorMisses = new LongAdder();
+    private final LongAdder getterLookups = new LongAdder();
+    private final LongAdder getterMisses = new LongAdder();
+
+    @Override
+    public void transformed(Class<? extends Record> recordClass, boolean constructed, long nanos) {
+        RecordTypeMetrics metrics = recordTypes.get(recordClass);
+        if (metrics == null) {
+            metrics = recordTypes.computeIfAbsent(recordClass, type -> new RecordTypeMetrics());
+        }
+        metrics.latency.record(nanos);
+        if (constructed) {
+            metrics.constructed.increment();
+        }
+    }
+
+    @Override
+    public void accessorResolved(boolean cached, long nanos) {
+        accessorResolution.record(nanos);
+        if (!cached) {
+            accessorMisses.increment();
+        }
+    }
+
+    @Override
+    public void gettersLookedUp(Class<? extends Record> recordClass, boolean cached) {
+        getterLookups.increment();
+        if (!cached) {
+            getterMisses.increment();
+        }
+    }
+
+    /**
+     * @return every record type transformed so far, the most often transformed first
+     */
+    public List<Class<? extends Record>> recordTypes() {
+        return recordTypes.entrySet().stream()
+            .sorted(Comparator.comparingLong(e -> -e.getValue().latency.count()))
+            .<Class<? extends Record>>map(Map.Entry::getKey)
+            .toList();
+    }
+
+    /**
+     * @param recordClass a record type
+     * @return the times its transforms took. Empty if it hasn't been transformed.
+     */
+    public LatencyHistogram latency(Class<? extends Record> recordClass) {
+        RecordTypeMetrics metrics = recordTypes.get(recordClass);
+        return metrics == null ? new LatencyHistogram() : metrics.latency;
+    }
+
+    /**
+     * @param recordClass a record type
+     * @return how many of its transforms built a new record, and how many kept the current one,
+     * since these metrics were installed
+     */
+    public TransformCounts counts(Class<? extends Record> recordClass) {
+        RecordTypeMetrics metrics = recordTypes.get(recordClass);
+        if (metrics == null) {
+            return new TransformCounts(0, 0);
+        }
+        // read the constructed count first, so that a transform in between can't make skipped negative
+        long constructed = metrics.constructed.sum();
+        return new TransformCounts(constructed, Math.max(metrics.latency.count() - constructed, 0));
+    }
+
+    /**
+     * @return the times taken to resolve method references like {@code rec::name} to component names
+     */
+    public LatencyHistogram accessorResolution() {
+        return accessorResolution;
+    }
+
+    /**
+     * @return how many method references were resolved from the cache
+     */
+    public long accessorCacheHits() {
+        return accessorResolution.count() - accessorMisses.sum();
+    }
+
+    /**
+     * @return how many method references had to be resolved with reflection
+     */
+    public long accessorCacheMisses() {
+        return accessorMisses.sum();
+    }
+
+    /**
+     * @return how many lookups of a record type's getters found them already resolved
+     */
+    public long getterCacheHits() {
+        return getterLookups.sum() - getterMisses.sum();
+    }
+
+    /**
+     * @return how many lookups of a record type's getters had to resolve them
+     */
+    public long getterCacheMisses() {
+        return getterMisses.sum();
+    }
+}
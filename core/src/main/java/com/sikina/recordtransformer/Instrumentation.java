@@ -0,0 +1,56 @@
+package com.sikina.recordtransformer;
+
+import java.util.ServiceLoader;
+
+/**
+ * Holds the installed {@link TransformMetrics} and reports to it. Every method starts by checking
+ * whether metrics are installed at all, so that when they aren't, measuring costs one field read.
+ * Not for external use.
+ */
+final class Instrumentation {
+    private static volatile TransformMetrics metrics = ServiceLoader
+        .load(TransformMetrics.class, TransformMetrics.class.getClassLoader())
+        .findFirst()
+        .orElse(TransformMetrics.NONE);
+
+    private Instrumentation() {
+    }
+
+    static TransformMetrics metrics() {
+        return metrics;
+    }
+
+    static void metrics(TransformMetrics installed) {
+        metrics = installed;
+    }
+
+    /**
+     * @return the time to pass to the other methods once the work is done, or 0 if metrics are off
+     */
+    static long start() {
+        return metrics == TransformMetrics.NONE ? 0 : System.nanoTime();
+    }
+
+    static void transformed(Class<? extends Record> recordClass, boolean constructed, long start) {
+        TransformMetrics current = metrics;
+        if (current != TransformMetrics.NONE) {
+            current.transformed(recordClass, constructed, elapsed(start));
+        }
+    }
+
+    static void accessorResolved(boolean cached, long start) {
+        TransformMetrics current = metrics;
+        if (current != TransformMetrics.NONE) {
+            current.accessorResolved(cached, elapsed(start));
+        }
+    }
+
+    static boolean enabled() {
+        return metrics != TransformMetrics.NONE;
+    }
+
+    private static long elapsed(long start) {
+        // metrics were installed after the work started, so it wasn't timed
+        return start == 0 ? 0 : System.nanoTime() - start;
+    }
+}
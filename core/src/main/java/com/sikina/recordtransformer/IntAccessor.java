@@ -0,0 +1,15 @@
+package com.sikina.recordtransformer;
+
+import java.io.Serializable;
+
+/**
+ * A serializable getter for a {@code int} component. Like {@link Accessor}, but the value is never
+ * boxed, so it can be used with {@code withInt} to update the component without allocating.
+ */
+@FunctionalInterface
+public interface IntAccessor extends Serializable {
+    /**
+     * @return the value in the record that corresponds to this field
+     */
+    int get();
+}
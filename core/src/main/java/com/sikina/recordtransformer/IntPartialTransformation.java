@@ -0,0 +1,31 @@
+package com.sikina.recordtransformer;
+
+/**
+ * The {@code int} counterpart of {@link PartialTransformation}: {@code withInt(getter).as(value)}
+ * queues the update without boxing the value.
+ *
+ * This class should never be instantiated directly, nor should it be stored in a variable.
+ *
+ * @param <S> the type of the transformer that queued this
+ */
+public class IntPartialTransformation<S> {
+    private final S wrapper;
+    private final PutInt putFunc;
+    private final int slot;
+
+    IntPartialTransformation(S wrapper, PutInt putFunc, int slot) {
+        this.wrapper = wrapper;
+        this.putFunc = putFunc;
+        this.slot = slot;
+    }
+
+    /**
+     * Complete the queuing of the transformation for the record.
+     * @param value the value to set the field to when transform is called.
+     * @return The original lens, for chaining.
+     */
+    public S as(int value) {
+        putFunc.put(slot, value);
+        return wrapper;
+    }
+}
@@ -0,0 +1,18 @@
+package com.sikina.recordtransformer;
+
+/**
+ * How often records built for an interned record type were equal to one built before.
+ *
+ * @param hits the number of records replaced by an equal one already in the intern table
+ * @param misses the number of records that had no equal in the table, and were put in it
+ * @see RecordTransformers#internCounts(Class)
+ */
+public record InternCounts(long hits, long misses) {
+    /**
+     * @return the fraction of records that were replaced by an equal one, or 0 if none were interned
+     */
+    public double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+}
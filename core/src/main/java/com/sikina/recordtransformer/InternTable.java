@@ -0,0 +1,57 @@
+package com.sikina.recordtransformer;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size table of weakly held records, used to hand out one instance for equal records.
+ *
+ * Each record hashes to one slot. If the slot holds an equal record, that record is returned; if
+ * not, the new record replaces whatever was there. So the table never grows, never blocks, and
+ * never keeps a record alive by itself, at the price of forgetting a record when another one lands
+ * on its slot or the collector clears it. Two threads interning equal records at the same time may
+ * both keep their own; that only costs some deduplication.
+ * Not for external use.
+ */
+final class InternTable<T extends Record> {
+    private final AtomicReferenceArray<WeakReference<T>> slots;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity the number of slots, rounded up to a power of two, up to 2^30
+     */
+    InternTable(int capacity) {
+        int size = capacity <= 1 ? 1 : Integer.highestOneBit(Math.min(capacity - 1, 1 << 29)) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * @return a record equal to rec that was interned before, or rec itself, which is interned in its place
+     */
+    T intern(T rec) {
+        int h = rec.hashCode();
+        // the low bits pick the slot, so mix the high bits of hashes that only differ there into them
+        int slot = (h ^ (h >>> 16)) & mask;
+        WeakReference<T> ref = slots.get(slot);
+        T existing = ref == null ? null : ref.get();
+        if (existing != null && existing.equals(rec)) {
+            hits.increment();
+            return existing;
+        }
+        misses.increment();
+        slots.set(slot, new WeakReference<>(rec));
+        return rec;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    InternCounts counts() {
+        return new InternCounts(hits.sum(), misses.sum());
+    }
+}
@@ -0,0 +1,48 @@
+package com.sikina.recordtransformer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * {@link TransformMetrics} that emit a {@code com.sikina.recordtransformer.Transform} Flight Recorder
+ * event for every transform, with the record type, whether a new record was built, and how long it
+ * took. Outside a recording, the only cost is a check per transform. Transforms are frequent, so a
+ * recording of a busy application can hold a lot of these; disable the event in the recording's
+ * settings, or install these metrics only while investigating. Group the events by record type in
+ * JDK Mission Control to find the hot ones.
+ */
+public final class JfrMetrics implements TransformMetrics {
+    @Name("com.sikina.recordtransformer.Transform")
+    @Label("Record Transform")
+    @Category("Record Transformer")
+    @Description("A call to transform on a record transformer")
+    @StackTrace(false)
+    static final class TransformEvent extends Event {
+        @Label("Record Type")
+        Class<?> recordType;
+
+        @Label("Constructed")
+        @Description("False if nothing changed, so the current record was kept")
+        boolean constructed;
+
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long time;
+    }
+
+    @Override
+    public void transformed(Class<? extends Record> recordClass, boolean constructed, long nanos) {
+        TransformEvent event = new TransformEvent();
+        if (event.isEnabled()) {
+            event.recordType = recordClass;
+            event.constructed = constructed;
+            event.time = nanos;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.sikina.recordtransformer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations in nanoseconds that any number of threads can record into without locking.
+ *
+ * Like an HDR histogram, it keeps a fixed number of buckets per power of two: values below 32 get a
+ * bucket each, and larger values share buckets that are 1/32 of their power of two wide. So every
+ * value from 1ns to the largest long is counted with a relative error of about 3%, in a fixed 15KB,
+ * and recording one is an index computation and an atomic increment.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS * (64 - SUB_BUCKET_BITS);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param nanos a duration. Negative durations, which a clock going backwards can produce, count as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucket(value));
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return the number of durations recorded
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * @return the longest duration recorded, or 0 if there are none
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @return the mean of the durations recorded, or 0 if there are none
+     */
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    /**
+     * @param percentile between 0 and 100, like 99.9
+     * @return a duration that at least that percentage of the recorded ones are shorter than or equal
+     * to, rounded up to the end of its bucket, or 0 if there are none
+     * @throws IllegalArgumentException if percentile is outside 0 to 100
+     */
+    public long percentile(double percentile) {
+        if (!(percentile >= 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100, got " + percentile);
+        }
+        // the bucket counts and the total are read at slightly different times, so don't rely on the total
+        long[] snapshot = new long[BUCKETS];
+        long recorded = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            recorded += snapshot[i];
+        }
+        long rank = Math.max(1, (long) Math.ceil(recorded * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highest(i), max.get());
+            }
+        }
+        return 0;
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // the top SUB_BUCKET_BITS + 1 bits of the value, which are 32 to 63, pick the bucket within its power of two
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS * shift + (int) (value >>> shift);
+    }
+
+    static long highest(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (bucket % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram[count=" + count() + ", mean=" + mean() + ", p50=" + percentile(50)
+            + ", p99=" + percentile(99) + ", max=" + max() + "]";
+    }
+}
@@ -0,0 +1,15 @@
+package com.sikina.recordtransformer;
+
+import java.io.Serializable;
+
+/**
+ * A serializable getter for a {@code long} component. Like {@link Accessor}, but the value is never
+ * boxed, so it can be used with {@code withLong} to update the component without allocating.
+ */
+@FunctionalInterface
+public interface LongAccessor extends Serializable {
+    /**
+     * @return the value in the record that corresponds to this field
+     */
+    long get();
+}
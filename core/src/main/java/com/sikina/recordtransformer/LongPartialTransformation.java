@@ -0,0 +1,31 @@
+package com.sikina.recordtransformer;
+
+/**
+ * The {@code long} counterpart of {@link PartialTransformation}: {@code withLong(getter).as(value)}
+ * queues the update without boxing the value.
+ *
+ * This class should never be instantiated directly, nor should it be stored in a variable.
+ *
+ * @param <S> the type of the transformer that queued this
+ */
+public class LongPartialTransformation<S> {
+    private final S wrapper;
+    private final PutLong putFunc;
+    private final int slot;
+
+    LongPartialTransformation(S wrapper, PutLong putFunc, int slot) {
+        this.wrapper = wrapper;
+        this.putFunc = putFunc;
+        this.slot = slot;
+    }
+
+    /**
+     * Complete the queuing of the transformation for the record.
+     * @param value the value to set the field to when transform is called.
+     * @return The original lens, for chaining.
+     */
+    public S as(long value) {
+        putFunc.put(slot, value);
+        return wrapper;
+    }
+}
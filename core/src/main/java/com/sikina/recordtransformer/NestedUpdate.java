@@ -0,0 +1,129 @@
+package com.sikina.recordtransformer;
+
+/**
+ * Updates queued for a record inside the record being transformed, made through a {@link RecordPath}.
+ * A NestedUpdate sits in its parent's {@link UpdateBuffer} slot in place of a plain value, and holds
+ * its own buffer, whose slots can in turn hold NestedUpdates for the records below it. When the
+ * parent is built, the nested record is built first, from the current nested record and its queued
+ * updates, so any number of updates under one component build each record on the path only once.
+ * Not for external use.
+ */
+final class NestedUpdate {
+    private final RecordMetadata<Record> metadata;
+    // a value queued for the whole component before these updates; they apply to it instead of the current one
+    private final boolean replacing;
+    private final Object replaced;
+    private final UpdateBuffer updates;
+
+    private NestedUpdate(RecordMetadata<?> metadata, boolean replacing, Object replaced) {
+        //noinspection unchecked
+        this.metadata = (RecordMetadata<Record>) metadata;
+        this.replacing = replacing;
+        this.replaced = replaced;
+        updates = new UpdateBuffer(metadata.size());
+    }
+
+    /**
+     * @return a NestedUpdate whose updates apply to the given record rather than the parent's current one
+     */
+    static NestedUpdate replacing(RecordMetadata<?> metadata, Object replaced) {
+        return new NestedUpdate(metadata, true, replaced);
+    }
+
+    /**
+     * Find the NestedUpdate queued in a slot of buffer, creating one if the slot doesn't have one yet.
+     * If the slot already has a plain value queued, the nested updates apply to that value.
+     */
+    static NestedUpdate in(UpdateBuffer buffer, int slot, RecordMetadata<?> metadata) {
+        NestedUpdate nested;
+        if (!buffer.isDirty(slot)) {
+            nested = new NestedUpdate(metadata, false, null);
+        } else if (buffer.get(slot) instanceof NestedUpdate queued) {
+            return queued;
+        } else {
+            nested = replacing(metadata, buffer.get(slot));
+        }
+        buffer.put(slot, nested);
+        return nested;
+    }
+
+    /**
+     * Queue value for the end of path, which goes through this record at the given level.
+     */
+    void put(RecordPath path, int level, Object value) {
+        int slot = path.slot(level);
+        if (level == path.depth() - 1) {
+            int kind = metadata.kind(slot);
+            if (kind != PrimitiveSlots.REFERENCE && PrimitiveSlots.acceptsBoxed(kind, value)) {
+                updates.putBits(slot, PrimitiveSlots.fromBoxed(kind, value));
+            } else {
+                updates.put(slot, value);
+            }
+        } else {
+            in(updates, slot, path.metadata(level + 1)).put(path, level + 1, value);
+        }
+    }
+
+    /**
+     * @return true if the updates apply to a value queued for the whole component, so the parent's
+     * current value doesn't need to be read
+     */
+    boolean replacing() {
+        return replacing;
+    }
+
+    /**
+     * Build the nested record.
+     *
+     * @param current the parent's current value for this component. Ignored if {@link #replacing()}.
+     * @return the new nested record, or the record the updates apply to if none of them change it
+     */
+    Record apply(Object current) throws GetterException, ConstructorException {
+        Record source = metadata.recordClass().cast(replacing ? replaced : current);
+        Object[] references = new Object[metadata.size()];
+        long[] bits = new long[metadata.size()];
+        boolean changed = false;
+        for (int i = 0; i < references.length; i++) {
+            boolean primitive = metadata.kind(i) != PrimitiveSlots.REFERENCE;
+            if (!updates.isDirty(i)) {
+                if (primitive) {
+                    bits[i] = readBits(i, source);
+                } else {
+                    references[i] = readValue(i, source);
+                }
+            } else if (updates.hasBits(i)) {
+                bits[i] = updates.getBits(i);
+                changed = changed || bits[i] != readBits(i, source);
+            } else if (updates.get(i) instanceof NestedUpdate nested) {
+                Object value = readValue(i, source);
+                references[i] = nested.apply(nested.replacing() ? null : value);
+                changed = changed || !metadata.same(i, value, references[i]);
+            } else if (!primitive) {
+                references[i] = updates.get(i);
+                changed = changed || !metadata.same(i, readValue(i, source), references[i]);
+            } else {
+                throw new ConstructorException(new IllegalArgumentException(
+                    "argument type mismatch for component " + metadata.name(i)
+                ));
+            }
+        }
+        // keeping the record means the records above it on the path can be kept too
+        return changed ? metadata.construct(references, bits) : source;
+    }
+
+    private long readBits(int slot, Record source) {
+        try {
+            return metadata.bits(slot, source);
+        } catch (RuntimeException e) {
+            throw new GetterException(e);
+        }
+    }
+
+    private Object readValue(int slot, Record source) {
+        try {
+            return metadata.getter(slot).apply(source);
+        } catch (RuntimeException e) {
+            throw new GetterException(e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.sikina.recordtransformer;
+
+/**
+ * This is a transitory class used to make the Java compiler enforce
+ * type T when making the transformation {@code with(Accessor<T> getter, T val)}.
+ *
+ * This class should never be instantiated directly, nor should it be stored in a variable.
+ * Rather, you should create, use, and discard this class as part of a with + as chain:
+ * {@code with(Accessor<T> getter).as(T val)}
+ *
+ * @param <S> the type of the transformer (RecordTransformer, GeneratedTransformer...) that queued this
+ * @param <V> the type of the field being updated
+ */
+public class PartialTransformation<S, V> {
+    private final S wrapper;
+    private final Put putFunc;
+    private final int slot;
+    private final RecordMetadata<?> owner;
+    private final PutPath putPathFunc;
+
+    PartialTransformation(S wrapper, Put putFunc, int slot, RecordMetadata<?> owner, PutPath putPathFunc) {
+        this.wrapper = wrapper;
+        this.putFunc = putFunc;
+        this.slot = slot;
+        this.owner = owner;
+        this.putPathFunc = putPathFunc;
+    }
+
+    /**
+     * Update a component of the record in this field rather than replacing the whole field:
+     * {@code with(rec::address).then(Address::city).as("X")}.
+     *
+     * @param component a getter on the field's record type, like {@code Address::city}
+     * @param <W> the type of the component
+     * @return a PathTransformation for the component
+     * @throws GetterException if the field isn't declared as a record class, or the component cannot be
+     * transformed into a SerializableLambda
+     */
+    public <W> PathTransformation<S, W> then(Component<? super V, W> component) throws GetterException {
+        RecordPath path = slot < 0 ? null : owner.path(slot).then(component);
+        return new PathTransformation<>(wrapper, putPathFunc, slot, path);
+    }
+
+    /**
+     * Complete the queuing of the transformation for the record.
+     * @param value the value to set the field to when transform is called.
+     * @return The original lens, for chaining.
+     */
+    public S as(V value) {
+        putFunc.put(slot, value);
+        return wrapper;
+    }
+}
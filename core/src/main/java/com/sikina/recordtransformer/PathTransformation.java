@@ -0,0 +1,53 @@
+package com.sikina.recordtransformer;
+
+/**
+ * The nested counterpart of {@link PartialTransformation}, for updating a component of a record
+ * inside the record being transformed: {@code with(rec::address).then(Address::city).as("X")}.
+ *
+ * Only the records on the path are rebuilt when the transformer transforms; every other component,
+ * however deep, is reused as is.
+ *
+ * This class should never be instantiated directly, nor should it be stored in a variable.
+ *
+ * @param <S> the type of the transformer that queued this
+ * @param <V> the type of the field at the end of the path
+ */
+public class PathTransformation<S, V> {
+    private final S wrapper;
+    private final PutPath putFunc;
+    private final int slot;
+    private final RecordPath path;
+
+    PathTransformation(S wrapper, PutPath putFunc, int slot, RecordPath path) {
+        this.wrapper = wrapper;
+        this.putFunc = putFunc;
+        this.slot = slot;
+        this.path = path;
+    }
+
+    /**
+     * Go one record deeper.
+     *
+     * @param component a getter on the record at the end of the path so far, like {@code Address::city}
+     * @param <W> the type of the component
+     * @return a PathTransformation for the longer path
+     * @throws GetterException if the end of the path so far isn't declared as a record class, or the
+     * component cannot be transformed into a SerializableLambda
+     */
+    public <W> PathTransformation<S, W> then(Component<? super V, W> component) throws GetterException {
+        return new PathTransformation<>(wrapper, putFunc, slot, path == null ? null : path.then(component));
+    }
+
+    /**
+     * Complete the queuing of the transformation for the record.
+     * @param value the value to set the field at the end of the path to when transform is called.
+     * @return The original lens, for chaining.
+     */
+    public S as(V value) {
+        // a path through a name that isn't a component is ignored, like any other unknown key
+        if (path != null && path.resolved()) {
+            putFunc.put(slot, path, value);
+        }
+        return wrapper;
+    }
+}
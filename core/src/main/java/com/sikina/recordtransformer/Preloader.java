@@ -0,0 +1,180 @@
+package com.sikina.recordtransformer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Resolves the metadata of record types ahead of their first transform, and finds the record types
+ * to resolve. See {@link RecordTransformers#preload(Class[])}.
+ * Not for external use.
+ */
+final class Preloader {
+    /**
+     * The index the recordlens annotation processor writes: the binary name of every
+     * {@link Transformable} record in the build, one per line. The processor has its own copy of
+     * this path, as it doesn't depend on this module.
+     */
+    static final String INDEX = "META-INF/recordlens/records";
+
+    private Preloader() {
+    }
+
+    /**
+     * Resolve the metadata of the records, and of every record type their components are declared
+     * as, in parallel on the common ForkJoinPool.
+     *
+     * @param generated true to also generate a transformer class for each record
+     */
+    static void preload(Collection<Class<? extends Record>> recordClasses, boolean generated)
+        throws GetterException, ConstructorException {
+        Set<Class<? extends Record>> closure = new LinkedHashSet<>();
+        Deque<Class<? extends Record>> pending = new ArrayDeque<>(recordClasses);
+        while (!pending.isEmpty()) {
+            Class<? extends Record> recordClass = pending.pop();
+            if (closure.add(recordClass)) {
+                for (var component : recordClass.getRecordComponents()) {
+                    if (component.getType().isRecord()) {
+                        pending.add(component.getType().asSubclass(Record.class));
+                    }
+                }
+            }
+        }
+        closure.parallelStream().forEach(recordClass -> {
+            if (generated) {
+                GeneratedTransformer.preload(recordClass);
+            } else {
+                RecordMetadata.of(recordClass);
+            }
+        });
+    }
+
+    /**
+     * Preload each record on its own, leaving out the ones that can't be resolved, like records the
+     * library has no access to. Those would fail on first use too, if they are ever used.
+     *
+     * @return the records preloaded
+     */
+    static List<Class<? extends Record>> preloadResolvable(List<Class<? extends Record>> recordClasses) {
+        return recordClasses.parallelStream().filter(recordClass -> {
+            try {
+                preload(List.of(recordClass), false);
+                return true;
+            } catch (GetterException | ConstructorException e) {
+                return false;
+            }
+        }).toList();
+    }
+
+    /**
+     * @return the record types listed in every {@link #INDEX} the loader can see
+     */
+    static List<Class<? extends Record>> indexed(ClassLoader loader) throws GetterException {
+        Set<Class<? extends Record>> records = new LinkedHashSet<>();
+        try {
+            Enumeration<URL> indexes = loader.getResources(INDEX);
+            while (indexes.hasMoreElements()) {
+                try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(indexes.nextElement().openStream(), StandardCharsets.UTF_8)
+                )) {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        String name = line.strip();
+                        if (!name.isEmpty() && !name.startsWith("#")) {
+                            records.add(Class.forName(name, false, loader).asSubclass(Record.class));
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ReflectiveOperationException | ClassCastException e) {
+            // a stale index means the build is out of date, so don't carry on as if it were fine
+            throw new GetterException(e);
+        }
+        return List.copyOf(records);
+    }
+
+    /**
+     * @return the record types in a package and its subpackages, in every directory and jar the
+     * loader can see the package in
+     */
+    static List<Class<? extends Record>> scan(String packageName, ClassLoader loader) throws GetterException {
+        String path = packageName.replace('.', '/');
+        String prefix = packageName.isEmpty() ? "" : packageName + ".";
+        Set<String> classNames = new LinkedHashSet<>();
+        try {
+            // a jar only shows up here if it has an entry for the package's directory, as jars built by maven do
+            Enumeration<URL> roots = loader.getResources(path);
+            while (roots.hasMoreElements()) {
+                URL root = roots.nextElement();
+                if (root.getProtocol().equals("file")) {
+                    scanDirectory(Path.of(root.toURI()), prefix, classNames);
+                } else if (root.getProtocol().equals("jar")) {
+                    scanJar((JarURLConnection) root.openConnection(), prefix.replace('.', '/'), classNames);
+                }
+            }
+        } catch (IOException | URISyntaxException | UncheckedIOException e) {
+            throw new GetterException(e);
+        }
+        List<Class<? extends Record>> records = new ArrayList<>();
+        for (String className : classNames) {
+            Class<?> type = load(className, loader);
+            if (type != null && type.isRecord()) {
+                records.add(type.asSubclass(Record.class));
+            }
+        }
+        return records;
+    }
+
+    private static void scanDirectory(Path directory, String prefix, Set<String> classNames) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.filter(file -> file.toString().endsWith(".class")).forEach(file -> {
+                String relative = directory.relativize(file).toString().replace(file.getFileSystem().getSeparator(), ".");
+                classNames.add(prefix + relative.substring(0, relative.length() - ".class".length()));
+            });
+        }
+    }
+
+    private static void scanJar(JarURLConnection connection, String prefix, Set<String> classNames) throws IOException {
+        connection.setUseCaches(false);
+        try (JarFile jar = connection.getJarFile()) {
+            for (Enumeration<JarEntry> entries = jar.entries(); entries.hasMoreElements(); ) {
+                String name = entries.nextElement().getName();
+                if (name.startsWith(prefix) && name.endsWith(".class")) {
+                    classNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the class, without initializing it, or null if it can't be loaded, e.g. because a class
+     * it refers to isn't on the class path. Whatever else is in the package shouldn't stop the scan.
+     */
+    private static Class<?> load(String className, ClassLoader loader) {
+        if (className.endsWith("package-info") || className.endsWith("module-info")) {
+            return null;
+        }
+        try {
+            return Class.forName(className, false, loader);
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        }
+    }
+}
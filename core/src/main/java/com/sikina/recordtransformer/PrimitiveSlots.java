@@ -0,0 +1,98 @@
+package com.sikina.recordtransformer;
+
+/**
+ * Components of type int, long and double are stored unboxed, as the raw bits of a long
+ * (doubles via {@link Double#doubleToRawLongBits(double)}), and passed to the canonical constructor
+ * without ever being boxed. Every other component, including the other primitives, is stored as an
+ * Object.
+ *
+ * These helpers decide whether a value can go into a primitive slot and encode it. A value is only
+ * accepted when the constructor would accept it too, i.e. when it is the component's type or
+ * widens to it. Anything else is stored boxed, so that it fails in transform() like it always has.
+ * Not for external use.
+ */
+final class PrimitiveSlots {
+    static final int REFERENCE = 0;
+    static final int INT = 1;
+    static final int LONG = 2;
+    static final int DOUBLE = 3;
+
+    private PrimitiveSlots() {
+    }
+
+    static int kindOf(Class<?> type) {
+        if (type == int.class) {
+            return INT;
+        } else if (type == long.class) {
+            return LONG;
+        } else if (type == double.class) {
+            return DOUBLE;
+        }
+        return REFERENCE;
+    }
+
+    static boolean acceptsInt(int kind) {
+        return kind != REFERENCE;
+    }
+
+    static boolean acceptsLong(int kind) {
+        return kind == LONG || kind == DOUBLE;
+    }
+
+    static boolean acceptsDouble(int kind) {
+        return kind == DOUBLE;
+    }
+
+    static long fromInt(int kind, int value) {
+        return kind == DOUBLE ? Double.doubleToRawLongBits(value) : value;
+    }
+
+    static long fromLong(int kind, long value) {
+        return kind == DOUBLE ? Double.doubleToRawLongBits(value) : value;
+    }
+
+    static long fromDouble(double value) {
+        return Double.doubleToRawLongBits(value);
+    }
+
+    /**
+     * @return the value stored in a primitive slot, boxed as the component's wrapper type
+     */
+    static Object toBoxed(int kind, long bits) {
+        if (kind == INT) {
+            return (int) bits;
+        } else if (kind == LONG) {
+            return bits;
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * @return true if the boxed value unboxes and widens to the slot's type, the same rule
+     * {@code Constructor.newInstance} applies to its arguments
+     */
+    static boolean acceptsBoxed(int kind, Object value) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte || value instanceof Character) {
+            return acceptsInt(kind);
+        } else if (value instanceof Long) {
+            return acceptsLong(kind);
+        } else if (value instanceof Float || value instanceof Double) {
+            return acceptsDouble(kind);
+        }
+        return false;
+    }
+
+    /**
+     * Only call this if {@link #acceptsBoxed(int, Object)} returned true for the value.
+     */
+    static long fromBoxed(int kind, Object value) {
+        if (value instanceof Character c) {
+            return fromInt(kind, c);
+        } else if (value instanceof Long l) {
+            return fromLong(kind, l);
+        } else if (value instanceof Float || value instanceof Double) {
+            return fromDouble(((Number) value).doubleValue());
+        }
+        return fromInt(kind, ((Number) value).intValue());
+    }
+}
@@ -0,0 +1,10 @@
+package com.sikina.recordtransformer;
+
+/**
+ * Function interface used to pass a transformer's slot-indexed put to PartialTransformation
+ * Not for external use.
+ */
+@FunctionalInterface
+interface Put {
+    void put(int slot, Object value);
+}
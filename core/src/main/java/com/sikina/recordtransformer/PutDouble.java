@@ -0,0 +1,10 @@
+package com.sikina.recordtransformer;
+
+/**
+ * Function interface used to pass a transformer's slot-indexed double put to DoublePartialTransformation
+ * Not for external use.
+ */
+@FunctionalInterface
+interface PutDouble {
+    void put(int slot, double value);
+}
@@ -0,0 +1,10 @@
+package com.sikina.recordtransformer;
+
+/**
+ * Function interface used to pass a transformer's slot-indexed int put to IntPartialTransformation
+ * Not for external use.
+ */
+@FunctionalInterface
+interface PutInt {
+    void put(int slot, int value);
+}
@@ -0,0 +1,10 @@
+package com.sikina.recordtransformer;
+
+/**
+ * Function interface used to pass a transformer's slot-indexed long put to LongPartialTransformation
+ * Not for external use.
+ */
+@FunctionalInterface
+interface PutLong {
+    void put(int slot, long value);
+}
@@ -0,0 +1,10 @@
+package com.sikina.recordtransformer;
+
+/**
+ * Function interface used to pass a transformer's nested put to PathTransformation
+ * Not for external use.
+ */
+@FunctionalInterface
+interface PutPath {
+    void put(int slot, RecordPath path, Object value);
+}
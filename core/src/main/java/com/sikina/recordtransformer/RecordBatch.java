@@ -0,0 +1,337 @@
+package com.sikina.recordtransformer;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongUnaryOperator;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Many records of one type, taken apart into a column per component, so that a change to one
+ * component of every record is a loop over one array. Components of type int, long and double are
+ * held in primitive arrays, and updated with {@link #updateInt}, {@link #updateLong} and
+ * {@link #updateDouble} in loops the JIT can unroll and vectorize; every other component is held in
+ * an Object array.
+ *
+ * <pre>{@code
+ * RecordBatch<Trade> batch = RecordBatch.of(Trade.class, trades);
+ * batch.updateDouble(Trade::price, price -> price * 1.1)
+ *     .set(Trade::currency, "EUR");
+ * Trade[] repriced = batch.toArray();
+ * }</pre>
+ *
+ * Records are only built when they are asked for: one at a time with {@link #get(int)} or
+ * {@link #stream()}, or all at once with {@link #toArray()} and {@link #toList()}. Building the same
+ * record twice builds two records that are equal, and identical if the type is interned (see
+ * {@link RecordTransformers#intern(Class, int)}).
+ *
+ * Like a transformer, a batch changes in place and is not thread safe.
+ *
+ * @param <T> the type of the records in the batch
+ */
+public final class RecordBatch<T extends Record> {
+    private final RecordMetadata<T> metadata;
+    private final int size;
+    // one per component: an int[], long[] or double[] for components of those types, else an Object[]
+    private final Object[] columns;
+
+    private RecordBatch(RecordMetadata<T> metadata, Object[] records) throws GetterException {
+        this.metadata = metadata;
+        size = records.length;
+        columns = new Object[metadata.size()];
+        for (int c = 0; c < columns.length; c++) {
+            columns[c] = column(c, records);
+        }
+    }
+
+    /**
+     * @param recordClass the type of the records
+     * @param records the records to take apart. The array isn't kept, and can be reused.
+     * @param <T> the type of the records
+     * @return a batch holding the components of every record, in order
+     * @throws GetterException if a record is null, or a component can't be read
+     * @throws ConstructorException if the record's canonical constructor can't be found
+     */
+    public static <T extends Record> RecordBatch<T> of(Class<T> recordClass, T[] records)
+        throws GetterException, ConstructorException {
+        return new RecordBatch<>(RecordMetadata.of(recordClass), records);
+    }
+
+    /**
+     * @param recordClass the type of the records
+     * @param records the records to take apart. The list isn't kept.
+     * @param <T> the type of the records
+     * @return a batch holding the components of every record, in order
+     * @throws GetterException if a record is null, or a component can't be read
+     * @throws ConstructorException if the record's canonical constructor can't be found
+     */
+    public static <T extends Record> RecordBatch<T> of(Class<T> recordClass, List<? extends T> records)
+        throws GetterException, ConstructorException {
+        return new RecordBatch<>(RecordMetadata.of(recordClass), records.toArray());
+    }
+
+    /**
+     * Read one component of every record, one getter over the whole array at a time.
+     */
+    private Object column(int c, Object[] records) {
+        Class<T> recordClass = metadata.recordClass();
+        try {
+            switch (metadata.kind(c)) {
+                case PrimitiveSlots.INT -> {
+                    int[] ints = new int[size];
+                    for (int i = 0; i < size; i++) {
+                        ints[i] = (int) metadata.bits(c, recordClass.cast(records[i]));
+                    }
+                    return ints;
+                }
+                case PrimitiveSlots.LONG -> {
+                    long[] longs = new long[size];
+                    for (int i = 0; i < size; i++) {
+                        longs[i] = metadata.bits(c, recordClass.cast(records[i]));
+                    }
+                    return longs;
+                }
+                case PrimitiveSlots.DOUBLE -> {
+                    double[] doubles = new double[size];
+                    for (int i = 0; i < size; i++) {
+                        doubles[i] = Double.longBitsToDouble(metadata.bits(c, recordClass.cast(records[i])));
+                    }
+                    return doubles;
+                }
+                default -> {
+                    Object[] values = new Object[size];
+                    for (int i = 0; i < size; i++) {
+                        values[i] = metadata.getter(c).apply(recordClass.cast(records[i]));
+                    }
+                    return values;
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new GetterException(e);
+        }
+    }
+
+    /**
+     * @return the number of records in the batch
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Set a component of every record to the same value.
+     *
+     * @param component a getter on record T, like {@code MyRecord::name}
+     * @param value the new value for the component
+     * @param <V> the type of the component
+     * @return this, for chaining
+     * @throws GetterException if the component cannot be transformed into a SerializableLambda
+     * @throws ConstructorException if the value doesn't match the component's type
+     */
+    public <V> RecordBatch<T> set(Component<T, V> component, V value) throws GetterException, ConstructorException {
+        int c = metadata.indexOf(AccessorResolver.componentName(component));
+        if (c < 0) {
+            return this;
+        }
+        int kind = metadata.kind(c);
+        if (kind == PrimitiveSlots.REFERENCE) {
+            Arrays.fill((Object[]) columns[c], value);
+        } else if (!PrimitiveSlots.acceptsBoxed(kind, value)) {
+            throw mismatch(c);
+        } else if (kind == PrimitiveSlots.INT) {
+            Arrays.fill((int[]) columns[c], (int) PrimitiveSlots.fromBoxed(kind, value));
+        } else if (kind == PrimitiveSlots.LONG) {
+            Arrays.fill((long[]) columns[c], PrimitiveSlots.fromBoxed(kind, value));
+        } else {
+            Arrays.fill((double[]) columns[c], Double.longBitsToDouble(PrimitiveSlots.fromBoxed(kind, value)));
+        }
+        return this;
+    }
+
+    /**
+     * Replace a component of every record with a function of its value. For int, long and double
+     * components, the primitive versions of this method avoid boxing every value.
+     *
+     * @param component a getter on record T, like {@code MyRecord::name}
+     * @param function computes the new value of the component from the current one
+     * @param <V> the type of the component
+     * @return this, for chaining
+     * @throws GetterException if the component cannot be transformed into a SerializableLambda
+     * @throws ConstructorException if the function returns a value that doesn't match the
+     * component's type. The records before it have been updated.
+     */
+    public <V> RecordBatch<T> update(Component<T, V> component, UnaryOperator<V> function)
+        throws GetterException, ConstructorException {
+        int c = metadata.indexOf(AccessorResolver.componentName(component));
+        if (c < 0) {
+            return this;
+        }
+        //noinspection unchecked
+        UnaryOperator<Object> erased = (UnaryOperator<Object>) function;
+        int kind = metadata.kind(c);
+        if (kind == PrimitiveSlots.REFERENCE) {
+            Object[] values = (Object[]) columns[c];
+            for (int i = 0; i < size; i++) {
+                values[i] = erased.apply(values[i]);
+            }
+            return this;
+        }
+        for (int i = 0; i < size; i++) {
+            Object value = erased.apply(PrimitiveSlots.toBoxed(kind, bits(c, i)));
+            if (!PrimitiveSlots.acceptsBoxed(kind, value)) {
+                throw mismatch(c);
+            }
+            putBits(c, i, PrimitiveSlots.fromBoxed(kind, value));
+        }
+        return this;
+    }
+
+    /**
+     * Replace an int component of every record with a function of its value, without boxing.
+     *
+     * @param component a getter on record T, like {@code MyRecord::count}
+     * @param function computes the new value of the component from the current one
+     * @return this, for chaining
+     * @throws GetterException if the component cannot be transformed into a SerializableLambda
+     */
+    public RecordBatch<T> updateInt(Component<T, Integer> component, IntUnaryOperator function) throws GetterException {
+        int c = metadata.indexOf(AccessorResolver.componentName(component));
+        if (c >= 0 && metadata.kind(c) == PrimitiveSlots.INT) {
+            int[] ints = (int[]) columns[c];
+            for (int i = 0; i < size; i++) {
+                ints[i] = function.applyAsInt(ints[i]);
+            }
+        } else if (c >= 0) {
+            // an Integer component; null fails the same way it would unboxing it by hand
+            update(component, value -> function.applyAsInt(value));
+        }
+        return this;
+    }
+
+    /**
+     * Replace a long component of every record with a function of its value, without boxing.
+     *
+     * @param component a getter on record T, like {@code MyRecord::id}
+     * @param function computes the new value of the component from the current one
+     * @return this, for chaining
+     * @throws GetterException if the component cannot be transformed into a SerializableLambda
+     */
+    public RecordBatch<T> updateLong(Component<T, Long> component, LongUnaryOperator function) throws GetterException {
+        int c = metadata.indexOf(AccessorResolver.componentName(component));
+        if (c >= 0 && metadata.kind(c) == PrimitiveSlots.LONG) {
+            long[] longs = (long[]) columns[c];
+            for (int i = 0; i < size; i++) {
+                longs[i] = function.applyAsLong(longs[i]);
+            }
+        } else if (c >= 0) {
+            update(component, value -> function.applyAsLong(value));
+        }
+        return this;
+    }
+
+    /**
+     * Replace a double component of every record with a function of its value, without boxing.
+     *
+     * @param component a getter on record T, like {@code MyRecord::price}
+     * @param function computes the new value of the component from the current one
+     * @return this, for chaining
+     * @throws GetterException if the component cannot be transformed into a SerializableLambda
+     */
+    public RecordBatch<T> updateDouble(Component<T, Double> component, DoubleUnaryOperator function) throws GetterException {
+        int c = metadata.indexOf(AccessorResolver.componentName(component));
+        if (c >= 0 && metadata.kind(c) == PrimitiveSlots.DOUBLE) {
+            double[] doubles = (double[]) columns[c];
+            for (int i = 0; i < size; i++) {
+                doubles[i] = function.applyAsDouble(doubles[i]);
+            }
+        } else if (c >= 0) {
+            update(component, value -> function.applyAsDouble(value));
+        }
+        return this;
+    }
+
+    /**
+     * Build one record from the columns.
+     *
+     * @param index the position of the record in the batch
+     * @return a new record with the components at that position
+     * @throws IndexOutOfBoundsException if index is negative or not less than {@link #size()}
+     * @throws ConstructorException if the record's constructor throws
+     */
+    public T get(int index) throws ConstructorException {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size);
+        }
+        return build(index, new Object[columns.length], new long[columns.length]);
+    }
+
+    /**
+     * @return a new array with every record in the batch, built from the columns
+     * @throws ConstructorException if the record's constructor throws
+     */
+    public T[] toArray() throws ConstructorException {
+        //noinspection unchecked
+        T[] records = (T[]) Array.newInstance(metadata.recordClass(), size);
+        Object[] references = new Object[columns.length];
+        long[] bits = new long[columns.length];
+        for (int i = 0; i < size; i++) {
+            records[i] = build(i, references, bits);
+        }
+        return records;
+    }
+
+    /**
+     * @return an unmodifiable list with every record in the batch, built from the columns
+     * @throws ConstructorException if the record's constructor throws
+     */
+    public List<T> toList() throws ConstructorException {
+        return Collections.unmodifiableList(Arrays.asList(toArray()));
+    }
+
+    /**
+     * @return the records in the batch, each built from the columns as the stream reaches it. Updates
+     * made to the batch before the stream reaches a record are in that record.
+     */
+    public Stream<T> stream() {
+        // arguments aren't shared between records here, so the stream can be made parallel
+        return IntStream.range(0, size).mapToObj(i -> build(i, new Object[columns.length], new long[columns.length]));
+    }
+
+    private T build(int index, Object[] references, long[] bits) {
+        for (int c = 0; c < columns.length; c++) {
+            if (metadata.kind(c) == PrimitiveSlots.REFERENCE) {
+                references[c] = ((Object[]) columns[c])[index];
+            } else {
+                bits[c] = bits(c, index);
+            }
+        }
+        return metadata.construct(references, bits);
+    }
+
+    private long bits(int c, int index) {
+        return switch (metadata.kind(c)) {
+            case PrimitiveSlots.INT -> ((int[]) columns[c])[index];
+            case PrimitiveSlots.LONG -> ((long[]) columns[c])[index];
+            default -> Double.doubleToRawLongBits(((double[]) columns[c])[index]);
+        };
+    }
+
+    private void putBits(int c, int index, long value) {
+        switch (metadata.kind(c)) {
+            case PrimitiveSlots.INT -> ((int[]) columns[c])[index] = (int) value;
+            case PrimitiveSlots.LONG -> ((long[]) columns[c])[index] = value;
+            default -> ((double[]) columns[c])[index] = Double.longBitsToDouble(value);
+        }
+    }
+
+    private ConstructorException mismatch(int c) {
+        return new ConstructorException(new IllegalArgumentException(
+            "argument type mismatch for component " + metadata.name(c)
+        ));
+    }
+}
@@ -0,0 +1,85 @@
+package com.sikina.recordtransformer;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandleProxies;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Compiles record component accessors into getter functions that call the accessor directly
+ * instead of going through {@code Method.invoke}. {@link RecordMetadata} compiles these once per
+ * record class, and every transformer that wraps a record of that class shares them.
+ * Not for external use.
+ */
+final class RecordGetters {
+    private static final MethodType APPLY_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType APPLY_AS_LONG_TYPE = MethodType.methodType(long.class, Object.class);
+    private static final MethodType APPLY_AS_DOUBLE_TYPE = MethodType.methodType(double.class, Object.class);
+
+    private RecordGetters() {
+    }
+
+    /**
+     * Spins a {@code Function} that calls the accessor with a plain invokevirtual, the same way a
+     * method reference would. If the record's package won't let us define a lambda class in it
+     * (for example, a named module that doesn't open the package), fall back to a method handle.
+     */
+    static Function<Record, Object> compile(Method accessor) throws GetterException {
+        //noinspection unchecked
+        return compile(accessor, Function.class, "apply", APPLY_TYPE);
+    }
+
+    /**
+     * Like {@link #compile(Method)}, but for int and long accessors, whose value is returned as a
+     * long without boxing.
+     */
+    static ToLongFunction<Record> compileLong(Method accessor) throws GetterException {
+        //noinspection unchecked
+        return compile(accessor, ToLongFunction.class, "applyAsLong", APPLY_AS_LONG_TYPE);
+    }
+
+    /**
+     * Like {@link #compile(Method)}, but for double accessors, whose value is returned without boxing.
+     */
+    static ToDoubleFunction<Record> compileDouble(Method accessor) throws GetterException {
+        //noinspection unchecked
+        return compile(accessor, ToDoubleFunction.class, "applyAsDouble", APPLY_AS_DOUBLE_TYPE);
+    }
+
+    private static <F> F compile(Method accessor, Class<F> type, String name, MethodType erased)
+        throws GetterException {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(accessor.getDeclaringClass(), MethodHandles.lookup());
+            MethodHandle handle = lookup.unreflect(accessor);
+            // the instantiated type widens int to long, or boxes, to match the interface's return type
+            MethodType instantiated = handle.type().changeReturnType(erased.returnType().isPrimitive()
+                ? erased.returnType()
+                : handle.type().wrap().returnType());
+            return type.cast(LambdaMetafactory
+                .metafactory(lookup, name, MethodType.methodType(type), erased, handle, instantiated)
+                .getTarget()
+                .invoke());
+        } catch (Throwable ignored) {
+            return compileHandle(accessor, type, erased);
+        }
+    }
+
+    static Function<Record, Object> compileHandle(Method accessor) throws GetterException {
+        //noinspection unchecked
+        return compileHandle(accessor, Function.class, APPLY_TYPE);
+    }
+
+    static <F> F compileHandle(Method accessor, Class<F> type, MethodType erased) throws GetterException {
+        try {
+            MethodHandle getter = MethodHandles.lookup().unreflect(accessor).asType(erased);
+            return MethodHandleProxies.asInterfaceInstance(type, getter);
+        } catch (IllegalAccessException e) {
+            throw new GetterException(e);
+        }
+    }
+}
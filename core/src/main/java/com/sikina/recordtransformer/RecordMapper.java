@@ -0,0 +1,458 @@
+package com.sikina.recordtransformer;
+
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Builds records of one type from records of another, like a domain record from a DTO, or version
+ * N+1 of a record from version N. Build it once, then map as many records as you like:
+ *
+ * <pre>{@code
+ * RecordMapper<UserDto, User> toUser = RecordMapper.builder(UserDto.class, User.class)
+ *     .map(User::id, UserDto::userId)
+ *     .map(User::email, UserDto::email, Email::new)
+ *     .compute(User::name, dto -> dto.first() + " " + dto.last())
+ *     .set(User::version, 2)
+ *     .build();
+ * List<User> users = toUser.mapAll(dtos);
+ * }</pre>
+ *
+ * Every component of the target that isn't given a value takes the source component of the same
+ * name. Which source component or function feeds each target component is worked out when the
+ * mapper is built, from the getters and constructors shared by every transformer, so mapping a
+ * record is reading its components and calling the target's constructor. Int, long and double
+ * components that are copied as they are aren't boxed.
+ *
+ * Mappers are immutable and safe to share between threads, as long as the values and functions
+ * you give them are.
+ *
+ * @param <A> the type of the records mapped from
+ * @param <B> the type of the records mapped to
+ */
+public final class RecordMapper<A extends Record, B extends Record> {
+    // below this many records, a parallel map stops splitting and maps sequentially
+    private static final int SPLIT_THRESHOLD = 1024;
+
+    private static final int UNSET = 0;
+    private static final int COPY = 1;
+    private static final int COPY_BITS = 2;
+    private static final int CONSTANT = 3;
+    private static final int FUNCTION = 4;
+
+    private final RecordMetadata<A> source;
+    private final RecordMetadata<B> target;
+    private final int[] modes;
+    // the source slot for COPY and COPY_BITS
+    private final int[] sources;
+    private final Object[] constants;
+    private final long[] constantBits;
+    private final Function<A, Object>[] functions;
+
+    private RecordMapper(Builder<A, B> builder) throws ConstructorException {
+        source = builder.source;
+        target = builder.target;
+        int size = target.size();
+        modes = builder.modes.clone();
+        sources = builder.sources.clone();
+        constants = builder.constants.clone();
+        constantBits = new long[size];
+        functions = builder.functions.clone();
+        for (int i = 0; i < size; i++) {
+            if (modes[i] == UNSET) {
+                matchByName(i);
+            }
+            int kind = target.kind(i);
+            if (modes[i] == CONSTANT && kind != PrimitiveSlots.REFERENCE) {
+                // a constant that can't go in a primitive slot would fail on every record, so fail now
+                if (!PrimitiveSlots.acceptsBoxed(kind, constants[i])) {
+                    throw mismatch(i);
+                }
+                constantBits[i] = PrimitiveSlots.fromBoxed(kind, constants[i]);
+            }
+        }
+    }
+
+    /**
+     * Copy the source component with the same name as the i-th target component, if there is one the
+     * target's constructor is sure to accept.
+     */
+    private void matchByName(int i) throws ConstructorException {
+        int slot = source.indexOf(target.name(i));
+        if (slot < 0) {
+            throw new ConstructorException(new IllegalArgumentException(
+                "no value for component " + target.name(i) + " of " + target.recordClass().getName()
+                    + ": " + source.recordClass().getName() + " has no component of that name"
+            ));
+        }
+        if (!copyable(source.type(slot), target.type(i))) {
+            throw new ConstructorException(new IllegalArgumentException(
+                "component " + target.name(i) + " of " + target.recordClass().getName() + " is a "
+                    + target.type(i).getName() + ", but in " + source.recordClass().getName() + " it is a "
+                    + source.type(slot).getName() + "; map it with a converter"
+            ));
+        }
+        copy(source, slot, target, i, modes, sources, functions);
+    }
+
+    /**
+     * Set the i-th target component to be copied from a source slot, in the cheapest way its kind allows.
+     */
+    private static <A extends Record> void copy(RecordMetadata<A> source, int slot, RecordMetadata<?> target, int i,
+                                                int[] modes, int[] sources, Function<A, Object>[] functions) {
+        sources[i] = slot;
+        functions[i] = null;
+        if (target.kind(i) == PrimitiveSlots.REFERENCE) {
+            modes[i] = COPY;
+        } else if (source.kind(slot) == target.kind(i)) {
+            modes[i] = COPY_BITS;
+        } else {
+            // a widening, or an unboxing, goes through the boxed value
+            modes[i] = FUNCTION;
+            functions[i] = source.getter(slot);
+        }
+    }
+
+    /**
+     * @return true if every value of type from can be passed to a constructor parameter of type to,
+     * except for nulls unboxed to primitives
+     */
+    static boolean copyable(Class<?> from, Class<?> to) {
+        if (!to.isPrimitive()) {
+            return to.isAssignableFrom(MethodType.methodType(from).wrap().returnType());
+        }
+        Class<?> unboxed = MethodType.methodType(from).unwrap().returnType();
+        if (unboxed == to) {
+            return true;
+        }
+        int kind = PrimitiveSlots.kindOf(to);
+        if (kind == PrimitiveSlots.REFERENCE || !unboxed.isPrimitive()) {
+            return false;
+        }
+        // int, long and double slots take the primitives that widen to them, as the constructor would
+        return PrimitiveSlots.acceptsBoxed(kind, Array.get(Array.newInstance(unboxed, 1), 0));
+    }
+
+    /**
+     * @param sourceClass the type of the records to map from
+     * @param targetClass the type of the records to map to
+     * @param <A> the type of the records mapped from
+     * @param <B> the type of the records mapped to
+     * @return a builder for a mapper that copies every component of the target from the source
+     * component of the same name
+     * @throws GetterException thrown if either record's components can't be read
+     * @throws ConstructorException thrown if the target's canonical constructor can't be found
+     */
+    public static <A extends Record, B extends Record> Builder<A, B> builder(Class<A> sourceClass, Class<B> targetClass)
+        throws GetterException, ConstructorException {
+        return new Builder<>(RecordMetadata.of(sourceClass), RecordMetadata.of(targetClass));
+    }
+
+    /**
+     * @param rec the record to map
+     * @return a new record of the target type
+     * @throws GetterException thrown if reading a component of rec fails
+     * @throws ConstructorException thrown if a value doesn't match its component's type, or the
+     * target's constructor throws
+     */
+    public B map(A rec) throws GetterException, ConstructorException {
+        return map(rec, new Object[modes.length], new long[modes.length]);
+    }
+
+    /**
+     * Map every record in a list.
+     *
+     * @param records the records to map
+     * @return an unmodifiable list of the mapped records, in the same order
+     * @throws GetterException thrown if reading a component of a record fails
+     * @throws ConstructorException thrown if a record can't be constructed
+     */
+    public List<B> mapAll(List<A> records) throws GetterException, ConstructorException {
+        Object[] out = records.toArray();
+        mapInPlace(out, out, 0, out.length);
+        return unmodifiableList(out);
+    }
+
+    /**
+     * Map every record in an array.
+     *
+     * @param records the records to map. This array is not modified.
+     * @return a new array of the mapped records, in the same order
+     * @throws GetterException thrown if reading a component of a record fails
+     * @throws ConstructorException thrown if a record can't be constructed
+     */
+    public B[] mapAll(A[] records) throws GetterException, ConstructorException {
+        B[] out = newArray(records.length);
+        mapInPlace(records, out, 0, out.length);
+        return out;
+    }
+
+    /**
+     * Lazily map every record in a stream. A parallel stream is mapped in parallel.
+     *
+     * @param records the records to map
+     * @return a stream of the mapped records
+     */
+    public Stream<B> mapAll(Stream<A> records) {
+        return records.map(this::map);
+    }
+
+    /**
+     * Like {@link #mapAll(List)}, but large lists are split up and mapped in parallel on the common
+     * ForkJoinPool.
+     */
+    public List<B> mapParallel(List<A> records) throws GetterException, ConstructorException {
+        return mapParallel(records, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Like {@link #mapAll(List)}, but large lists are split up and mapped in parallel on pool.
+     */
+    public List<B> mapParallel(List<A> records, ForkJoinPool pool) throws GetterException, ConstructorException {
+        Object[] out = records.toArray();
+        pool.invoke(new MapRange(out, out, 0, out.length));
+        return unmodifiableList(out);
+    }
+
+    /**
+     * Like {@link #mapAll(Record[])}, but large arrays are split up and mapped in parallel on the
+     * common ForkJoinPool.
+     */
+    public B[] mapParallel(A[] records) throws GetterException, ConstructorException {
+        return mapParallel(records, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Like {@link #mapAll(Record[])}, but large arrays are split up and mapped in parallel on pool.
+     */
+    public B[] mapParallel(A[] records, ForkJoinPool pool) throws GetterException, ConstructorException {
+        B[] out = newArray(records.length);
+        pool.invoke(new MapRange(records, out, 0, out.length));
+        return out;
+    }
+
+    /**
+     * Map in[from, to) into out[from, to), sharing one set of constructor argument arrays. in and out
+     * may be the same array.
+     */
+    private void mapInPlace(Object[] in, Object[] out, int from, int to) {
+        Object[] references = new Object[modes.length];
+        long[] bits = new long[modes.length];
+        for (int i = from; i < to; i++) {
+            out[i] = map(source.recordClass().cast(in[i]), references, bits);
+        }
+    }
+
+    private B map(A rec, Object[] references, long[] bits) {
+        for (int i = 0; i < modes.length; i++) {
+            switch (modes[i]) {
+                case COPY -> references[i] = readValue(sources[i], rec);
+                case COPY_BITS -> bits[i] = readBits(sources[i], rec);
+                case CONSTANT -> {
+                    references[i] = constants[i];
+                    bits[i] = constantBits[i];
+                }
+                default -> {
+                    Object value = functions[i].apply(rec);
+                    int kind = target.kind(i);
+                    if (kind == PrimitiveSlots.REFERENCE) {
+                        references[i] = value;
+                    } else if (PrimitiveSlots.acceptsBoxed(kind, value)) {
+                        bits[i] = PrimitiveSlots.fromBoxed(kind, value);
+                    } else {
+                        throw mismatch(i);
+                    }
+                }
+            }
+        }
+        return target.construct(references, bits);
+    }
+
+    private long readBits(int slot, A rec) {
+        try {
+            return source.bits(slot, rec);
+        } catch (RuntimeException e) {
+            throw new GetterException(e);
+        }
+    }
+
+    private Object readValue(int slot, A rec) {
+        try {
+            return source.getter(slot).apply(rec);
+        } catch (RuntimeException e) {
+            throw new GetterException(e);
+        }
+    }
+
+    private ConstructorException mismatch(int slot) {
+        return new ConstructorException(new IllegalArgumentException(
+            "argument type mismatch for component " + target.name(slot)
+        ));
+    }
+
+    private B[] newArray(int length) {
+        //noinspection unchecked
+        return (B[]) Array.newInstance(target.recordClass(), length);
+    }
+
+    private static <T> List<T> unmodifiableList(Object[] records) {
+        //noinspection unchecked
+        return Collections.unmodifiableList((List<T>) Arrays.asList(records));
+    }
+
+    /**
+     * Splits an array in halves until the pieces are small enough to map sequentially.
+     */
+    private final class MapRange extends RecursiveAction {
+        private final Object[] in;
+        private final Object[] out;
+        private final int from;
+        private final int to;
+
+        MapRange(Object[] in, Object[] out, int from, int to) {
+            this.in = in;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                mapInPlace(in, out, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new MapRange(in, out, from, middle), new MapRange(in, out, middle, to));
+        }
+    }
+
+    /**
+     * Collects how each component of the target record gets its value. Components left alone take
+     * the source component of the same name. A later call for the same component replaces anything
+     * before it.
+     *
+     * @param <A> the type of the records mapped from
+     * @param <B> the type of the records mapped to
+     */
+    public static final class Builder<A extends Record, B extends Record> {
+        private final RecordMetadata<A> source;
+        private final RecordMetadata<B> target;
+        private final int[] modes;
+        private final int[] sources;
+        private final Object[] constants;
+        private final Function<A, Object>[] functions;
+
+        private Builder(RecordMetadata<A> source, RecordMetadata<B> target) {
+            this.source = source;
+            this.target = target;
+            modes = new int[target.size()];
+            sources = new int[target.size()];
+            constants = new Object[target.size()];
+            //noinspection unchecked
+            functions = new Function[target.size()];
+        }
+
+        /**
+         * Take a target component from a source component with another name.
+         *
+         * @param component a getter on the target, like {@code User::id}
+         * @param from a getter on the source, like {@code UserDto::userId}
+         * @param <V> the type of the target component
+         * @return this, for chaining
+         * @throws GetterException if either getter cannot be transformed into a SerializableLambda
+         */
+        public <V> Builder<A, B> map(Component<B, V> component, Component<A, ? extends V> from) throws GetterException {
+            int slot = target.indexOf(AccessorResolver.componentName(component));
+            int sourceSlot = source.indexOf(AccessorResolver.componentName(from));
+            if (slot >= 0 && sourceSlot >= 0) {
+                constants[slot] = null;
+                copy(source, sourceSlot, target, slot, modes, sources, functions);
+            }
+            return this;
+        }
+
+        /**
+         * Take a target component from a source component, converted by a function.
+         *
+         * @param component a getter on the target, like {@code User::email}
+         * @param from a getter on the source, like {@code UserDto::email}
+         * @param converter computes the target component's value from the source component's
+         * @param <U> the type of the source component
+         * @param <V> the type of the target component
+         * @return this, for chaining
+         * @throws GetterException if either getter cannot be transformed into a SerializableLambda
+         */
+        public <U, V> Builder<A, B> map(Component<B, V> component, Component<A, U> from, Function<? super U, ? extends V> converter)
+            throws GetterException {
+            int sourceSlot = source.indexOf(AccessorResolver.componentName(from));
+            if (sourceSlot < 0) {
+                return this;
+            }
+            Function<A, Object> getter = source.getter(sourceSlot);
+            //noinspection unchecked
+            Function<Object, Object> erased = (Function<Object, Object>) converter;
+            return function(component, rec -> erased.apply(getter.apply(rec)));
+        }
+
+        /**
+         * Compute a target component from the whole source record.
+         *
+         * @param component a getter on the target, like {@code User::name}
+         * @param function computes the target component's value from the source record
+         * @param <V> the type of the target component
+         * @return this, for chaining
+         * @throws GetterException if the getter cannot be transformed into a SerializableLambda
+         */
+        public <V> Builder<A, B> compute(Component<B, V> component, Function<? super A, ? extends V> function)
+            throws GetterException {
+            //noinspection unchecked
+            return function(component, (Function<A, Object>) function);
+        }
+
+        /**
+         * Give a target component the same value in every record.
+         *
+         * @param component a getter on the target, like {@code User::version}
+         * @param value the component's value
+         * @param <V> the type of the target component
+         * @return this, for chaining
+         * @throws GetterException if the getter cannot be transformed into a SerializableLambda
+         */
+        public <V> Builder<A, B> set(Component<B, V> component, V value) throws GetterException {
+            int slot = target.indexOf(AccessorResolver.componentName(component));
+            if (slot >= 0) {
+                modes[slot] = CONSTANT;
+                constants[slot] = value;
+                functions[slot] = null;
+            }
+            return this;
+        }
+
+        private Builder<A, B> function(Component<B, ?> component, Function<A, Object> function) {
+            int slot = target.indexOf(AccessorResolver.componentName(component));
+            if (slot >= 0) {
+                modes[slot] = FUNCTION;
+                constants[slot] = null;
+                functions[slot] = function;
+            }
+            return this;
+        }
+
+        /**
+         * @return a mapper with the mappings added so far. The builder can be reused afterwards.
+         * @throws ConstructorException if a target component has no value: it wasn't mapped, and the
+         * source has no component of the same name whose values the target's constructor accepts. Also
+         * if a fixed value can never be passed to the constructor, like a String for an int component.
+         */
+        public RecordMapper<A, B> build() throws ConstructorException {
+            return new RecordMapper<>(this);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.sikina.recordtransformer;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Everything a transformer needs to know about a record class: its component names, types and
+ * accessors, a compiled getter per component, and handles to the canonical constructor.
+ * This is resolved once per record class and shared by every transformer variant.
+ * Not for external use.
+ *
+ * @param <T> the type of the record being described
+ */
+final class RecordMetadata<T extends Record> {
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+    private static final MethodType SLOT_CONSTRUCTOR_TYPE =
+        MethodType.methodType(Object.class, Object[].class, long[].class);
+    private static final MethodHandle REFERENCE_ELEMENT = MethodHandles.arrayElementGetter(Object[].class);
+    private static final MethodHandle BITS_ELEMENT = MethodHandles.arrayElementGetter(long[].class);
+    private static final MethodHandle LONG_BITS_TO_DOUBLE;
+
+    static {
+        try {
+            LONG_BITS_TO_DOUBLE = MethodHandles.lookup().findStatic(
+                Double.class, "longBitsToDouble", MethodType.methodType(double.class, long.class)
+            );
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final ClassValue<RecordMetadata<?>> REGISTRY = new ClassValue<>() {
+        @Override
+        protected RecordMetadata<?> computeValue(Class<?> type) {
+            return new RecordMetadata<>(type.asSubclass(Record.class));
+        }
+    };
+
+    private final Class<T> recordClass;
+    private final String[] names;
+    private final Class<?>[] types;
+    private final int[] kinds;
+    private final Function<T, Object>[] getters;
+    private final ToLongFunction<T>[] longGetters;
+    private final ToDoubleFunction<T>[] doubleGetters;
+    private final Map<String, Integer> indexes;
+    private final MethodHandle constructor;
+    private final MethodHandle slotConstructor;
+    // resolved on first use; racing threads build equal paths, and the loser's is simply dropped
+    private final RecordPath[] paths;
+    private final int fingerprint;
+    // replaced as a whole when a comparison is configured, so transforms never see it half written
+    private volatile boolean[] compareWithEquals;
+    private final LongAdder performed = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    // cleared by the first lookup that reaches the metrics, which is reported as a cache miss
+    private final AtomicBoolean unseen = new AtomicBoolean(true);
+    private volatile InternTable<T> interned;
+
+    private RecordMetadata(Class<T> recordClass) throws GetterException, ConstructorException {
+        this.recordClass = recordClass;
+        // getRecordComponents returns the components in the order they appear in the canonical constructor
+        RecordComponent[] components = recordClass.getRecordComponents();
+        names = new String[components.length];
+        types = new Class<?>[components.length];
+        kinds = new int[components.length];
+        //noinspection unchecked
+        getters = new Function[components.length];
+        //noinspection unchecked
+        longGetters = new ToLongFunction[components.length];
+        //noinspection unchecked
+        doubleGetters = new ToDoubleFunction[components.length];
+        indexes = new HashMap<>();
+        boolean[] equalsSlots = new boolean[components.length];
+        for (int i = 0; i < components.length; i++) {
+            names[i] = components[i].getName();
+            types[i] = components[i].getType();
+            kinds[i] = PrimitiveSlots.kindOf(types[i]);
+            Method accessor = components[i].getAccessor();
+            //noinspection unchecked
+            getters[i] = (Function<T, Object>) (Function<?, Object>) RecordGetters.compile(accessor);
+            if (kinds[i] == PrimitiveSlots.DOUBLE) {
+                //noinspection unchecked
+                doubleGetters[i] = (ToDoubleFunction<T>) (ToDoubleFunction<?>) RecordGetters.compileDouble(accessor);
+            } else if (kinds[i] != PrimitiveSlots.REFERENCE) {
+                //noinspection unchecked
+                longGetters[i] = (ToLongFunction<T>) (ToLongFunction<?>) RecordGetters.compileLong(accessor);
+            }
+            indexes.put(names[i], i);
+            // the boxes of other primitives are rarely the same instance, so they are compared by value
+            equalsSlots[i] = types[i].isPrimitive();
+        }
+        compareWithEquals = equalsSlots;
+        MethodHandle canonical = canonicalConstructor(recordClass, types);
+        // spreading from an Object[] applies the same unboxing and widening rules as Constructor.newInstance
+        constructor = canonical
+            .asSpreader(Object[].class, types.length)
+            .asType(CONSTRUCTOR_TYPE);
+        slotConstructor = slotConstructor(canonical, types, kinds);
+        paths = new RecordPath[components.length];
+        StringBuilder shape = new StringBuilder();
+        for (int i = 0; i < components.length; i++) {
+            shape.append(types[i].getName()).append(' ').append(names[i]).append(';');
+        }
+        fingerprint = shape.toString().hashCode();
+    }
+
+    /**
+     * @param recordClass the class of the record
+     * @return the metadata for the record class, resolving it if this is the first time it is seen
+     * @throws GetterException if an accessor cannot be turned into a getter
+     * @throws ConstructorException if the canonical constructor cannot be found
+     */
+    static <T extends Record> RecordMetadata<T> of(Class<? extends Record> recordClass)
+        throws GetterException, ConstructorException {
+        // The registry holds metadata for every record type, so the type parameter is lost in storage
+        RecordMetadata<?> metadata = REGISTRY.get(recordClass);
+        if (Instrumentation.enabled()) {
+            boolean first = metadata.unseen.get() && metadata.unseen.compareAndSet(true, false);
+            Instrumentation.metrics().gettersLookedUp(recordClass, !first);
+        }
+        //noinspection unchecked
+        return (RecordMetadata<T>) metadata;
+    }
+
+    private static MethodHandle canonicalConstructor(Class<? extends Record> recordClass, Class<?>[] types)
+        throws ConstructorException {
+        try {
+            Constructor<?> constructor = recordClass.getDeclaredConstructor(types);
+            try {
+                return MethodHandles.privateLookupIn(recordClass, MethodHandles.lookup())
+                    .unreflectConstructor(constructor);
+            } catch (IllegalAccessException e) {
+                return MethodHandles.lookup().unreflectConstructor(constructor);
+            }
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ConstructorException(e);
+        }
+    }
+
+    /**
+     * Adapts the canonical constructor to take its arguments from two arrays indexed by component
+     * position: primitive slots from the long[], as raw bits, and everything else from the Object[].
+     * Primitive arguments are converted with plain casts, so they are never boxed.
+     */
+    private static MethodHandle slotConstructor(MethodHandle canonical, Class<?>[] types, int[] kinds) {
+        MethodHandle handle = canonical;
+        int[] arrays = new int[types.length];
+        for (int i = 0; i < types.length; i++) {
+            MethodHandle read;
+            if (kinds[i] == PrimitiveSlots.REFERENCE) {
+                read = MethodHandles.insertArguments(REFERENCE_ELEMENT, 1, i)
+                    .asType(MethodType.methodType(types[i], Object[].class));
+            } else {
+                read = MethodHandles.insertArguments(BITS_ELEMENT, 1, i);
+                read = kinds[i] == PrimitiveSlots.DOUBLE
+                    ? MethodHandles.filterReturnValue(read, LONG_BITS_TO_DOUBLE)
+                    : MethodHandles.explicitCastArguments(read, MethodType.methodType(types[i], long[].class));
+                arrays[i] = 1;
+            }
+            // replaces the i-th constructor parameter with the array that argument is read from
+            handle = MethodHandles.collectArguments(handle, i, read);
+        }
+        // then every Object[] parameter is bound to the first argument, and every long[] to the second
+        return MethodHandles.permuteArguments(handle.asType(handle.type().changeReturnType(Object.class)),
+            SLOT_CONSTRUCTOR_TYPE, arrays);
+    }
+
+    Class<T> recordClass() {
+        return recordClass;
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    String name(int index) {
+        return names[index];
+    }
+
+    Class<?> type(int index) {
+        return types[index];
+    }
+
+    /**
+     * @return one of the {@link PrimitiveSlots} kinds: whether the component is stored as an Object or
+     * as the bits of an int, long or double
+     */
+    int kind(int index) {
+        return kinds[index];
+    }
+
+    Function<T, Object> getter(int index) {
+        return getters[index];
+    }
+
+    /**
+     * Read a primitive component without boxing it.
+     *
+     * @param index the position of an int, long or double component
+     * @param rec the record to read from
+     * @return the component's value, encoded the way {@link PrimitiveSlots} stores it
+     */
+    long bits(int index, T rec) {
+        ToLongFunction<T> getter = longGetters[index];
+        return getter != null
+            ? getter.applyAsLong(rec)
+            : Double.doubleToRawLongBits(doubleGetters[index].applyAsDouble(rec));
+    }
+
+    /**
+     * @return the path that starts at a component, from which paths into records nested in it are resolved
+     */
+    RecordPath path(int index) {
+        RecordPath path = paths[index];
+        if (path == null) {
+            path = RecordPath.root(types[index]);
+            paths[index] = path;
+        }
+        return path;
+    }
+
+    /**
+     * Set how a reference component's queued values are compared with its current one. Primitive
+     * components are always compared by value, so this does nothing for them.
+     */
+    synchronized void compare(int index, Comparison comparison) {
+        if (types[index].isPrimitive()) {
+            return;
+        }
+        boolean[] next = compareWithEquals.clone();
+        next[index] = comparison == Comparison.EQUALS;
+        compareWithEquals = next;
+    }
+
+    /**
+     * @return true if value can stand in for current without changing the record, according to the
+     * component's {@link Comparison}
+     */
+    boolean same(int index, Object current, Object value) {
+        return current == value || (compareWithEquals[index] && Objects.equals(current, value));
+    }
+
+    /**
+     * Count a call to transform, and report it to the installed {@link TransformMetrics}.
+     *
+     * @param constructed true if it built a new record, false if it kept the current one
+     * @param start what {@link Instrumentation#start()} returned when the transform started
+     */
+    void counted(boolean constructed, long start) {
+        (constructed ? performed : skipped).increment();
+        Instrumentation.transformed(recordClass, constructed, start);
+    }
+
+    TransformCounts counts() {
+        return new TransformCounts(performed.sum(), skipped.sum());
+    }
+
+    /**
+     * Start interning the records built for this type in a new table, dropping the old one.
+     *
+     * @param capacity the table's size, or 0 to stop interning
+     */
+    void interning(int capacity) {
+        interned = capacity == 0 ? null : new InternTable<>(capacity);
+    }
+
+    /**
+     * @return a record equal to rec that was built before, if interning is on and one is still in the
+     * table, or else rec
+     */
+    T intern(T rec) {
+        InternTable<T> table = interned;
+        return table == null ? rec : table.intern(rec);
+    }
+
+    InternCounts internCounts() {
+        InternTable<T> table = interned;
+        return table == null ? new InternCounts(0, 0) : table.counts();
+    }
+
+    /**
+     * @return a hash of the component names and types, in order. Records on different machines with the
+     * same fingerprint almost certainly have the same components.
+     */
+    int fingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @param name the name of a record component
+     * @return the position of the component in the canonical constructor, or -1 if there is no such component
+     */
+    int indexOf(String name) {
+        Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Call the canonical constructor.
+     *
+     * @param args the constructor arguments, in component order
+     * @return the new record, or an equal one built before if the type is interned
+     * @throws ConstructorException if an argument doesn't match its component type or the constructor throws
+     */
+    T construct(Object[] args) throws ConstructorException {
+        Object created;
+        try {
+            created = constructor.invokeExact(args);
+        } catch (Throwable e) {
+            throw new ConstructorException(e);
+        }
+        return intern(recordClass.cast(created));
+    }
+
+    /**
+     * Call the canonical constructor without boxing int, long and double components.
+     *
+     * @param references the arguments for components stored as Objects, in component order
+     * @param bits the arguments for primitive slots, in component order, encoded as {@link PrimitiveSlots} does
+     * @return the new record, or an equal one built before if the type is interned
+     * @throws ConstructorException if an argument doesn't match its component type or the constructor throws
+     */
+    T construct(Object[] references, long[] bits) throws ConstructorException {
+        Object created;
+        try {
+            created = slotConstructor.invokeExact(references, bits);
+        } catch (Throwable e) {
+            throw new ConstructorException(e);
+        }
+        return intern(recordClass.cast(created));
+    }
+}
@@ -0,0 +1,409 @@
+package com.sikina.recordtransformer;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The updates queued in a {@link RecordTransformer}, in a form that can be sent to another process
+ * and applied to a record there. Only the updated components are included, so a patch for a wide
+ * record with one changed field is a few bytes.
+ *
+ * <pre>{@code
+ * RecordPatch<MyRecord> patch = transformer.patch();
+ * ByteBuffer out = patch.writeTo(ByteBuffer.allocate(patch.encodedSize())).flip();
+ * // ... on another node
+ * MyRecord updated = RecordPatch.read(MyRecord.class, in).applyTo(current);
+ * }</pre>
+ *
+ * The encoding is a fingerprint of the record's component names and types, the number of updates,
+ * and then for each update the component's index and a tagged value. Indexes and lengths are
+ * unsigned varints, and int, long and double values are written raw, without boxing. Values can be
+ * null, boxed primitives, Strings, enum constants, and records made of such values. Anything else
+ * can't be encoded.
+ *
+ * Patches are immutable and safe to share between threads.
+ *
+ * @param <T> the type of the record the patch applies to
+ */
+public final class RecordPatch<T extends Record> {
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte CHAR = 5;
+    private static final byte INT = 6;
+    private static final byte LONG = 7;
+    private static final byte FLOAT = 8;
+    private static final byte DOUBLE = 9;
+    private static final byte STRING = 10;
+    private static final byte ENUM = 11;
+    private static final byte RECORD = 12;
+
+    private final RecordMetadata<T> metadata;
+    private final int[] slots;
+    private final Object[] values;
+    // the values of int, long and double slots, encoded as PrimitiveSlots does, where unboxed is true
+    private final long[] bits;
+    private final boolean[] unboxed;
+
+    RecordPatch(RecordMetadata<T> metadata, int[] slots, Object[] values, long[] bits, boolean[] unboxed) {
+        this.metadata = metadata;
+        this.slots = slots;
+        this.values = values;
+        this.bits = bits;
+        this.unboxed = unboxed;
+    }
+
+    /**
+     * Decode a patch written by {@link #writeTo(ByteBuffer)}. The buffer's position is moved past it.
+     *
+     * @param recordClass the type of record the patch applies to
+     * @param in the encoded patch
+     * @param <T> the type of the record
+     * @return the decoded patch
+     * @throws IllegalArgumentException if the patch was written for a record with different components,
+     * or isn't a patch at all
+     * @throws java.nio.BufferUnderflowException if the buffer ends before the patch does
+     */
+    public static <T extends Record> RecordPatch<T> read(Class<T> recordClass, ByteBuffer in)
+        throws GetterException, ConstructorException {
+        RecordMetadata<T> metadata = RecordMetadata.of(recordClass);
+        int fingerprint = in.getInt();
+        if (fingerprint != metadata.fingerprint()) {
+            throw new IllegalArgumentException("patch was written for a different version of " + recordClass.getName());
+        }
+        int count = readVarint(in);
+        if (count < 0 || count > metadata.size()) {
+            throw new IllegalArgumentException("patch has " + count + " updates for " + metadata.size() + " components");
+        }
+        int[] slots = new int[count];
+        Object[] values = new Object[count];
+        long[] bits = new long[count];
+        boolean[] unboxed = new boolean[count];
+        for (int k = 0; k < count; k++) {
+            int slot = readVarint(in);
+            if (slot < 0 || slot >= metadata.size()) {
+                throw new IllegalArgumentException("patch updates component " + slot + " of " + metadata.size());
+            }
+            slots[k] = slot;
+            int kind = metadata.kind(slot);
+            byte tag = in.get();
+            if (kind != PrimitiveSlots.REFERENCE && tag == kindTag(kind)) {
+                // the raw bits go straight back into the primitive slot
+                unboxed[k] = true;
+                bits[k] = tag == INT ? in.getInt() : in.getLong();
+            } else {
+                values[k] = readValue(tag, metadata.type(slot), in);
+            }
+        }
+        return new RecordPatch<>(metadata, slots, values, bits, unboxed);
+    }
+
+    /**
+     * @return the number of components the patch updates
+     */
+    public int size() {
+        return slots.length;
+    }
+
+    /**
+     * @return the number of bytes {@link #writeTo(ByteBuffer)} will write
+     * @throws IllegalArgumentException if a value can't be encoded
+     */
+    public int encodedSize() {
+        int size = Integer.BYTES + varintSize(slots.length);
+        for (int k = 0; k < slots.length; k++) {
+            int slot = slots[k];
+            size += varintSize(slot) + 1;
+            if (unboxed[k]) {
+                size += metadata.kind(slot) == PrimitiveSlots.INT ? Integer.BYTES : Long.BYTES;
+            } else {
+                size += valueSize(values[k], metadata.type(slot), slot);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Encode the patch at the buffer's position, moving the position past it.
+     *
+     * @param out a buffer with at least {@link #encodedSize()} bytes remaining
+     * @return out, for chaining
+     * @throws IllegalArgumentException if a value can't be encoded
+     * @throws java.nio.BufferOverflowException if the buffer runs out of room
+     */
+    public ByteBuffer writeTo(ByteBuffer out) {
+        out.putInt(metadata.fingerprint());
+        writeVarint(out, slots.length);
+        for (int k = 0; k < slots.length; k++) {
+            int slot = slots[k];
+            writeVarint(out, slot);
+            if (!unboxed[k]) {
+                writeValue(out, values[k], metadata.type(slot), slot);
+            } else if (metadata.kind(slot) == PrimitiveSlots.INT) {
+                out.put(INT).putInt((int) bits[k]);
+            } else {
+                out.put(kindTag(metadata.kind(slot))).putLong(bits[k]);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @return the encoded patch
+     * @throws IllegalArgumentException if a value can't be encoded
+     */
+    public byte[] toBytes() {
+        byte[] bytes = new byte[encodedSize()];
+        writeTo(ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    /**
+     * Queue the patch's updates on a transformer, as if they had been made with withTypeUnsafe.
+     * Like any other update, they take effect when the transformer transforms.
+     *
+     * @param transformer the transformer to queue the updates on
+     * @return transformer, for chaining
+     */
+    public RecordTransformer<T> applyTo(RecordTransformer<T> transformer) {
+        for (int k = 0; k < slots.length; k++) {
+            if (unboxed[k]) {
+                transformer.putBits(slots[k], bits[k]);
+            } else {
+                transformer.put(slots[k], values[k]);
+            }
+        }
+        return transformer;
+    }
+
+    /**
+     * @param rec the record to patch
+     * @return the patched record, or rec itself if the patch doesn't change anything
+     * @throws GetterException thrown if reading a component of rec fails
+     * @throws ConstructorException thrown if a value doesn't match its component's type, or the
+     * record's constructor throws
+     */
+    public T applyTo(T rec) throws GetterException, ConstructorException {
+        return applyTo(new RecordTransformer<>(rec)).transform().rec();
+    }
+
+    private static byte kindTag(int kind) {
+        if (kind == PrimitiveSlots.INT) {
+            return INT;
+        }
+        return kind == PrimitiveSlots.LONG ? LONG : DOUBLE;
+    }
+
+    private static int valueSize(Object value, Class<?> type, int slot) {
+        if (value == null || value instanceof Boolean) {
+            return 0;
+        } else if (value instanceof Byte) {
+            return Byte.BYTES;
+        } else if (value instanceof Short || value instanceof Character) {
+            return Short.BYTES;
+        } else if (value instanceof Integer || value instanceof Float) {
+            return Integer.BYTES;
+        } else if (value instanceof Long || value instanceof Double) {
+            return Long.BYTES;
+        } else if (value instanceof String s) {
+            int length = utf8Length(s);
+            return varintSize(length) + length;
+        } else if (value instanceof Enum<?> e && type == e.getDeclaringClass()) {
+            int length = utf8Length(e.name());
+            return varintSize(length) + length;
+        } else if (value instanceof Record rec && type == rec.getClass()) {
+            RecordMetadata<Record> nested = RecordMetadata.of(rec.getClass());
+            int size = 0;
+            for (int i = 0; i < nested.size(); i++) {
+                size += 1 + valueSize(read(nested, i, rec), nested.type(i), i);
+            }
+            return size;
+        }
+        throw unsupported(value, slot);
+    }
+
+    private static void writeValue(ByteBuffer out, Object value, Class<?> type, int slot) {
+        if (value == null) {
+            out.put(NULL);
+        } else if (value instanceof Boolean z) {
+            out.put(z ? TRUE : FALSE);
+        } else if (value instanceof Byte b) {
+            out.put(BYTE).put(b);
+        } else if (value instanceof Short s) {
+            out.put(SHORT).putShort(s);
+        } else if (value instanceof Character c) {
+            out.put(CHAR).putChar(c);
+        } else if (value instanceof Integer i) {
+            out.put(INT).putInt(i);
+        } else if (value instanceof Long j) {
+            out.put(LONG).putLong(j);
+        } else if (value instanceof Float f) {
+            out.put(FLOAT).putFloat(f);
+        } else if (value instanceof Double d) {
+            out.put(DOUBLE).putDouble(d);
+        } else if (value instanceof String s) {
+            writeString(out.put(STRING), s);
+        } else if (value instanceof Enum<?> e && type == e.getDeclaringClass()) {
+            // by name rather than ordinal, so that adding a constant doesn't change what old patches mean
+            writeString(out.put(ENUM), e.name());
+        } else if (value instanceof Record rec && type == rec.getClass()) {
+            // a nested record is written whole, every component in order
+            out.put(RECORD);
+            RecordMetadata<Record> nested = RecordMetadata.of(rec.getClass());
+            for (int i = 0; i < nested.size(); i++) {
+                writeValue(out, read(nested, i, rec), nested.type(i), i);
+            }
+        } else {
+            throw unsupported(value, slot);
+        }
+    }
+
+    private static Object readValue(byte tag, Class<?> type, ByteBuffer in) {
+        switch (tag) {
+            case NULL: return null;
+            case FALSE: return false;
+            case TRUE: return true;
+            case BYTE: return in.get();
+            case SHORT: return in.getShort();
+            case CHAR: return in.getChar();
+            case INT: return in.getInt();
+            case LONG: return in.getLong();
+            case FLOAT: return in.getFloat();
+            case DOUBLE: return in.getDouble();
+            case STRING: return readString(in);
+            case ENUM:
+                if (!type.isEnum()) {
+                    throw new IllegalArgumentException("patch has an enum constant for a " + type.getName());
+                }
+                return enumConstant(type, readString(in));
+            case RECORD:
+                if (!type.isRecord()) {
+                    throw new IllegalArgumentException("patch has a record for a " + type.getName());
+                }
+                RecordMetadata<Record> nested = RecordMetadata.of(type.asSubclass(Record.class));
+                Object[] args = new Object[nested.size()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = readValue(in.get(), nested.type(i), in);
+                }
+                return nested.construct(args);
+            default:
+                throw new IllegalArgumentException("unknown value tag " + tag);
+        }
+    }
+
+    private static Object enumConstant(Class<?> type, String name) {
+        // Enum.valueOf needs a Class<E extends Enum<E>>, which a Class<?> can only become unchecked
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Object constant = Enum.valueOf((Class) type, name);
+        return constant;
+    }
+
+    private static Object read(RecordMetadata<Record> metadata, int slot, Record rec) {
+        try {
+            return metadata.getter(slot).apply(rec);
+        } catch (RuntimeException e) {
+            throw new GetterException(e);
+        }
+    }
+
+    private static IllegalArgumentException unsupported(Object value, int slot) {
+        return new IllegalArgumentException(
+            "can't encode a " + value.getClass().getName() + " for component " + slot
+        );
+    }
+
+    private static int varintSize(int value) {
+        // 7 bits per byte
+        return (38 - Integer.numberOfLeadingZeros(value | 1)) / 7;
+    }
+
+    private static void writeVarint(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    /**
+     * @return the length of s in UTF-8, counting unpaired surrogates as the '?' they are replaced with
+     */
+    private static int utf8Length(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Write s as UTF-8 straight into the buffer, without encoding it to a byte[] first.
+     */
+    private static void writeString(ByteBuffer out, String s) {
+        writeVarint(out, utf8Length(s));
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                out.put((byte) (0xF0 | cp >> 18))
+                    .put((byte) (0x80 | cp >> 12 & 0x3F))
+                    .put((byte) (0x80 | cp >> 6 & 0x3F))
+                    .put((byte) (0x80 | cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | c >> 12))
+                    .put((byte) (0x80 | c >> 6 & 0x3F))
+                    .put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarint(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String s;
+        if (in.hasArray()) {
+            s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return s;
+    }
+}
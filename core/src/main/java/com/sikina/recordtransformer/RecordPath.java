@@ -0,0 +1,110 @@
+package com.sikina.recordtransformer;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The resolved form of a path like {@code with(r::address).then(Address::city)}: for each record
+ * below the transformer's own, its metadata and the slot the path goes through.
+ *
+ * Paths are resolved once and cached. The root path for each component hangs off the record's
+ * {@link RecordMetadata}, and every path caches its children by component name, so evaluating the
+ * same {@code then} chain again is a couple of map lookups. Children are keyed by name rather than
+ * by lambda class so that the cache never keeps a caller's class loader alive.
+ * Not for external use.
+ */
+final class RecordPath {
+    private final Class<?> type;
+    private final RecordMetadata<?>[] metadata;
+    private final int[] slots;
+    private final boolean resolved;
+    private final Map<String, RecordPath> children = new ConcurrentHashMap<>();
+
+    private RecordPath(Class<?> type, RecordMetadata<?>[] metadata, int[] slots, boolean resolved) {
+        this.type = type;
+        this.metadata = metadata;
+        this.slots = slots;
+        this.resolved = resolved;
+    }
+
+    /**
+     * @param type the type of the component the path starts at
+     * @return a path that doesn't go below that component yet
+     */
+    static RecordPath root(Class<?> type) {
+        return new RecordPath(type, new RecordMetadata<?>[0], new int[0], true);
+    }
+
+    /**
+     * @param component a getter on the record at the end of this path
+     * @return this path, extended by one component
+     * @throws GetterException if the end of this path isn't a record class, or the getter cannot be
+     * transformed into a SerializableLambda
+     */
+    RecordPath then(Component<?, ?> component) throws GetterException {
+        String name = AccessorResolver.componentName(component);
+        RecordPath child = children.get(name);
+        if (child == null) {
+            child = children.computeIfAbsent(name, this::child);
+        }
+        return child;
+    }
+
+    private RecordPath child(String name) {
+        if (!resolved) {
+            return this;
+        }
+        if (!type.isRecord()) {
+            // the component is declared as an interface or Object, so its record class isn't known up front
+            throw new GetterException(new IllegalArgumentException(type.getName() + " is not a record class"));
+        }
+        RecordMetadata<?> next = RecordMetadata.of(type.asSubclass(Record.class));
+        int slot = next.indexOf(name);
+        RecordMetadata<?>[] childMetadata = Arrays.copyOf(metadata, metadata.length + 1);
+        childMetadata[metadata.length] = next;
+        int[] childSlots = Arrays.copyOf(slots, slots.length + 1);
+        childSlots[slots.length] = slot;
+        // like any other unknown key, an unknown name turns the update into a no-op
+        return slot < 0
+            ? new RecordPath(type, childMetadata, childSlots, false)
+            : new RecordPath(next.type(slot), childMetadata, childSlots, true);
+    }
+
+    /**
+     * @return false if a name on the path doesn't match a component, in which case updates through
+     * the path are ignored
+     */
+    boolean resolved() {
+        return resolved;
+    }
+
+    /**
+     * @return the number of records the path goes through below the transformer's own
+     */
+    int depth() {
+        return slots.length;
+    }
+
+    RecordMetadata<?> metadata(int level) {
+        return metadata[level];
+    }
+
+    int slot(int level) {
+        return slots[level];
+    }
+
+    /**
+     * Rebuild the records along the path with value at its end. Only the records on the path are
+     * built again; every other component, however deep, is reused as is.
+     *
+     * @param current the record at the start of the path
+     * @param value the new value for the component at the end of the path
+     * @return a new record to replace current with
+     */
+    Record rebuild(Object current, Object value) throws GetterException, ConstructorException {
+        NestedUpdate update = NestedUpdate.replacing(metadata[0], current);
+        update.put(this, 0, value);
+        return update.apply(null);
+    }
+}
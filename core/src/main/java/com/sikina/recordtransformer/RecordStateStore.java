@@ -0,0 +1,499 @@
+package com.sikina.recordtransformer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The current record of many keyed entities, like the state of every session or account, kept up to
+ * date by updates from any number of threads without a lock around the whole map:
+ *
+ * <pre>{@code
+ * RecordStateStore<String, Account> accounts = RecordStateStore
+ *     .builder(Account.class, (String id) -> new Account(id, 0, 0))
+ *     .shards(8)
+ *     .build();
+ * accounts.update("alice", t -> t.update(t.rec()::balance, balance -> balance + 10));
+ * Account alice = accounts.get("alice");
+ * }</pre>
+ *
+ * Keys are split between shards by hash, and each shard has one thread that applies its updates, so
+ * every key has a single writer and needs no locking. The thread takes every update waiting in its
+ * queue as one batch, and queues all of a key's updates in the batch on one {@link RecordTransformer},
+ * so that a burst of updates to one key builds one record rather than one each. Reads go straight to
+ * the published records and never wait for writers: {@link #get(Object)} returns the record as of the
+ * last batch applied.
+ *
+ * Updates to a key are applied in the order they were submitted, and are visible to readers soon
+ * after, but not immediately; {@link #flush()} waits for them. An update that throws is skipped and
+ * reported to the builder's error handler; the other updates in its batch still apply.
+ *
+ * Stores own their threads, so close them when done.
+ *
+ * @param <K> the type of the keys
+ * @param <T> the type of the records
+ */
+public final class RecordStateStore<K, T extends Record> implements AutoCloseable {
+    private static final int UPDATE = 0;
+    private static final int PUT = 1;
+    private static final int REMOVE = 2;
+    private static final int FLUSH = 3;
+    private static final int CLOSE = 4;
+
+    private static final AtomicInteger STORES = new AtomicInteger();
+
+    private record Event(int kind, Object key, Object value) {
+    }
+
+    private final Shard<K, T>[] shards;
+    private final Thread[] threads;
+    private volatile boolean closed;
+
+    private RecordStateStore(Builder<K, T> builder) {
+        //noinspection unchecked
+        shards = new Shard[builder.shards];
+        threads = new Thread[builder.shards];
+        ThreadFactory factory = builder.threadFactory;
+        if (factory == null) {
+            String name = "recordlens-store-" + STORES.incrementAndGet() + "-";
+            AtomicInteger count = new AtomicInteger();
+            factory = runnable -> {
+                Thread thread = new Thread(runnable, name + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard<>(builder);
+            threads[i] = factory.newThread(shards[i]);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * @param recordClass the type of the records
+     * @param initial builds the record of a key that has none yet, when the key is first updated
+     * @param <K> the type of the keys
+     * @param <T> the type of the records
+     * @return a builder for a store with a shard per available processor
+     * @throws GetterException if the record's components can't be read
+     * @throws ConstructorException if the record's canonical constructor can't be found
+     */
+    public static <K, T extends Record> Builder<K, T> builder(Class<T> recordClass, Function<? super K, ? extends T> initial)
+        throws GetterException, ConstructorException {
+        RecordMetadata.of(recordClass);
+        return new Builder<>(Objects.requireNonNull(initial, "initial"));
+    }
+
+    /**
+     * @param key a key
+     * @return the key's current record, or null if it has none
+     */
+    public T get(K key) {
+        return shard(key).states.get(key);
+    }
+
+    /**
+     * @return the number of keys with a record
+     */
+    public int size() {
+        int size = 0;
+        for (Shard<K, T> shard : shards) {
+            size += shard.states.size();
+        }
+        return size;
+    }
+
+    /**
+     * Queue an update to a key's record. The update is given a transformer holding the key's record,
+     * with the updates before it in the same batch already queued on it, and queues its own changes
+     * with {@code with} or {@code update}. It must not call transform or reset; the store transforms
+     * once all of the batch's updates to the key are queued.
+     *
+     * If the key has no record, it starts from the builder's initial record.
+     *
+     * @param key the key to update
+     * @param update queues changes on the transformer it is given
+     * @throws IllegalStateException if the store is closed
+     */
+    public void update(K key, Consumer<RecordTransformer<T>> update) {
+        submit(key, new Event(UPDATE, key, Objects.requireNonNull(update, "update")));
+    }
+
+    /**
+     * Queue the replacement of a key's record. Updates queued after this one apply to rec.
+     *
+     * @param key the key to set
+     * @param rec the key's new record
+     * @throws IllegalStateException if the store is closed
+     */
+    public void put(K key, T rec) {
+        submit(key, new Event(PUT, key, Objects.requireNonNull(rec, "rec")));
+    }
+
+    /**
+     * Queue the removal of a key's record. Updates queued after this one start from the initial record.
+     *
+     * @param key the key to remove
+     * @throws IllegalStateException if the store is closed
+     */
+    public void remove(K key) {
+        submit(key, new Event(REMOVE, key, null));
+    }
+
+    /**
+     * @return a future that completes once every update, put and remove queued before this call has
+     * been applied and its result can be read
+     * @throws IllegalStateException if the store is closed
+     */
+    public CompletableFuture<Void> flush() {
+        CompletableFuture<?>[] flushed = new CompletableFuture<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            flushed[i] = new CompletableFuture<Void>();
+            enqueue(shards[i], new Event(FLUSH, null, flushed[i]));
+        }
+        return CompletableFuture.allOf(flushed);
+    }
+
+    /**
+     * Apply everything queued so far, then stop the shards' threads. The records stay readable.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Shard<K, T> shard : shards) {
+            synchronized (shard) {
+                shard.queue.add(new Event(CLOSE, null, null));
+            }
+        }
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(K key, Event event) {
+        enqueue(shard(key), event);
+    }
+
+    private void enqueue(Shard<K, T> shard, Event event) {
+        // close queues its event under the same lock, once closed is set, so nothing that gets past
+        // the check can be queued behind it and never applied
+        synchronized (shard) {
+            if (closed) {
+                throw new IllegalStateException("the store is closed");
+            }
+            shard.queue.add(event);
+        }
+    }
+
+    private Shard<K, T> shard(K key) {
+        int h = key.hashCode();
+        return shards[Math.floorMod(h ^ (h >>> 16), shards.length)];
+    }
+
+    /**
+     * One writer thread's keys: a queue of events, and the published records.
+     */
+    private static final class Shard<K, T extends Record> implements Runnable {
+        /**
+         * A key's changes within one batch
+         */
+        private static final class Pending<T extends Record> {
+            private RecordTransformer<T> transformer;
+            private boolean present;
+            private boolean failed;
+        }
+
+        private final BlockingQueue<Event> queue = new LinkedBlockingQueue<>();
+        private final Map<K, T> states = new ConcurrentHashMap<>();
+        private final Function<? super K, ? extends T> initial;
+        private final BiConsumer<? super K, ? super Throwable> errors;
+        private final int batchSize;
+
+        // only touched by the shard's thread
+        private final List<Event> batch = new ArrayList<>();
+        private final Map<K, Pending<T>> pending = new HashMap<>();
+        private final ArrayDeque<Pending<T>> spare = new ArrayDeque<>();
+        private final List<CompletableFuture<Void>> flushes = new ArrayList<>();
+
+        Shard(Builder<K, T> builder) {
+            initial = builder.initial;
+            errors = builder.errors;
+            batchSize = builder.batchSize;
+        }
+
+        @Override
+        public void run() {
+            boolean open = true;
+            while (open) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    // only close stops a shard, so that queued updates aren't lost
+                    continue;
+                }
+                queue.drainTo(batch, batchSize - 1);
+                open = apply();
+                batch.clear();
+            }
+        }
+
+        /**
+         * Apply the batch: queue each key's updates on its transformer, then transform each key once.
+         *
+         * @return false if the store is closing
+         */
+        private boolean apply() {
+            boolean open = true;
+            for (Event event : batch) {
+                switch (event.kind()) {
+                    case UPDATE -> queue(event);
+                    case PUT -> {
+                        Pending<T> p = pending(key(event));
+                        if (!p.failed) {
+                            p.present = true;
+                            reset(p, record(event.value()));
+                        }
+                    }
+                    case REMOVE -> pending(key(event)).present = false;
+                    case FLUSH -> flushes.add(future(event.value()));
+                    default -> open = false;
+                }
+            }
+            for (Map.Entry<K, Pending<T>> entry : pending.entrySet()) {
+                publish(entry.getKey(), entry.getValue());
+            }
+            pending.clear();
+            for (CompletableFuture<Void> flush : flushes) {
+                flush.complete(null);
+            }
+            flushes.clear();
+            return open;
+        }
+
+        private void queue(Event event) {
+            K key = key(event);
+            Pending<T> p = pending(key);
+            if (p.failed) {
+                return;
+            }
+            try {
+                if (!p.present) {
+                    p.present = true;
+                    reset(p, initial.apply(key));
+                }
+                consumer(event.value()).accept(p.transformer);
+            } catch (Throwable e) {
+                // which of the key's updates failed is worked out by replaying them one at a time
+                p.failed = true;
+            }
+        }
+
+        private void publish(K key, Pending<T> p) {
+            if (!p.failed && !p.present) {
+                states.remove(key);
+            } else if (!p.failed) {
+                try {
+                    T next = p.transformer.transform().rec();
+                    if (states.get(key) != next) {
+                        states.put(key, next);
+                    }
+                } catch (Throwable e) {
+                    replay(key, p);
+                }
+            } else {
+                replay(key, p);
+            }
+            p.failed = false;
+            spare.push(p);
+        }
+
+        /**
+         * Apply the batch's events for a key one transform at a time, skipping the ones that throw.
+         */
+        private void replay(K key, Pending<T> p) {
+            T current = states.get(key);
+            for (Event event : batch) {
+                if (event.kind() > REMOVE || !key.equals(event.key())) {
+                    continue;
+                }
+                if (event.kind() == PUT) {
+                    current = record(event.value());
+                } else if (event.kind() == REMOVE) {
+                    current = null;
+                } else {
+                    try {
+                        reset(p, current == null ? initial.apply(key) : current);
+                        consumer(event.value()).accept(p.transformer);
+                        current = p.transformer.transform().rec();
+                    } catch (Throwable e) {
+                        report(key, e);
+                    }
+                }
+            }
+            if (current == null) {
+                states.remove(key);
+            } else {
+                states.put(key, current);
+            }
+        }
+
+        /**
+         * Tell the error handler about an update that threw. The shard's thread must outlive both.
+         */
+        private void report(K key, Throwable e) {
+            try {
+                errors.accept(key, e);
+            } catch (Throwable handlerFailure) {
+                try {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, handlerFailure);
+                } catch (Throwable ignored) {
+                    // nowhere left to report it
+                }
+            }
+        }
+
+        private Pending<T> pending(K key) {
+            Pending<T> p = pending.get(key);
+            if (p == null) {
+                p = spare.isEmpty() ? new Pending<>() : spare.pop();
+                T current = states.get(key);
+                p.present = current != null;
+                if (current != null) {
+                    reset(p, current);
+                }
+                pending.put(key, p);
+            }
+            return p;
+        }
+
+        private void reset(Pending<T> p, T rec) {
+            if (p.transformer == null) {
+                p.transformer = new RecordTransformer<>(rec);
+            } else {
+                p.transformer.reset(rec);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private K key(Event event) {
+            return (K) event.key();
+        }
+
+        @SuppressWarnings("unchecked")
+        private T record(Object value) {
+            return (T) value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Consumer<RecordTransformer<T>> consumer(Object value) {
+            return (Consumer<RecordTransformer<T>>) value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private CompletableFuture<Void> future(Object value) {
+            return (CompletableFuture<Void>) value;
+        }
+    }
+
+    /**
+     * Configures a {@link RecordStateStore}.
+     *
+     * @param <K> the type of the keys
+     * @param <T> the type of the records
+     */
+    public static final class Builder<K, T extends Record> {
+        private final Function<? super K, ? extends T> initial;
+        private int shards = Runtime.getRuntime().availableProcessors();
+        private int batchSize = 1024;
+        private ThreadFactory threadFactory;
+        private BiConsumer<? super K, ? super Throwable> errors = (key, e) -> {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        };
+
+        private Builder(Function<? super K, ? extends T> initial) {
+            this.initial = initial;
+        }
+
+        /**
+         * @param shards the number of shards, each with its own thread
+         * @return this, for chaining
+         * @throws IllegalArgumentException if shards is less than 1
+         */
+        public Builder<K, T> shards(int shards) {
+            if (shards < 1) {
+                throw new IllegalArgumentException("a store needs at least one shard: " + shards);
+            }
+            this.shards = shards;
+            return this;
+        }
+
+        /**
+         * @param batchSize the most events a shard applies in one batch. Larger batches coalesce more
+         * updates to hot keys, and make readers wait longer to see the first of them.
+         * @return this, for chaining
+         * @throws IllegalArgumentException if batchSize is less than 1
+         */
+        public Builder<K, T> batchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("batches need at least one event: " + batchSize);
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * @param threadFactory makes the shards' threads. By default they are daemon threads, one per shard.
+         * @return this, for chaining
+         */
+        public Builder<K, T> threadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = Objects.requireNonNull(threadFactory, "threadFactory");
+            return this;
+        }
+
+        /**
+         * @param errors told about every update that throws, on the shard's thread. By default they go
+         * to the thread's uncaught exception handler, as do exceptions the handler throws itself.
+         * @return this, for chaining
+         */
+        public Builder<K, T> errors(BiConsumer<? super K, ? super Throwable> errors) {
+            this.errors = Objects.requireNonNull(errors, "errors");
+            return this;
+        }
+
+        /**
+         * @return a new store, with its shards' threads started
+         */
+        public RecordStateStore<K, T> build() {
+            return new RecordStateStore<>(this);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.sikina.recordtransformer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * A reusable set of updates for one record type. Build it once, then apply it to as many records
+ * as you like:
+ *
+ * <pre>{@code
+ * RecordTransformation<MyRecord> restamp = RecordTransformation.builder(MyRecord.class)
+ *     .set(MyRecord::batch, 42)
+ *     .update(MyRecord::name, String::trim)
+ *     .build();
+ * List<MyRecord> restamped = restamp.applyAll(records);
+ * }</pre>
+ *
+ * Component names are resolved when the transformation is built, and the getters and constructor
+ * are the ones shared by every transformer for the record type, so applying a transformation is
+ * just reading the components that aren't being replaced and calling the constructor. There is no
+ * per-record transformer to create.
+ *
+ * Transformations are immutable and safe to share between threads, as long as the values and
+ * update functions you give them are.
+ *
+ * @param <T> the type of the record being transformed
+ */
+public final class RecordTransformation<T extends Record> {
+    // below this many records, a parallel apply stops splitting and transforms sequentially
+    private static final int SPLIT_THRESHOLD = 1024;
+
+    private static final int COPY = 0;
+    private static final int CONSTANT = 1;
+    private static final int FUNCTION = 2;
+
+    private final RecordMetadata<T> metadata;
+    private final int[] modes;
+    private final Object[] constants;
+    private final long[] constantBits;
+    private final UnaryOperator<Object>[] functions;
+    private final boolean identity;
+
+    private RecordTransformation(Builder<T> builder) throws ConstructorException {
+        metadata = builder.metadata;
+        modes = builder.modes.clone();
+        constants = builder.constants.clone();
+        constantBits = new long[modes.length];
+        functions = builder.functions.clone();
+        boolean unchanged = true;
+        for (int i = 0; i < modes.length; i++) {
+            unchanged &= modes[i] == COPY;
+            int kind = metadata.kind(i);
+            if (modes[i] == CONSTANT && kind != PrimitiveSlots.REFERENCE) {
+                // a constant that can't go in a primitive slot would fail on every record, so fail now
+                if (!PrimitiveSlots.acceptsBoxed(kind, constants[i])) {
+                    throw mismatch(i);
+                }
+                constantBits[i] = PrimitiveSlots.fromBoxed(kind, constants[i]);
+            }
+        }
+        identity = unchanged;
+    }
+
+    /**
+     * @param recordClass the type of record the transformation will apply to
+     * @param <T> the type of the record
+     * @return a builder for a transformation that doesn't change anything yet
+     * @throws GetterException thrown if the record's components can't be read
+     * @throws ConstructorException thrown if the record's canonical constructor can't be found
+     */
+    public static <T extends Record> Builder<T> builder(Class<T> recordClass) throws GetterException, ConstructorException {
+        return new Builder<>(RecordMetadata.of(recordClass));
+    }
+
+    /**
+     * @param rec the record to transform
+     * @return a new record with this transformation's updates applied. If the transformation has no
+     * updates, rec itself is returned.
+     * @throws GetterException thrown if reading a component of rec fails
+     * @throws ConstructorException thrown if an updated value doesn't match its component's type,
+     * or the record's constructor throws
+     */
+    public T apply(T rec) throws GetterException, ConstructorException {
+        if (identity) {
+            return rec;
+        }
+        return apply(rec, new Object[modes.length], new long[modes.length]);
+    }
+
+    /**
+     * Apply this transformation to every record in a list.
+     *
+     * @param records the records to transform
+     * @return an unmodifiable list of the transformed records, in the same order
+     * @throws GetterException thrown if reading a component of a record fails
+     * @throws ConstructorException thrown if a record can't be constructed
+     */
+    public List<T> applyAll(List<T> records) throws GetterException, ConstructorException {
+        Object[] out = records.toArray();
+        applyInPlace(out, 0, out.length);
+        return unmodifiableList(out);
+    }
+
+    /**
+     * Apply this transformation to every record in an array.
+     *
+     * @param records the records to transform. This array is not modified.
+     * @return a new array of the transformed records, in the same order
+     * @throws GetterException thrown if reading a component of a record fails
+     * @throws ConstructorException thrown if a record can't be constructed
+     */
+    public T[] applyAll(T[] records) throws GetterException, ConstructorException {
+        T[] out = records.clone();
+        applyInPlace(out, 0, out.length);
+        return out;
+    }
+
+    /**
+     * Lazily apply this transformation to every record in a stream. A parallel stream is
+     * transformed in parallel.
+     *
+     * @param records the records to transform
+     * @return a stream of the transformed records
+     */
+    public Stream<T> applyAll(Stream<T> records) {
+        return records.map(this::apply);
+    }
+
+    /**
+     * Like {@link #applyAll(List)}, but large lists are split up and transformed in parallel
+     * on the common ForkJoinPool.
+     */
+    public List<T> applyParallel(List<T> records) throws GetterException, ConstructorException {
+        return applyParallel(records, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Like {@link #applyAll(List)}, but large lists are split up and transformed in parallel on pool.
+     */
+    public List<T> applyParallel(List<T> records, ForkJoinPool pool) throws GetterException, ConstructorException {
+        Object[] out = records.toArray();
+        pool.invoke(new Apply(out, 0, out.length));
+        return unmodifiableList(out);
+    }
+
+    /**
+     * Like {@link #applyAll(Record[])}, but large arrays are split up and transformed in parallel
+     * on the common ForkJoinPool.
+     */
+    public T[] applyParallel(T[] records) throws GetterException, ConstructorException {
+        return applyParallel(records, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Like {@link #applyAll(Record[])}, but large arrays are split up and transformed in parallel on pool.
+     */
+    public T[] applyParallel(T[] records, ForkJoinPool pool) throws GetterException, ConstructorException {
+        T[] out = records.clone();
+        pool.invoke(new Apply(out, 0, out.length));
+        return out;
+    }
+
+    /**
+     * Transform records[from, to) in place, sharing one set of constructor argument arrays.
+     */
+    private void applyInPlace(Object[] records, int from, int to) {
+        if (identity) {
+            return;
+        }
+        Object[] references = new Object[modes.length];
+        long[] bits = new long[modes.length];
+        for (int i = from; i < to; i++) {
+            records[i] = apply(metadata.recordClass().cast(records[i]), references, bits);
+        }
+    }
+
+    private T apply(T rec, Object[] references, long[] bits) {
+        for (int i = 0; i < modes.length; i++) {
+            int mode = modes[i];
+            boolean primitive = metadata.kind(i) != PrimitiveSlots.REFERENCE;
+            if (mode == COPY) {
+                if (primitive) {
+                    bits[i] = readBits(i, rec);
+                } else {
+                    references[i] = readValue(i, rec);
+                }
+            } else if (mode == CONSTANT) {
+                if (primitive) {
+                    bits[i] = constantBits[i];
+                } else {
+                    references[i] = constants[i];
+                }
+            } else {
+                Object value = functions[i].apply(readValue(i, rec));
+                if (!primitive) {
+                    references[i] = value;
+                } else if (PrimitiveSlots.acceptsBoxed(metadata.kind(i), value)) {
+                    bits[i] = PrimitiveSlots.fromBoxed(metadata.kind(i), value);
+                } else {
+                    throw mismatch(i);
+                }
+            }
+        }
+        return metadata.construct(references, bits);
+    }
+
+    private long readBits(int slot, T rec) {
+        try {
+            return metadata.bits(slot, rec);
+        } catch (RuntimeException e) {
+            throw new GetterException(e);
+        }
+    }
+
+    private Object readValue(int slot, T rec) {
+        try {
+            return metadata.getter(slot).apply(rec);
+        } catch (RuntimeException e) {
+            throw new GetterException(e);
+        }
+    }
+
+    private ConstructorException mismatch(int slot) {
+        return new ConstructorException(new IllegalArgumentException(
+            "argument type mismatch for component " + metadata.name(slot)
+        ));
+    }
+
+    private static <T> List<T> unmodifiableList(Object[] records) {
+        //noinspection unchecked
+        return Collections.unmodifiableList((List<T>) Arrays.asList(records));
+    }
+
+    /**
+     * Splits an array in halves until the pieces are small enough to transform sequentially.
+     */
+    private final class Apply extends RecursiveAction {
+        private final Object[] records;
+        private final int from;
+        private final int to;
+
+        Apply(Object[] records, int from, int to) {
+            this.records = records;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                applyInPlace(records, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Apply(records, from, middle), new Apply(records, middle, to));
+        }
+    }
+
+    /**
+     * Collects the updates for a RecordTransformation. Updates to the same component are applied in
+     * the order they were added: a later set replaces anything before it, and a later update is
+     * applied to the result of everything before it.
+     *
+     * @param <T> the type of the record being transformed
+     */
+    public static final class Builder<T extends Record> {
+        private final RecordMetadata<T> metadata;
+        private final int[] modes;
+        private final Object[] constants;
+        private final UnaryOperator<Object>[] functions;
+
+        private Builder(RecordMetadata<T> metadata) {
+            this.metadata = metadata;
+            modes = new int[metadata.size()];
+            constants = new Object[metadata.size()];
+            //noinspection unchecked
+            functions = new UnaryOperator[metadata.size()];
+        }
+
+        /**
+         * Replace a component with a fixed value.
+         *
+         * @param component a getter on record T, like {@code MyRecord::name}
+         * @param value the new value for the component
+         * @param <V> the type of the component
+         * @return this, for chaining
+         * @throws GetterException if the component cannot be transformed into a SerializableLambda
+         */
+        public <V> Builder<T> set(Component<T, V> component, V value) throws GetterException {
+            return set(metadata.indexOf(AccessorResolver.componentName(component)), value);
+        }
+
+        /**
+         * Replace a component with a fixed value. This is not type safe: a value that doesn't
+         * match the component's type will explode when the transformation is applied (or built,
+         * for int, long and double components). Keys that don't name a component are ignored.
+         *
+         * @param key the name of the component to change
+         * @param value the new value for the component
+         * @return this, for chaining
+         */
+        public Builder<T> setTypeUnsafe(String key, Object value) {
+            return set(metadata.indexOf(key), value);
+        }
+
+        /**
+         * Replace a component with a function of its current value.
+         *
+         * @param component a getter on record T, like {@code MyRecord::name}
+         * @param function computes the new value of the component from the current one
+         * @param <V> the type of the component
+         * @return this, for chaining
+         * @throws GetterException if the component cannot be transformed into a SerializableLambda
+         */
+        public <V> Builder<T> update(Component<T, V> component, UnaryOperator<V> function) throws GetterException {
+            int slot = metadata.indexOf(AccessorResolver.componentName(component));
+            if (slot < 0) {
+                return this;
+            }
+            //noinspection unchecked
+            UnaryOperator<Object> erased = (UnaryOperator<Object>) function;
+            if (modes[slot] == COPY) {
+                functions[slot] = erased;
+            } else if (modes[slot] == CONSTANT) {
+                Object constant = constants[slot];
+                constants[slot] = null;
+                functions[slot] = ignored -> erased.apply(constant);
+            } else {
+                UnaryOperator<Object> previous = functions[slot];
+                functions[slot] = current -> erased.apply(previous.apply(current));
+            }
+            modes[slot] = FUNCTION;
+            return this;
+        }
+
+        private Builder<T> set(int slot, Object value) {
+            if (slot >= 0) {
+                modes[slot] = CONSTANT;
+                constants[slot] = value;
+                functions[slot] = null;
+            }
+            return this;
+        }
+
+        /**
+         * @return a transformation with the updates added so far. The builder can be reused afterwards.
+         * @throws ConstructorException if a fixed value can never be passed to the constructor, like
+         * a String for an int component
+         */
+        public RecordTransformation<T> build() throws ConstructorException {
+            return new RecordTransformation<>(this);
+        }
+    }
+}
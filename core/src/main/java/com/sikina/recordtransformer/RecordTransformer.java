@@ -0,0 +1,542 @@
+package com.sikina.recordtransformer;
+
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+/**
+ * A wrapper that provides an API for making transformations to an immutable record object.
+ *
+ * Note: the record you are wrapping must be accessible (public).
+ * Transformers are not thread safe; to share a record between threads, use {@link ConcurrentRecordTransformer}.
+ * @param <T> the type of the record being wrapped.
+ */
+public class RecordTransformer<T extends Record> implements Transformer<T> {
+    private T rec;
+    private final RecordMetadata<T> metadata;
+    // allocated on the first update, so transformers that are only read from stay small
+    private UpdateBuffer updates;
+    // lazy transformers only: the updates transformed since rec was last built, applied on the next read
+    private final boolean lazy;
+    private UpdateBuffer folded;
+    // constructor arguments, reused by every transform: Objects for reference components, bits for primitive slots
+    private Object[] references;
+    private long[] bits;
+
+    /**
+     * Wrapping a record is cheap: the component names, getters and constructor are resolved the first time
+     * a record class is seen and shared by every transformer after that, and the update buffers are only
+     * allocated once something is updated. To transform a stream of records of the same type without
+     * allocating a transformer for each one, {@link #reset(Record)} one transformer instead, or use
+     * {@link RecordTransformers#threadLocal(Record)}.
+     *
+     * @param rec the record to transform
+     * @throws GetterException thrown if the wrapper can't get record components from rec
+     */
+    public RecordTransformer(T rec) throws GetterException {
+        this(rec, false);
+    }
+
+    /**
+     * @param lazy true to fold transforms into the queued state and only build the record when it is
+     * read, see {@link RecordTransformers#lazy(Record)}
+     */
+    RecordTransformer(T rec, boolean lazy) throws GetterException {
+        this.rec = rec;
+        this.lazy = lazy;
+        // component names, getters and the canonical constructor are resolved once per record class
+        // the getters are used to get old values in transform
+        metadata = RecordMetadata.of(rec.getClass());
+    }
+
+    /**
+     * Start over with another record of the same type, dropping any updates that haven't been transformed.
+     * The transformer keeps its buffers, so transforming one record after another this way only allocates
+     * the new records.
+     *
+     * @param rec the record to transform next
+     * @return this, for chaining
+     * @throws IllegalArgumentException if rec isn't of the class this transformer was created for
+     */
+    public RecordTransformer<T> reset(T rec) {
+        if (rec.getClass() != metadata.recordClass()) {
+            throw new IllegalArgumentException(
+                "can't reset a transformer for " + metadata.recordClass().getName() + " to a " + rec.getClass().getName()
+            );
+        }
+        this.rec = rec;
+        if (updates != null) {
+            updates.clear();
+        }
+        if (folded != null) {
+            folded.clear();
+        }
+        return this;
+    }
+
+    /**
+     * @return Returns the current record. A lazy transformer builds it first, if it has been transformed
+     * since the last time it was read.
+     * @throws ConstructorException if a lazy transformer can't build the record, for the reasons
+     * {@link #transform()} gives. The transforms since the last read are dropped.
+     */
+    @Override
+    public T rec() {
+        if (folded != null && !folded.isEmpty()) {
+            build();
+        }
+        return rec;
+    }
+
+    /**
+     * Build the record from the folded updates, as an eager transform would have, leaving any updates
+     * queued since the last transform queued.
+     */
+    private void build() {
+        UpdateBuffer queued = updates;
+        updates = folded;
+        folded = null;
+        try {
+            transformNow();
+        } finally {
+            folded = updates;
+            updates = queued;
+        }
+    }
+
+    /**
+     * Move the queued updates into the folded ones, evaluating nested updates against the folded value
+     * of their field, so that the queue is empty again as after an eager transform.
+     *
+     * Nested records are built here rather than when the record is, since they apply to the folded
+     * value as of this transform. If one fails, none of the queued updates are folded, and they are
+     * dropped as an eager transform would drop them.
+     */
+    private void fold() {
+        if (updates == null || updates.isEmpty()) {
+            return;
+        }
+        try {
+            for (int i = 0; i < metadata.size(); i++) {
+                if (updates.isDirty(i) && !updates.hasBits(i)) {
+                    materialize(i);
+                }
+            }
+            if (folded == null) {
+                folded = new UpdateBuffer(metadata.size());
+            }
+            for (int i = 0; i < metadata.size(); i++) {
+                if (!updates.isDirty(i)) {
+                    continue;
+                }
+                if (updates.hasBits(i)) {
+                    folded.putBits(i, updates.getBits(i));
+                } else {
+                    folded.put(i, updates.get(i));
+                }
+            }
+        } finally {
+            updates.clear();
+        }
+    }
+
+    /**
+     * Lazily changes the field referenced by the getter to the new value.
+     * This value change will not be reflected in rec() until you call transform().
+     *
+     * This process happens in two steps - @{code with(getter).as(newValue)} in order to make type
+     * checking work. If you call @{code with} without calling @{code as} afterwards, nothing will happen.
+     *
+     * @param getter A getter on record T - used to enforce type checking and reference the field being changed
+     * @param <V> The type of the field being changed
+     * @return PartialTransformation curried with this lens and the key from this getter.
+     * @throws GetterException if the getter cannot be transformed into a SerializableLambda
+     */
+    public <V> PartialTransformation<RecordTransformer<T>, V> with(Accessor<V> getter) throws GetterException {
+        // the name is resolved with reflection the first time a getter's lambda class is seen, then cached
+        return new PartialTransformation<>(
+            this, this::put, metadata.indexOf(AccessorResolver.componentName(getter)), metadata, this::putPath
+        );
+    }
+
+    /**
+     * The same as {@link #with(Accessor)}, with an unbound getter like {@code MyRecord::name} that doesn't
+     * need the current record to name the field. For a lazy transformer (see
+     * {@link RecordTransformers#lazy(Record)}), this avoids the read, and so the build, that
+     * {@code with(t.rec()::name)} makes.
+     *
+     * @param component A getter on record T, like {@code MyRecord::name}
+     * @param <V> The type of the field being changed
+     * @return PartialTransformation curried with this lens and the key from this getter.
+     * @throws GetterException if the getter cannot be transformed into a SerializableLambda
+     */
+    public <V> PartialTransformation<RecordTransformer<T>, V> with(Component<T, V> component) throws GetterException {
+        return new PartialTransformation<>(
+            this, this::put, metadata.indexOf(AccessorResolver.componentName(component)), metadata, this::putPath
+        );
+    }
+
+    /**
+     * The int counterpart of {@link #with(Accessor)}. The value is stored without boxing, so updating an
+     * int, long or double component this way doesn't allocate.
+     *
+     * @param getter An int getter on record T
+     * @return IntPartialTransformation curried with this lens and the key from this getter.
+     * @throws GetterException if the getter cannot be transformed into a SerializableLambda
+     */
+    public IntPartialTransformation<RecordTransformer<T>> withInt(IntAccessor getter) throws GetterException {
+        return new IntPartialTransformation<>(this, this::putInt, metadata.indexOf(AccessorResolver.componentName(getter)));
+    }
+
+    /**
+     * The long counterpart of {@link #with(Accessor)}. The value is stored without boxing, so updating a
+     * long or double component this way doesn't allocate.
+     *
+     * @param getter A long getter on record T
+     * @return LongPartialTransformation curried with this lens and the key from this getter.
+     * @throws GetterException if the getter cannot be transformed into a SerializableLambda
+     */
+    public LongPartialTransformation<RecordTransformer<T>> withLong(LongAccessor getter) throws GetterException {
+        return new LongPartialTransformation<>(this, this::putLong, metadata.indexOf(AccessorResolver.componentName(getter)));
+    }
+
+    /**
+     * The double counterpart of {@link #with(Accessor)}. The value is stored without boxing, so updating a
+     * double component this way doesn't allocate.
+     *
+     * @param getter A double getter on record T
+     * @return DoublePartialTransformation curried with this lens and the key from this getter.
+     * @throws GetterException if the getter cannot be transformed into a SerializableLambda
+     */
+    public DoublePartialTransformation<RecordTransformer<T>> withDouble(DoubleAccessor getter) throws GetterException {
+        return new DoublePartialTransformation<>(this, this::putDouble, metadata.indexOf(AccessorResolver.componentName(getter)));
+    }
+
+    /**
+     * Lazily changes the field referenced by the getter to the result of applying function to it.
+     * This value change will not be reflected in rec() until you call transform().
+     *
+     * The function sees the value the field will have in the next record: the value already queued for it
+     * if there is one, otherwise the current record's. So {@code with(rec::a).as(1)} followed by
+     * {@code update(rec::a, a -> a + 1)} leaves 2 queued, and any number of withs and updates still build
+     * only one record when you call transform().
+     *
+     * @param getter A getter on record T - used to enforce type checking and reference the field being changed
+     * @param function computes the field's new value from its queued value
+     * @param <V> The type of the field being changed
+     * @return this, for chaining
+     * @throws GetterException if the getter cannot be transformed into a SerializableLambda, or the
+     * current value of the field can't be read
+     */
+    public <V> RecordTransformer<T> update(Accessor<V> getter, UnaryOperator<V> function) throws GetterException {
+        return update(metadata.indexOf(AccessorResolver.componentName(getter)), function);
+    }
+
+    /**
+     * The same as {@link #update(Accessor, UnaryOperator)}, with an unbound getter like {@code MyRecord::name}.
+     *
+     * @param component A getter on record T, like {@code MyRecord::name}
+     * @param function computes the field's new value from its queued value
+     * @param <V> The type of the field being changed
+     * @return this, for chaining
+     * @throws GetterException if the getter cannot be transformed into a SerializableLambda, or the
+     * current value of the field can't be read
+     */
+    public <V> RecordTransformer<T> update(Component<T, V> component, UnaryOperator<V> function) throws GetterException {
+        return update(metadata.indexOf(AccessorResolver.componentName(component)), function);
+    }
+
+    private <V> RecordTransformer<T> update(int slot, UnaryOperator<V> function) {
+        if (slot >= 0) {
+            //noinspection unchecked
+            put(slot, function.apply((V) queued(slot)));
+        }
+        return this;
+    }
+
+    /**
+     * Lazily changes the field referenced by the key to the new value.
+     * This change will not be reflected in rec() until you call transform().
+     *
+     * This is not type safe. If you try to add a value with a type that cannot be matched to
+     * the type of the corresponding field, things will explode when you call transform.
+     * This used to be much faster than with, but with now caches the field name for each Accessor,
+     * so after the first call for a given getter the two cost about the same.
+     *
+     * @param key the name of the field to change
+     * @param value the value to change that field to
+     * @return this, for chaining
+     */
+    @Override
+    public RecordTransformer<T> withTypeUnsafe(String key, Object value) {
+        put(metadata.indexOf(key), value);
+        return this;
+    }
+
+    /**
+     * The same as {@link #withTypeUnsafe(String, Object)}, except the value is not boxed if the component
+     * is an int, long or double.
+     */
+    @Override
+    public RecordTransformer<T> withInt(String key, int value) {
+        putInt(metadata.indexOf(key), value);
+        return this;
+    }
+
+    /**
+     * The same as {@link #withTypeUnsafe(String, Object)}, except the value is not boxed if the component
+     * is a long or double.
+     */
+    @Override
+    public RecordTransformer<T> withLong(String key, long value) {
+        putLong(metadata.indexOf(key), value);
+        return this;
+    }
+
+    /**
+     * The same as {@link #withTypeUnsafe(String, Object)}, except the value is not boxed if the component
+     * is a double.
+     */
+    @Override
+    public RecordTransformer<T> withDouble(String key, double value) {
+        putDouble(metadata.indexOf(key), value);
+        return this;
+    }
+
+    /**
+     * Export the updates queued so far, to be applied to a record somewhere else. The updates stay
+     * queued here.
+     *
+     * @return a patch with the value queued for every updated field
+     * @throws GetterException if a field with nested updates can't be read
+     */
+    public RecordPatch<T> patch() throws GetterException {
+        int count = 0;
+        int[] slots = new int[metadata.size()];
+        for (int i = 0; updates != null && i < slots.length; i++) {
+            if (updates.isDirty(i)) {
+                slots[count++] = i;
+            }
+        }
+        Object[] values = new Object[count];
+        long[] patchBits = new long[count];
+        boolean[] unboxed = new boolean[count];
+        for (int k = 0; k < count; k++) {
+            int slot = slots[k];
+            unboxed[k] = updates.hasBits(slot);
+            if (unboxed[k]) {
+                patchBits[k] = updates.getBits(slot);
+            } else {
+                values[k] = materialize(slot);
+            }
+        }
+        return new RecordPatch<>(metadata, Arrays.copyOf(slots, count), values, patchBits, unboxed);
+    }
+
+    /**
+     * Queue a value for the field at slot. Slots that aren't int, long or double, and values that don't
+     * unbox to them, are queued the same way withTypeUnsafe queues them.
+     */
+    void put(int slot, Object value) {
+        // keys that don't name a component have never had any effect on transform
+        if (slot < 0) {
+            return;
+        }
+        int kind = metadata.kind(slot);
+        if (kind != PrimitiveSlots.REFERENCE && PrimitiveSlots.acceptsBoxed(kind, value)) {
+            updates().putBits(slot, PrimitiveSlots.fromBoxed(kind, value));
+        } else {
+            updates().put(slot, value);
+        }
+    }
+
+    /**
+     * Queue the bits of an int, long or double value, encoded for the field at slot as {@link PrimitiveSlots} does.
+     */
+    void putBits(int slot, long value) {
+        updates().putBits(slot, value);
+    }
+
+    private void putPath(int slot, RecordPath path, Object value) {
+        // the nested updates are kept in the slot until transform, so updates under one field fuse too
+        NestedUpdate.in(updates(), slot, path.metadata(0)).put(path, 0, value);
+    }
+
+    private void putInt(int slot, int value) {
+        if (slot >= 0 && PrimitiveSlots.acceptsInt(metadata.kind(slot))) {
+            updates().putBits(slot, PrimitiveSlots.fromInt(metadata.kind(slot), value));
+        } else {
+            // reference components and mismatched primitives get the same treatment as withTypeUnsafe
+            put(slot, value);
+        }
+    }
+
+    private void putLong(int slot, long value) {
+        if (slot >= 0 && PrimitiveSlots.acceptsLong(metadata.kind(slot))) {
+            updates().putBits(slot, PrimitiveSlots.fromLong(metadata.kind(slot), value));
+        } else {
+            put(slot, value);
+        }
+    }
+
+    private void putDouble(int slot, double value) {
+        if (slot >= 0 && PrimitiveSlots.acceptsDouble(metadata.kind(slot))) {
+            updates().putBits(slot, PrimitiveSlots.fromDouble(value));
+        } else {
+            put(slot, value);
+        }
+    }
+
+    private Object queued(int slot) {
+        if (updates != null && updates.isDirty(slot)) {
+            return updates.hasBits(slot)
+                ? PrimitiveSlots.toBoxed(metadata.kind(slot), updates.getBits(slot))
+                : materialize(slot);
+        }
+        return getValueFromFolded(slot);
+    }
+
+    /**
+     * @return the value queued for a reference slot, building it first if it is a nested update
+     */
+    private Object materialize(int slot) {
+        Object queued = updates.get(slot);
+        if (queued instanceof NestedUpdate nested) {
+            queued = nested.apply(nested.replacing() ? null : getValueFromFolded(slot));
+            updates.put(slot, queued);
+        }
+        return queued;
+    }
+
+    private UpdateBuffer updates() {
+        if (updates == null) {
+            updates = new UpdateBuffer(metadata.size());
+        }
+        return updates;
+    }
+
+    /**
+     * Replace the underlying record with a new record with updates made to the fields previously
+     * specified with @{code with} and @{code withTypeUnsafe}.
+     *
+     * If nothing is queued, or every queued value is the same as the field's current value (see
+     * {@link Comparison}), the current record is kept and no new record is built.
+     *
+     * A lazy transformer doesn't build anything here but nested records: it only folds the queued
+     * updates into the ones transformed before, and builds the record once, the next time it is read.
+     * @return this, for chaining
+     * @throws ConstructorException thrown if a reflective error occurs while calling the record's
+     * canonical constructor. The mostly likely cause is a type mismatch for a field update.
+     */
+    @Override
+    public RecordTransformer<T> transform() throws ConstructorException {
+        if (lazy) {
+            fold();
+        } else {
+            transformNow();
+        }
+        return this;
+    }
+
+    private void transformNow() {
+        long start = Instrumentation.start();
+        if (updates == null || updates.isEmpty()) {
+            metadata.counted(false, start);
+            return;
+        }
+        if (references == null) {
+            references = new Object[metadata.size()];
+            bits = new long[metadata.size()];
+        }
+        int mismatch = -1;
+        boolean changed = false;
+        try {
+            for (int i = 0; i < references.length; i++) {
+                // get update if exists, else get old record value
+                boolean updated = updates.isDirty(i);
+                if (metadata.kind(i) == PrimitiveSlots.REFERENCE) {
+                    references[i] = updated ? materialize(i) : getValueFromCurrent(i);
+                    // once one field has changed, the others don't need comparing
+                    changed = changed || updated && changedFromCurrent(i, references[i]);
+                } else if (!updated) {
+                    bits[i] = getBitsFromCurrent(i);
+                } else if (updates.hasBits(i)) {
+                    bits[i] = updates.getBits(i);
+                    changed = changed || changedFromCurrent(i, bits[i]);
+                } else {
+                    // put only leaves a primitive slot boxed if the constructor would reject the value
+                    mismatch = i;
+                }
+            }
+        } finally {
+            // updates that fail are dropped, like the ones whose record fails to build, so a nested
+            // record that can't be built doesn't fail every transform after it
+            updates.clear();
+        }
+        if (mismatch >= 0) {
+            throw new ConstructorException(new IllegalArgumentException(
+                "argument type mismatch for component " + metadata.name(mismatch)
+            ));
+        }
+
+        if (changed) {
+            // throws ConstructorException
+            rec = metadata.construct(references, bits);
+        }
+        metadata.counted(changed, start);
+    }
+
+    private boolean changedFromCurrent(int slot, Object value) {
+        try {
+            return !metadata.same(slot, metadata.getter(slot).apply(rec), value);
+        } catch (RuntimeException e) {
+            // if the current value can't be read, it can't be compared, so build the record as asked
+            return true;
+        }
+    }
+
+    private boolean changedFromCurrent(int slot, long value) {
+        try {
+            // primitive slots are compared bit for bit, so 0.0 and -0.0 differ and the same NaN doesn't
+            return metadata.bits(slot, rec) != value;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Swap in another record of the same class, keeping any queued updates.
+     */
+    void replace(T rec) {
+        this.rec = rec;
+    }
+
+    /**
+     * @return the value a lazy transformer's record will have for the field once it is built, or the
+     * current record's if the field hasn't been transformed since it was
+     */
+    private Object getValueFromFolded(int slot) {
+        if (folded != null && folded.isDirty(slot)) {
+            return folded.hasBits(slot)
+                ? PrimitiveSlots.toBoxed(metadata.kind(slot), folded.getBits(slot))
+                : folded.get(slot);
+        }
+        return getValueFromCurrent(slot);
+    }
+
+    private Object getValueFromCurrent(int slot) {
+        try {
+            return metadata.getter(slot).apply(rec);
+        } catch (RuntimeException e) {
+            // compiled getters call the accessor directly, so its exceptions arrive unwrapped
+            throw new GetterException(e);
+        }
+    }
+
+    private long getBitsFromCurrent(int slot) {
+        try {
+            return metadata.bits(slot, rec);
+        } catch (RuntimeException e) {
+            throw new GetterException(e);
+        }
+    }
+}
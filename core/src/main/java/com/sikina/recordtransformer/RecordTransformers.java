@@ -0,0 +1,245 @@
+package com.sikina.recordtransformer;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Factory methods for the different kinds of transformer.
+ */
+public final class RecordTransformers {
+    private static final ClassValue<ThreadLocal<RecordTransformer<?>>> THREAD_LOCALS = new ClassValue<>() {
+        @Override
+        protected ThreadLocal<RecordTransformer<?>> computeValue(Class<?> type) {
+            return new ThreadLocal<>();
+        }
+    };
+
+    private RecordTransformers() {
+    }
+
+    /**
+     * Wrap a record in a transformer whose code is generated for the record's class. This works for
+     * records you can't annotate with {@link Transformable}, like records from other libraries.
+     *
+     * The first call for a record type generates and loads the transformer class, which is
+     * comparatively slow. Every call after that is about as cheap as allocating the transformer.
+     *
+     * @param rec the record to transform
+     * @param <T> the type of the record
+     * @return a transformer for rec
+     * @throws GetterException thrown if the transformer class can't be generated for the record's
+     * class, or if reading a component of rec fails
+     */
+    public static <T extends Record> GeneratedTransformer<T> generated(T rec) throws GetterException {
+        return GeneratedTransformer.of(rec);
+    }
+
+    /**
+     * Wrap a record in a lazy transformer. Where a transformer builds a new record on every transform,
+     * a lazy one only folds the queued updates into the ones transformed before, and builds the record
+     * when {@link RecordTransformer#rec()} is next called. So any number of transforms between two reads
+     * cost one record, which suits loops that write far more often than they read.
+     *
+     * Updates see the values transformed before them, read or not, so a lazy transformer ends up with
+     * the same record as an eager one. What moves is when the work, and any ConstructorException, happens:
+     * on the read rather than on the transform. Nested records, updated with {@code then}, are the
+     * exception: they are built on the transform, since they apply to the field's value as of then, so
+     * theirs fail there, and drop that transform's updates. {@link #counts(Class)} counts each build,
+     * not each transform.
+     *
+     * Name fields with unbound getters, like {@code with(MyRecord::name)}, or by name: a bound one like
+     * {@code with(t.rec()::name)} reads the record, and so builds it.
+     *
+     * @param rec the record to transform
+     * @param <T> the type of the record
+     * @return a lazy transformer wrapping rec
+     * @throws GetterException thrown if the record's components can't be read
+     */
+    public static <T extends Record> RecordTransformer<T> lazy(T rec) throws GetterException {
+        return new RecordTransformer<>(rec, true);
+    }
+
+    /**
+     * Get this thread's transformer for the record's type, reset to the record. Each thread has one
+     * transformer per record type, created the first time it is asked for one, so transforming a stream
+     * of records this way allocates nothing but the new records.
+     *
+     * The transformer is reset by the next call for the same record type on the same thread, so use it
+     * straight away and don't keep it or hand it to another thread. It holds on to the last record it
+     * was reset to, and through it the record's class, for as long as the thread lives.
+     *
+     * @param rec the record to transform
+     * @param <T> the type of the record
+     * @return this thread's transformer for rec's type, wrapping rec with no updates queued
+     * @throws GetterException thrown if the record's components can't be read
+     */
+    public static <T extends Record> RecordTransformer<T> threadLocal(T rec) throws GetterException {
+        ThreadLocal<RecordTransformer<?>> local = THREAD_LOCALS.get(rec.getClass());
+        // the ClassValue is keyed by the record's class, so the transformer is for T
+        //noinspection unchecked
+        RecordTransformer<T> transformer = (RecordTransformer<T>) local.get();
+        if (transformer == null) {
+            transformer = new RecordTransformer<>(rec);
+            local.set(transformer);
+            return transformer;
+        }
+        return transformer.reset(rec);
+    }
+
+    /**
+     * Resolve the getters and canonical constructor of record types now, so that their first
+     * transformers don't pay for it on the request path. Record types that components are declared
+     * as are resolved too, for paths like {@code with(rec::address).then(Address::city)}. The types
+     * are resolved in parallel on the common ForkJoinPool, and this returns once all of them are done.
+     *
+     * Method references like {@code rec::name} belong to the code that uses them, so each is still
+     * resolved the first time it is passed to {@code with}; that costs far less than a record type.
+     *
+     * @param recordClasses the record types to resolve
+     * @throws GetterException if a record's components can't be read
+     * @throws ConstructorException if a record's canonical constructor can't be found
+     */
+    @SafeVarargs
+    public static void preload(Class<? extends Record>... recordClasses) throws GetterException, ConstructorException {
+        Preloader.preload(List.of(recordClasses), false);
+    }
+
+    /**
+     * The same as {@link #preload(Class[])}, and also generates the transformer class that
+     * {@link #generated(Record)} uses for each record type.
+     *
+     * @param recordClasses the record types to resolve
+     * @throws GetterException if a record's components can't be read, or its transformer class can't
+     * be generated
+     * @throws ConstructorException if a record's canonical constructor can't be found
+     */
+    @SafeVarargs
+    public static void preloadGenerated(Class<? extends Record>... recordClasses) throws GetterException, ConstructorException {
+        Preloader.preload(List.of(recordClasses), true);
+    }
+
+    /**
+     * Preload every record type in the index the recordlens annotation processor writes to
+     * {@code META-INF/recordlens/records}: all the records annotated with {@link Transformable} in
+     * each jar or directory on the class path that was built with the processor. Reading the index
+     * is much cheaper than scanning for records.
+     *
+     * @param loader the class loader to find the indexes and load the records with
+     * @return the record types listed in the indexes
+     * @throws GetterException if an index can't be read, lists a class that can't be found or isn't a
+     * record, or a record's components can't be read
+     * @throws ConstructorException if a record's canonical constructor can't be found
+     */
+    public static List<Class<? extends Record>> preloadIndexed(ClassLoader loader) throws GetterException, ConstructorException {
+        List<Class<? extends Record>> indexed = Preloader.indexed(loader);
+        Preloader.preload(indexed, false);
+        return indexed;
+    }
+
+    /**
+     * Preload every record type in a package and its subpackages, wherever the class loader finds the
+     * package: in directories and in jars. Each class in the package is loaded, without being
+     * initialized, to find out if it is a record, so scan the packages your records are in rather
+     * than everything. Records that can't be transformed, e.g. because they aren't accessible to the
+     * library, are left out rather than failing the scan.
+     *
+     * @param packageName a package name, like {@code com.example.model}
+     * @param loader the class loader to find the package and load its classes with
+     * @return the record types preloaded
+     * @throws GetterException if the package can't be listed
+     */
+    public static List<Class<? extends Record>> preloadPackage(String packageName, ClassLoader loader) throws GetterException {
+        return Preloader.preloadResolvable(Preloader.scan(packageName, loader));
+    }
+
+    /**
+     * Choose how transform compares a component's queued value with its current one. When every
+     * queued value is the same as the current one, transform keeps the current record rather than
+     * building an equal copy, so identity-based caches downstream stay valid. Components are compared
+     * by {@link Comparison#IDENTITY} unless configured otherwise.
+     *
+     * This applies to every transformer for the record type, including ones that already exist.
+     *
+     * @param recordClass the type of record the component belongs to
+     * @param component a getter on the record, like {@code MyRecord::name}
+     * @param comparison how to compare the component's values
+     * @param <T> the type of the record
+     * @throws GetterException if the component cannot be transformed into a SerializableLambda, or the
+     * record's components can't be read
+     * @throws ConstructorException if the record's canonical constructor can't be found
+     */
+    public static <T extends Record> void compare(Class<T> recordClass, Component<T, ?> component, Comparison comparison)
+        throws GetterException, ConstructorException {
+        RecordMetadata<T> metadata = RecordMetadata.of(recordClass);
+        int slot = metadata.indexOf(AccessorResolver.componentName(component));
+        if (slot >= 0) {
+            metadata.compare(slot, comparison);
+        }
+    }
+
+    /**
+     * Install metrics that every transformer reports to, replacing any installed before. This
+     * overrides metrics found through {@link java.util.ServiceLoader}.
+     *
+     * @param metrics the metrics to report to, or {@link TransformMetrics#NONE} to stop measuring
+     */
+    public static void metrics(TransformMetrics metrics) {
+        Instrumentation.metrics(Objects.requireNonNull(metrics, "metrics"));
+    }
+
+    /**
+     * @return the installed metrics, {@link TransformMetrics#NONE} if there are none
+     */
+    public static TransformMetrics metrics() {
+        return Instrumentation.metrics();
+    }
+
+    /**
+     * @param recordClass a record type
+     * @return how many transforms of the record type have built a new record, and how many have kept
+     * the current one because nothing changed. The counts cover every transformer for the record type.
+     * @throws GetterException if the record's components can't be read
+     * @throws ConstructorException if the record's canonical constructor can't be found
+     */
+    public static TransformCounts counts(Class<? extends Record> recordClass) throws GetterException, ConstructorException {
+        return RecordMetadata.of(recordClass).counts();
+    }
+
+    /**
+     * Intern the records built for a record type, so that equal records share one instance. Each
+     * record a transformer builds is looked up in a table of records built before; if an equal one
+     * is there, the transformer returns that one instead and the new record is left for the garbage
+     * collector. This pays off when many records are equal, like states that cycle through a few
+     * values, at the cost of a hashCode and an equals per record built.
+     *
+     * The table holds its records weakly and has a fixed number of slots, one record per slot, so it
+     * never keeps records alive or grows; a record is forgotten when another lands on its slot.
+     * Interning applies to every transformer for the record type, including ones that already exist,
+     * and is off unless turned on here. Only use it for records with value-based equals, whose
+     * identity nothing depends on.
+     *
+     * @param recordClass the type of record to intern
+     * @param capacity the number of slots in the table, rounded up to a power of two, or 0 to stop
+     * interning. Setting it again starts a new, empty table and resets the {@link #internCounts(Class)}.
+     * @throws IllegalArgumentException if capacity is negative
+     * @throws GetterException if the record's components can't be read
+     * @throws ConstructorException if the record's canonical constructor can't be found
+     */
+    public static void intern(Class<? extends Record> recordClass, int capacity) throws GetterException, ConstructorException {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        }
+        RecordMetadata.of(recordClass).interning(capacity);
+    }
+
+    /**
+     * @param recordClass a record type
+     * @return how many records built for the type were replaced by an equal one, and how many weren't,
+     * since interning was last turned on. Both are 0 if the type isn't interned.
+     * @throws GetterException if the record's components can't be read
+     * @throws ConstructorException if the record's canonical constructor can't be found
+     */
+    public static InternCounts internCounts(Class<? extends Record> recordClass) throws GetterException, ConstructorException {
+        return RecordMetadata.of(recordClass).internCounts();
+    }
+}
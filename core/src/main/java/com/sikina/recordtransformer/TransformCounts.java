@@ -0,0 +1,12 @@
+package com.sikina.recordtransformer;
+
+/**
+ * How many times transform has been called for a record type, split by whether it built a new
+ * record. Transforms that change nothing return the current record, and are counted as skipped.
+ *
+ * @param performed the number of transforms that called the record's constructor
+ * @param skipped the number of transforms that kept the current record
+ * @see RecordTransformers#counts(Class)
+ */
+public record TransformCounts(long performed, long skipped) {
+}
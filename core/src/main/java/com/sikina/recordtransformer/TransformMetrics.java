@@ -0,0 +1,57 @@
+package com.sikina.recordtransformer;
+
+/**
+ * Receives measurements from every transformer in the JVM. Implement the methods you are interested
+ * in; the others do nothing.
+ *
+ * Metrics are off by default, and while they are off the library doesn't read the clock or call any
+ * of these methods, so it costs nothing. There are two ways to turn them on: call
+ * {@link RecordTransformers#metrics(TransformMetrics)}, or list an implementation in
+ * {@code META-INF/services/com.sikina.recordtransformer.TransformMetrics}, which is picked up by
+ * {@link java.util.ServiceLoader} the first time a transformer is used. Two ready-made implementations
+ * come with the library: {@link HistogramMetrics} keeps latency histograms and counters per record
+ * type, and {@link JfrMetrics} emits a Flight Recorder event per transform.
+ *
+ * The methods are called on the thread doing the work, from any number of threads at once, so they
+ * have to be thread safe, and should be quick: their cost is added to every transform.
+ */
+public interface TransformMetrics {
+    /**
+     * Metrics that do nothing. While this is installed, the library skips measuring altogether.
+     */
+    TransformMetrics NONE = new TransformMetrics() {
+    };
+
+    /**
+     * Called for every call to transform on a RecordTransformer, generated transformer or
+     * ConcurrentRecordTransformer that returns normally.
+     *
+     * @param recordClass the type of record transformed
+     * @param constructed true if a new record was built, false if the current one was kept because
+     * nothing changed
+     * @param nanos how long the transform took
+     */
+    default void transformed(Class<? extends Record> recordClass, boolean constructed, long nanos) {
+    }
+
+    /**
+     * Called each time a method reference like {@code rec::name}, as passed to {@code with}, is
+     * resolved to a component name.
+     *
+     * @param cached true if the name was already known for the method reference's class, false if it
+     * had to be found with reflection
+     * @param nanos how long resolving the name took
+     */
+    default void accessorResolved(boolean cached, long nanos) {
+    }
+
+    /**
+     * Called each time a transformer looks up the getters and constructor of a record type. Every
+     * transformer, including {@link CachedRecordTransformer}, shares one cache of these per record type.
+     *
+     * @param recordClass the type of record looked up
+     * @param cached false for the first lookup of the record type, which resolved its getters
+     */
+    default void gettersLookedUp(Class<? extends Record> recordClass, boolean cached) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.sikina.recordtransformer;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a record for the recordlens annotation processor. For a record {@code Xxx}, the processor
+ * generates a companion {@code XxxTransformer} in the same package, with a typed
+ * {@code withName(value)} method per component and a {@code transform()} that calls the
+ * canonical constructor directly. The generated transformer uses no reflection at all.
+ *
+ * For a record nested in another type, the companion is named after the whole chain of
+ * enclosing types, e.g. {@code Outer_InnerTransformer}.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Transformable {
+}
@@ -0,0 +1,75 @@
+package com.sikina.recordtransformer;
+
+/**
+ * The API shared by every kind of record transformer: read the current record, queue changes,
+ * then transform the record into a new instance with those changes applied.
+ *
+ * @param <T> the type of the record being wrapped.
+ */
+public interface Transformer<T extends Record> {
+    /**
+     * @return Returns the current record.
+     */
+    T rec();
+
+    /**
+     * Lazily changes the field referenced by the key to the new value.
+     * This change will not be reflected in rec() until you call transform().
+     *
+     * @param key the name of the field to change
+     * @param value the value to change that field to
+     * @return this, for chaining
+     */
+    Transformer<T> withTypeUnsafe(String key, Object value);
+
+    /**
+     * The same as {@link #withTypeUnsafe(String, Object)} for an int value. Transformers that store
+     * primitive components unboxed override this so the value is never boxed.
+     *
+     * Every transformer puts the value into any primitive field it widens to, as the record's
+     * constructor would, so an int can go into a long or a float field, but not into a short one.
+     *
+     * @param key the name of the field to change
+     * @param value the value to change that field to
+     * @return this, for chaining
+     */
+    default Transformer<T> withInt(String key, int value) {
+        return withTypeUnsafe(key, value);
+    }
+
+    /**
+     * The same as {@link #withTypeUnsafe(String, Object)} for a long value. Transformers that store
+     * primitive components unboxed override this so the value is never boxed.
+     *
+     * Like an int, it goes into any primitive field it widens to: a long, float or double one.
+     *
+     * @param key the name of the field to change
+     * @param value the value to change that field to
+     * @return this, for chaining
+     */
+    default Transformer<T> withLong(String key, long value) {
+        return withTypeUnsafe(key, value);
+    }
+
+    /**
+     * The same as {@link #withTypeUnsafe(String, Object)} for a double value. Transformers that store
+     * primitive components unboxed override this so the value is never boxed.
+     *
+     * Since a double widens to nothing else, it only goes into double fields.
+     *
+     * @param key the name of the field to change
+     * @param value the value to change that field to
+     * @return this, for chaining
+     */
+    default Transformer<T> withDouble(String key, double value) {
+        return withTypeUnsafe(key, value);
+    }
+
+    /**
+     * Replace the underlying record with a new record with updates made to the fields previously
+     * specified.
+     * @return this, for chaining
+     * @throws ConstructorException thrown if an error occurs while calling the record's canonical constructor
+     */
+    Transformer<T> transform() throws ConstructorException;
+}
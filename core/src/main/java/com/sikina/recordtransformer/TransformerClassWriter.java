@@ -0,0 +1,539 @@
+package com.sikina.recordtransformer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the class file for a {@link GeneratedTransformer} subclass specialized to one record class.
+ * For {@code record R(int a, String b)} the class is equivalent to:
+ *
+ * <pre>{@code
+ * final class R$$Transformer extends GeneratedTransformer<R> {
+ *     private int slot0;
+ *     private String slot1;
+ *
+ *     protected GeneratedTransformer<R> newInstance() { return new R$$Transformer(); }
+ *     protected void load(Record rec) { R r = (R) rec; slot0 = r.a(); slot1 = r.b(); }
+ *     protected void set(int slot, Object value) {
+ *         switch (slot) {
+ *             case 0: slot0 = ((Integer) value).intValue(); return;
+ *             case 1: slot1 = (String) value; return;
+ *             default: return;
+ *         }
+ *     }
+ *     protected Object get(int slot) {
+ *         switch (slot) {
+ *             case 0: return Integer.valueOf(slot0);
+ *             case 1: return slot1;
+ *             default: return null;
+ *         }
+ *     }
+ *     protected void setBits(int slot, long bits) {
+ *         switch (slot) {
+ *             case 0: slot0 = (int) bits; return;
+ *             default: return;
+ *         }
+ *     }
+ *     protected Record construct() { return new R(slot0, slot1); }
+ * }
+ * }</pre>
+ *
+ * There's no bytecode library on the classpath, and the class is simple enough not to need one.
+ * Only get(), set() and setBits() branch, and every branch target has the method's initial frame, so the stack map
+ * table is a list of same_frame entries.
+ * Not for external use.
+ */
+final class TransformerClassWriter {
+    private static final int CLASS_VERSION = 61; // Java 17
+
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_PROTECTED = 0x0004;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+    private static final int ACC_SYNTHETIC = 0x1000;
+
+    private static final int ACONST_NULL = 0x01;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ILOAD_1 = 0x1b;
+    private static final int LLOAD_2 = 0x20;
+    private static final int L2I = 0x88;
+    private static final int ASTORE_2 = 0x4d;
+    private static final int DUP = 0x59;
+    private static final int TABLESWITCH = 0xaa;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int NEW = 0xbb;
+    private static final int CHECKCAST = 0xc0;
+
+    private static final String SUPER = "com/sikina/recordtransformer/GeneratedTransformer";
+
+    private final ConstantPool pool = new ConstantPool();
+    private final String recordName;
+    private final String className;
+    private final String[] names;
+    private final Class<?>[] types;
+    private final int[] kinds;
+
+    private TransformerClassWriter(RecordMetadata<?> metadata) {
+        recordName = internalName(metadata.recordClass());
+        className = recordName + "$$Transformer";
+        names = new String[metadata.size()];
+        types = new Class<?>[metadata.size()];
+        kinds = new int[metadata.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = metadata.name(i);
+            types[i] = metadata.type(i);
+            kinds[i] = metadata.kind(i);
+        }
+    }
+
+    /**
+     * @param metadata the record class to specialize for
+     * @return the class file bytes of the specialized transformer
+     */
+    static byte[] write(RecordMetadata<?> metadata) {
+        return new TransformerClassWriter(metadata).toBytes();
+    }
+
+    private byte[] toBytes() {
+        List<byte[]> methods = List.of(
+            constructor(),
+            newInstance(),
+            load(),
+            get(),
+            set(),
+            setBits(),
+            construct()
+        );
+        int thisClass = pool.classRef(className);
+        int superClass = pool.classRef(SUPER);
+        int[] fieldNames = new int[names.length];
+        int[] fieldDescriptors = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            fieldNames[i] = pool.utf8("slot" + i);
+            fieldDescriptors[i] = pool.utf8(descriptor(types[i]));
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(CLASS_VERSION);
+            pool.writeTo(out);
+            out.writeShort(ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(names.length);
+            for (int i = 0; i < names.length; i++) {
+                out.writeShort(ACC_PRIVATE);
+                out.writeShort(fieldNames[i]);
+                out.writeShort(fieldDescriptors[i]);
+                out.writeShort(0); // attributes
+            }
+            out.writeShort(methods.size());
+            for (byte[] method : methods) {
+                out.write(method);
+            }
+            out.writeShort(0); // attributes
+        } catch (IOException e) {
+            // ByteArrayOutputStream doesn't throw
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] constructor() {
+        Code code = new Code();
+        code.op(ALOAD_0);
+        code.op(INVOKESPECIAL).u2(pool.methodRef(SUPER, "<init>", "()V"));
+        code.op(RETURN);
+        return method(0, "<init>", "()V", code, 1, 1);
+    }
+
+    private byte[] newInstance() {
+        Code code = new Code();
+        code.op(NEW).u2(pool.classRef(className));
+        code.op(DUP);
+        code.op(INVOKESPECIAL).u2(pool.methodRef(className, "<init>", "()V"));
+        code.op(ARETURN);
+        return method(ACC_PROTECTED, "newInstance", "()L" + SUPER + ";", code, 2, 1);
+    }
+
+    private byte[] load() {
+        Code code = new Code();
+        code.op(ALOAD_1);
+        code.op(CHECKCAST).u2(pool.classRef(recordName));
+        code.op(ASTORE_2);
+        for (int i = 0; i < names.length; i++) {
+            String descriptor = descriptor(types[i]);
+            code.op(ALOAD_0);
+            code.op(ALOAD_2);
+            code.op(INVOKEVIRTUAL).u2(pool.methodRef(recordName, names[i], "()" + descriptor));
+            code.op(PUTFIELD).u2(pool.fieldRef(className, "slot" + i, descriptor));
+        }
+        code.op(RETURN);
+        return method(ACC_PROTECTED, "load", "(Ljava/lang/Record;)V", code, 3, 3);
+    }
+
+    private byte[] get() {
+        Code code = new Code();
+        List<Integer> frames = new ArrayList<>();
+        if (names.length > 0) {
+            code.op(ILOAD_1);
+            int switchAt = code.size();
+            code.op(TABLESWITCH);
+            while (code.size() % 4 != 0) {
+                code.u1(0);
+            }
+            int defaultOffsetAt = code.size();
+            code.u4(0).u4(0).u4(names.length - 1);
+            int caseOffsetsAt = code.size();
+            for (int i = 0; i < names.length; i++) {
+                code.u4(0);
+            }
+            for (int i = 0; i < names.length; i++) {
+                frames.add(code.size());
+                code.patch4(caseOffsetsAt + 4 * i, code.size() - switchAt);
+                code.op(ALOAD_0);
+                code.op(GETFIELD).u2(pool.fieldRef(className, "slot" + i, descriptor(types[i])));
+                box(code, types[i]);
+                code.op(ARETURN);
+            }
+            frames.add(code.size());
+            code.patch4(defaultOffsetAt, code.size() - switchAt);
+        }
+        code.op(ACONST_NULL);
+        code.op(ARETURN);
+        return method(ACC_PROTECTED, "get", "(I)Ljava/lang/Object;", code, 2, 2, frames);
+    }
+
+    private byte[] set() {
+        Code code = new Code();
+        List<Integer> frames = new ArrayList<>();
+        if (names.length > 0) {
+            code.op(ILOAD_1);
+            int switchAt = code.size();
+            code.op(TABLESWITCH);
+            while (code.size() % 4 != 0) {
+                code.u1(0);
+            }
+            int defaultOffsetAt = code.size();
+            code.u4(0).u4(0).u4(names.length - 1);
+            int caseOffsetsAt = code.size();
+            for (int i = 0; i < names.length; i++) {
+                code.u4(0);
+            }
+            for (int i = 0; i < names.length; i++) {
+                frames.add(code.size());
+                code.patch4(caseOffsetsAt + 4 * i, code.size() - switchAt);
+                code.op(ALOAD_0);
+                code.op(ALOAD_2);
+                unbox(code, types[i]);
+                code.op(PUTFIELD).u2(pool.fieldRef(className, "slot" + i, descriptor(types[i])));
+                code.op(RETURN);
+            }
+            frames.add(code.size());
+            code.patch4(defaultOffsetAt, code.size() - switchAt);
+        }
+        code.op(RETURN);
+        return method(ACC_PROTECTED, "set", "(ILjava/lang/Object;)V", code, 3, 3, frames);
+    }
+
+    /**
+     * Like set(), but for the primitive slots, whose values arrive as the bits {@link PrimitiveSlots}
+     * encodes. Reference slots go to the default case, which does nothing.
+     */
+    private byte[] setBits() {
+        Code code = new Code();
+        List<Integer> frames = new ArrayList<>();
+        if (names.length > 0) {
+            code.op(ILOAD_1);
+            int switchAt = code.size();
+            code.op(TABLESWITCH);
+            while (code.size() % 4 != 0) {
+                code.u1(0);
+            }
+            int defaultOffsetAt = code.size();
+            code.u4(0).u4(0).u4(names.length - 1);
+            int caseOffsetsAt = code.size();
+            for (int i = 0; i < names.length; i++) {
+                code.u4(0);
+            }
+            for (int i = 0; i < names.length; i++) {
+                if (kinds[i] == PrimitiveSlots.REFERENCE) {
+                    continue;
+                }
+                frames.add(code.size());
+                code.patch4(caseOffsetsAt + 4 * i, code.size() - switchAt);
+                code.op(ALOAD_0);
+                code.op(LLOAD_2);
+                if (kinds[i] == PrimitiveSlots.INT) {
+                    code.op(L2I);
+                } else if (kinds[i] == PrimitiveSlots.DOUBLE) {
+                    code.op(INVOKESTATIC).u2(pool.methodRef("java/lang/Double", "longBitsToDouble", "(J)D"));
+                }
+                code.op(PUTFIELD).u2(pool.fieldRef(className, "slot" + i, descriptor(types[i])));
+                code.op(RETURN);
+            }
+            frames.add(code.size());
+            code.patch4(defaultOffsetAt, code.size() - switchAt);
+            for (int i = 0; i < names.length; i++) {
+                if (kinds[i] == PrimitiveSlots.REFERENCE) {
+                    code.patch4(caseOffsetsAt + 4 * i, code.size() - switchAt);
+                }
+            }
+        }
+        code.op(RETURN);
+        return method(ACC_PROTECTED, "setBits", "(IJ)V", code, 3, 4, frames);
+    }
+
+    private byte[] construct() {
+        Code code = new Code();
+        StringBuilder constructorDescriptor = new StringBuilder("(");
+        int maxStack = 2;
+        code.op(NEW).u2(pool.classRef(recordName));
+        code.op(DUP);
+        for (int i = 0; i < names.length; i++) {
+            String descriptor = descriptor(types[i]);
+            constructorDescriptor.append(descriptor);
+            code.op(ALOAD_0);
+            code.op(GETFIELD).u2(pool.fieldRef(className, "slot" + i, descriptor));
+            maxStack += types[i] == long.class || types[i] == double.class ? 2 : 1;
+        }
+        constructorDescriptor.append(")V");
+        code.op(INVOKESPECIAL).u2(pool.methodRef(recordName, "<init>", constructorDescriptor.toString()));
+        code.op(ARETURN);
+        return method(ACC_PROTECTED, "construct", "()Ljava/lang/Record;", code, maxStack, 1);
+    }
+
+    private void box(Code code, Class<?> type) {
+        if (type.isPrimitive()) {
+            String wrapper = internalName(wrapper(type));
+            code.op(INVOKESTATIC).u2(pool.methodRef(wrapper, "valueOf", "(" + descriptor(type) + ")L" + wrapper + ";"));
+        }
+    }
+
+    private void unbox(Code code, Class<?> type) {
+        if (!type.isPrimitive()) {
+            if (type != Object.class) {
+                code.op(CHECKCAST).u2(pool.classRef(internalName(type)));
+            }
+            return;
+        }
+        String wrapper = internalName(wrapper(type));
+        code.op(CHECKCAST).u2(pool.classRef(wrapper));
+        code.op(INVOKEVIRTUAL).u2(pool.methodRef(wrapper, type.getName() + "Value", "()" + descriptor(type)));
+    }
+
+    private byte[] method(int access, String name, String descriptor, Code code, int maxStack, int maxLocals) {
+        return method(access, name, descriptor, code, maxStack, maxLocals, List.of());
+    }
+
+    private byte[] method(
+        int access, String name, String descriptor, Code code, int maxStack, int maxLocals, List<Integer> frames
+    ) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeShort(access);
+            out.writeShort(pool.utf8(name));
+            out.writeShort(pool.utf8(descriptor));
+            out.writeShort(1);
+
+            byte[] stackMap = stackMapTable(frames);
+            out.writeShort(pool.utf8("Code"));
+            out.writeInt(12 + code.size() + (stackMap.length == 0 ? 0 : 6 + stackMap.length));
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.size());
+            out.write(code.bytes.toByteArray());
+            out.writeShort(0); // exception table
+            if (stackMap.length == 0) {
+                out.writeShort(0);
+            } else {
+                out.writeShort(1);
+                out.writeShort(pool.utf8("StackMapTable"));
+                out.writeInt(stackMap.length);
+                out.write(stackMap);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Every frame is the method's initial frame with an empty stack, so each entry is a same_frame
+     * (or same_frame_extended, if the jump from the previous frame is too big to fit).
+     */
+    private static byte[] stackMapTable(List<Integer> frames) {
+        if (frames.isEmpty()) {
+            return new byte[0];
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeShort(frames.size());
+            int previous = -1;
+            for (int offset : frames) {
+                int delta = offset - previous - 1;
+                if (delta < 64) {
+                    out.writeByte(delta);
+                } else {
+                    out.writeByte(251);
+                    out.writeShort(delta);
+                }
+                previous = offset;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String internalName(Class<?> type) {
+        return type.isArray() ? descriptor(type) : type.getName().replace('.', '/');
+    }
+
+    private static String descriptor(Class<?> type) {
+        return type.descriptorString();
+    }
+
+    private static Class<?> wrapper(Class<?> primitive) {
+        return MethodType.methodType(primitive).wrap().returnType();
+    }
+
+    /**
+     * A growable bytecode buffer with big-endian writes and the ability to patch jump offsets.
+     */
+    private static final class Code {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        Code op(int opcode) {
+            bytes.write(opcode);
+            return this;
+        }
+
+        Code u1(int value) {
+            bytes.write(value);
+            return this;
+        }
+
+        Code u2(int value) {
+            bytes.write(value >>> 8);
+            bytes.write(value);
+            return this;
+        }
+
+        Code u4(int value) {
+            u2(value >>> 16);
+            return u2(value);
+        }
+
+        void patch4(int at, int value) {
+            byte[] code = bytes.toByteArray();
+            code[at] = (byte) (value >>> 24);
+            code[at + 1] = (byte) (value >>> 16);
+            code[at + 2] = (byte) (value >>> 8);
+            code[at + 3] = (byte) value;
+            bytes.reset();
+            bytes.writeBytes(code);
+        }
+
+        int size() {
+            return bytes.size();
+        }
+    }
+
+    /**
+     * The constant pool, with each entry written once no matter how many times it is referenced.
+     */
+    private static final class ConstantPool {
+        private static final int UTF8 = 1;
+        private static final int CLASS = 7;
+        private static final int FIELD_REF = 9;
+        private static final int METHOD_REF = 10;
+        private static final int NAME_AND_TYPE = 12;
+
+        private final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(entries);
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private int next = 1;
+
+        int utf8(String value) {
+            return entry("U" + value, () -> {
+                out.writeByte(UTF8);
+                out.writeUTF(value);
+            });
+        }
+
+        int classRef(String internalName) {
+            int name = utf8(internalName);
+            return entry("C" + internalName, () -> {
+                out.writeByte(CLASS);
+                out.writeShort(name);
+            });
+        }
+
+        int fieldRef(String owner, String name, String descriptor) {
+            return memberRef(FIELD_REF, owner, name, descriptor);
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            return memberRef(METHOD_REF, owner, name, descriptor);
+        }
+
+        private int memberRef(int tag, String owner, String name, String descriptor) {
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            int nameAndType = entry("N" + name + ":" + descriptor, () -> {
+                out.writeByte(NAME_AND_TYPE);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+            return entry(tag + owner + "." + name + ":" + descriptor, () -> {
+                out.writeByte(tag);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        private int entry(String key, Entry entry) {
+            Integer existing = indexes.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            try {
+                entry.write();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            indexes.put(key, next);
+            return next++;
+        }
+
+        void writeTo(DataOutputStream target) throws IOException {
+            target.writeShort(next);
+            target.write(entries.toByteArray());
+        }
+
+        @FunctionalInterface
+        private interface Entry {
+            void write() throws IOException;
+        }
+    }
+}
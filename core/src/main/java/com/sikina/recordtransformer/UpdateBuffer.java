@@ -0,0 +1,83 @@
+package com.sikina.recordtransformer;
+
+/**
+ * Pending updates for a record, stored by component position rather than by name.
+ * Each slot holds the new value for the component at that position in the canonical constructor,
+ * and a bitset records which slots have been written since the last clear.
+ * Values for int, long and double components can be written unboxed, as the raw bits that
+ * {@link PrimitiveSlots} uses, and a second bitset records which slots hold bits rather than an Object.
+ * Not for external use.
+ */
+final class UpdateBuffer {
+    private final Object[] values;
+    private final long[] bits;
+    private final long[] dirty;
+    private final long[] unboxed;
+
+    UpdateBuffer(int size) {
+        values = new Object[size];
+        bits = new long[size];
+        dirty = new long[(size + 63) >>> 6];
+        unboxed = new long[dirty.length];
+    }
+
+    void put(int slot, Object value) {
+        values[slot] = value;
+        dirty[slot >>> 6] |= 1L << slot;
+        unboxed[slot >>> 6] &= ~(1L << slot);
+    }
+
+    void putBits(int slot, long value) {
+        values[slot] = null;
+        bits[slot] = value;
+        dirty[slot >>> 6] |= 1L << slot;
+        unboxed[slot >>> 6] |= 1L << slot;
+    }
+
+    boolean isDirty(int slot) {
+        return (dirty[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * @return true if the slot's pending update was written with putBits
+     */
+    boolean hasBits(int slot) {
+        return (unboxed[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    Object get(int slot) {
+        return values[slot];
+    }
+
+    long getBits(int slot) {
+        return bits[slot];
+    }
+
+    /**
+     * @return true if no slot has been written since the last clear
+     */
+    boolean isEmpty() {
+        for (long word : dirty) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Forget every pending update. Only the dirty slots are touched, and they are nulled out so
+     * that the buffer doesn't keep old values reachable.
+     */
+    void clear() {
+        for (int w = 0; w < dirty.length; w++) {
+            long word = dirty[w];
+            while (word != 0) {
+                values[(w << 6) + Long.numberOfTrailingZeros(word)] = null;
+                word &= word - 1;
+            }
+            dirty[w] = 0;
+            unboxed[w] = 0;
+        }
+    }
+}
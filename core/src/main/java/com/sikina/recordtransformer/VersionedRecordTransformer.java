@@ -0,0 +1,385 @@
+package com.sikina.recordtransformer;
+
+/**
+ * A RecordTransformer that remembers the records it has been through, so you can step back and
+ * forth between them with {@link #undo()} and {@link #redo()}, or look any of them up with
+ * {@link #at(long)}.
+ *
+ * Every transform that builds a new record starts a new version. The history doesn't keep every
+ * record: it keeps a snapshot, the record itself, every {@code snapshotEvery} versions, and for the
+ * versions in between only the components that changed. Looking up a version therefore builds at
+ * most one record, from the nearest snapshot and no more than {@code snapshotEvery} diffs.
+ *
+ * The history is a ring buffer with a budget on the number of versions and on their estimated size.
+ * When either is exceeded the oldest versions are dropped, and the oldest one left is turned into a
+ * snapshot if it isn't one already. Size estimates cover the history's own entries and record
+ * shells, not the values the records refer to, which are usually shared between versions anyway.
+ *
+ * Transforming after an undo drops the versions that could have been redone, like an editor does.
+ *
+ * @param <T> the type of the record being wrapped.
+ */
+public class VersionedRecordTransformer<T extends Record> extends RecordTransformer<T> {
+    // rough sizes, in bytes, of an object header, an array header and a reference
+    private static final long OBJECT_BYTES = 16;
+    private static final long ARRAY_BYTES = 16;
+    private static final long REFERENCE_BYTES = 8;
+
+    private final RecordMetadata<T> metadata;
+    private final int snapshotEvery;
+    private final long maxBytes;
+    // entries[(first + i) % entries.length] holds version oldest + i
+    private final Entry[] entries;
+    private int first;
+    private int size;
+    private long oldest;
+    private long version;
+    private long bytes;
+
+    private VersionedRecordTransformer(Builder<T> builder) throws GetterException {
+        super(builder.rec);
+        metadata = RecordMetadata.of(builder.rec.getClass());
+        snapshotEvery = builder.snapshotEvery;
+        maxBytes = builder.maxBytes;
+        entries = new Entry[builder.maxVersions];
+        append(Entry.snapshot(builder.rec, snapshotBytes()));
+    }
+
+    /**
+     * Keep the last 1024 versions, with a snapshot every 32.
+     *
+     * @param rec the record to transform
+     * @throws GetterException thrown if the wrapper can't get record components from rec
+     */
+    public VersionedRecordTransformer(T rec) throws GetterException {
+        this(builder(rec));
+    }
+
+    /**
+     * @param rec the record to transform
+     * @param <T> the type of the record
+     * @return a builder for a transformer with a custom history budget
+     */
+    public static <T extends Record> Builder<T> builder(T rec) {
+        return new Builder<>(rec);
+    }
+
+    /**
+     * @return the version of the current record. The record the transformer was created with is version 0.
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * @return the oldest version still in the history
+     */
+    public long oldestVersion() {
+        return oldest;
+    }
+
+    /**
+     * @return the newest version in the history. This is the current version unless you have undone some.
+     */
+    public long latestVersion() {
+        return oldest + size - 1;
+    }
+
+    /**
+     * Make the previous version current. Updates that are queued but not transformed yet stay queued.
+     *
+     * @return this, for chaining. If the previous version is no longer in the history, nothing changes.
+     * @throws ConstructorException thrown if the previous version can't be rebuilt
+     */
+    public VersionedRecordTransformer<T> undo() throws ConstructorException {
+        if (version > oldest) {
+            replace(at(version - 1));
+            version--;
+        }
+        return this;
+    }
+
+    /**
+     * Make the next version current again, after an undo.
+     *
+     * @return this, for chaining. If nothing has been undone, nothing changes.
+     * @throws ConstructorException thrown if the next version can't be rebuilt
+     */
+    public VersionedRecordTransformer<T> redo() throws ConstructorException {
+        if (version < latestVersion()) {
+            replace(at(version + 1));
+            version++;
+        }
+        return this;
+    }
+
+    /**
+     * Look up a version without making it current.
+     *
+     * @param version a version between {@link #oldestVersion()} and {@link #latestVersion()}
+     * @return the record at that version. Snapshots and the current record are returned as they are;
+     * other versions are rebuilt, so they are equal to the record they had, but not the same instance.
+     * @throws IllegalArgumentException if the version is no longer, or not yet, in the history
+     * @throws ConstructorException thrown if the record can't be rebuilt
+     */
+    public T at(long version) throws ConstructorException {
+        if (version < oldest || version > latestVersion()) {
+            throw new IllegalArgumentException(
+                "version " + version + " is not between " + oldest + " and " + latestVersion()
+            );
+        }
+        if (version == this.version) {
+            return rec();
+        }
+        return rebuild((int) (version - oldest));
+    }
+
+    /**
+     * Build the version at an index of the history from its entries alone, never from the current record.
+     */
+    private T rebuild(int index) throws ConstructorException {
+        Entry entry = entry(index);
+        if (entry.snapshot != null) {
+            return metadata.recordClass().cast(entry.snapshot);
+        }
+        T snapshot = metadata.recordClass().cast(entry(index - entry.depth).snapshot);
+        Object[] references = new Object[metadata.size()];
+        long[] bits = new long[metadata.size()];
+        for (int i = 0; i < references.length; i++) {
+            if (metadata.kind(i) == PrimitiveSlots.REFERENCE) {
+                references[i] = readValue(i, snapshot);
+            } else {
+                bits[i] = readBits(i, snapshot);
+            }
+        }
+        // the diffs since the snapshot, oldest first, so later ones win
+        for (int d = index - entry.depth + 1; d <= index; d++) {
+            Entry diff = entry(d);
+            for (int k = 0; k < diff.slots.length; k++) {
+                int slot = diff.slots[k];
+                if (metadata.kind(slot) == PrimitiveSlots.REFERENCE) {
+                    references[slot] = diff.references[k];
+                } else {
+                    bits[slot] = diff.bits[k];
+                }
+            }
+        }
+        return metadata.construct(references, bits);
+    }
+
+    /**
+     * Start over with another record, and a new history in which it is version 0.
+     */
+    @Override
+    public VersionedRecordTransformer<T> reset(T rec) {
+        super.reset(rec);
+        while (size > 0) {
+            size--;
+            entries[(first + size) % entries.length] = null;
+        }
+        first = 0;
+        oldest = 0;
+        version = 0;
+        bytes = 0;
+        append(Entry.snapshot(rec, snapshotBytes()));
+        return this;
+    }
+
+    /**
+     * The same as {@link RecordTransformer#transform()}, except that a new record becomes a new version.
+     */
+    @Override
+    public VersionedRecordTransformer<T> transform() throws ConstructorException {
+        T before = rec();
+        super.transform();
+        T after = rec();
+        if (after == before) {
+            return this;
+        }
+        // versions that could have been redone are replaced by this one
+        while (latestVersion() > version) {
+            size--;
+            bytes -= entry(size).bytes;
+            entries[(first + size) % entries.length] = null;
+        }
+        if (size == entries.length) {
+            // make room first: evicting can turn the version the new one builds on into a snapshot
+            evictOldest();
+        }
+        // with room for one version only, there is nothing left for it to be a diff from
+        int depth = size == 0 ? snapshotEvery : entry(size - 1).depth + 1;
+        version++;
+        append(depth >= snapshotEvery ? Entry.snapshot(after, snapshotBytes()) : diff(before, after, depth));
+        return this;
+    }
+
+    private Entry diff(T before, T after, int depth) {
+        int changed = 0;
+        int[] slots = new int[metadata.size()];
+        for (int i = 0; i < slots.length; i++) {
+            boolean same = metadata.kind(i) == PrimitiveSlots.REFERENCE
+                ? readValue(i, before) == readValue(i, after)
+                : readBits(i, before) == readBits(i, after);
+            if (!same) {
+                slots[changed++] = i;
+            }
+        }
+        int[] diffSlots = new int[changed];
+        Object[] references = new Object[changed];
+        long[] bits = new long[changed];
+        for (int k = 0; k < changed; k++) {
+            int slot = slots[k];
+            diffSlots[k] = slot;
+            if (metadata.kind(slot) == PrimitiveSlots.REFERENCE) {
+                references[k] = readValue(slot, after);
+            } else {
+                bits[k] = readBits(slot, after);
+            }
+        }
+        long entryBytes = OBJECT_BYTES + 3 * (ARRAY_BYTES + REFERENCE_BYTES)
+            + changed * (Integer.BYTES + REFERENCE_BYTES + Long.BYTES);
+        return new Entry(null, diffSlots, references, bits, depth, entryBytes);
+    }
+
+    private void append(Entry entry) {
+        entries[(first + size) % entries.length] = entry;
+        size++;
+        bytes += entry.bytes;
+        // the current version always stays, however small the byte budget
+        while (bytes > maxBytes && oldest < version) {
+            evictOldest();
+        }
+    }
+
+    private void evictOldest() {
+        Entry next = size > 1 ? entry(1) : null;
+        if (next != null && next.snapshot == null) {
+            // the oldest version left must be a snapshot, so the versions after it can still be rebuilt.
+            // It may be the current version, but the current record can already be the next one
+            Entry promoted = Entry.snapshot(rebuild(1), snapshotBytes());
+            // the diffs after it count their depth from the new snapshot
+            for (int i = 2; i < size && entry(i).snapshot == null; i++) {
+                entry(i).depth -= next.depth;
+            }
+            bytes += promoted.bytes - next.bytes;
+            entries[(first + 1) % entries.length] = promoted;
+        }
+        bytes -= entry(0).bytes;
+        entries[first] = null;
+        first = (first + 1) % entries.length;
+        size--;
+        oldest++;
+    }
+
+    private Entry entry(int index) {
+        return entries[(first + index) % entries.length];
+    }
+
+    private long snapshotBytes() {
+        return OBJECT_BYTES + REFERENCE_BYTES + OBJECT_BYTES + metadata.size() * Long.BYTES;
+    }
+
+    private long readBits(int slot, T rec) {
+        try {
+            return metadata.bits(slot, rec);
+        } catch (RuntimeException e) {
+            throw new GetterException(e);
+        }
+    }
+
+    private Object readValue(int slot, T rec) {
+        try {
+            return metadata.getter(slot).apply(rec);
+        } catch (RuntimeException e) {
+            throw new GetterException(e);
+        }
+    }
+
+    /**
+     * One version: either a snapshot of the whole record, or the components that changed since the
+     * version before it.
+     */
+    private static final class Entry {
+        private final Record snapshot;
+        private final int[] slots;
+        private final Object[] references;
+        private final long[] bits;
+        // how many versions back the snapshot this diff builds on is; 0 for snapshots
+        private int depth;
+        private final long bytes;
+
+        private Entry(Record snapshot, int[] slots, Object[] references, long[] bits, int depth, long bytes) {
+            this.snapshot = snapshot;
+            this.slots = slots;
+            this.references = references;
+            this.bits = bits;
+            this.depth = depth;
+            this.bytes = bytes;
+        }
+
+        static Entry snapshot(Record rec, long bytes) {
+            return new Entry(rec, null, null, null, 0, bytes);
+        }
+    }
+
+    /**
+     * Sets the budget for a VersionedRecordTransformer's history.
+     *
+     * @param <T> the type of the record being wrapped
+     */
+    public static final class Builder<T extends Record> {
+        private final T rec;
+        private int maxVersions = 1024;
+        private long maxBytes = Long.MAX_VALUE;
+        private int snapshotEvery = 32;
+
+        private Builder(T rec) {
+            this.rec = rec;
+        }
+
+        /**
+         * @param maxVersions the most versions to keep, including the current one. Defaults to 1024.
+         * @return this, for chaining
+         * @throws IllegalArgumentException if maxVersions is less than 1
+         */
+        public Builder<T> maxVersions(int maxVersions) {
+            if (maxVersions < 1) {
+                throw new IllegalArgumentException("maxVersions must be at least 1, was " + maxVersions);
+            }
+            this.maxVersions = maxVersions;
+            return this;
+        }
+
+        /**
+         * @param maxBytes the most memory, estimated, for the history to use. The current version is
+         * kept regardless. Unlimited by default.
+         * @return this, for chaining
+         */
+        public Builder<T> maxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * @param snapshotEvery how many versions apart snapshots are. Lower means faster lookups
+         * and more memory. Defaults to 32.
+         * @return this, for chaining
+         * @throws IllegalArgumentException if snapshotEvery is less than 1
+         */
+        public Builder<T> snapshotEvery(int snapshotEvery) {
+            if (snapshotEvery < 1) {
+                throw new IllegalArgumentException("snapshotEvery must be at least 1, was " + snapshotEvery);
+            }
+            this.snapshotEvery = snapshotEvery;
+            return this;
+        }
+
+        /**
+         * @return a transformer at version 0
+         * @throws GetterException thrown if the wrapper can't get record components from the record
+         */
+        public VersionedRecordTransformer<T> build() throws GetterException {
+            return new VersionedRecordTransformer<>(this);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import otherpackage.ForeignRecord;
+
+class AccessorResolverTest {
+    @Test
+    void shouldResolveComponentName() {
+        var rec = new ForeignRecord(1, "foo");
+        Assertions.assertEquals("a", AccessorResolver.componentName((Accessor<Integer>) rec::a));
+        Assertions.assertEquals("b", AccessorResolver.componentName((Accessor<String>) rec::b));
+    }
+
+    @Test
+    void shouldResolveEveryInstanceOfALambdaClass() {
+        for (int i = 0; i < 3; i++) {
+            var rec = new ForeignRecord(i, "foo");
+            Accessor<Integer> getter = rec::a;
+            Assertions.assertEquals("a", AccessorResolver.componentName(getter));
+        }
+    }
+
+    @Test
+    void shouldExplodeForNonLambdaAccessor() {
+        Accessor<Integer> notALambda = new Accessor<>() {
+            @Override
+            public Integer get() {
+                return 1;
+            }
+        };
+        Assertions.assertThrows(GetterException.class, () -> AccessorResolver.componentName(notALambda));
+    }
+}
@@ -0,0 +1,66 @@
+package com.sikina.recordtransformer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures wrapping records in CachedRecordTransformers from many threads at once. Every thread hits
+ * the same cache entry, so throughput should grow with the thread count instead of flattening out
+ * on a lock.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 2, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 8)
+public class CachedRecordTransformerBenchmark {
+    private final RecordTransformerBenchmark.LargeRecord start =
+        new RecordTransformerBenchmark.LargeRecord(1, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(CachedRecordTransformerBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public RecordTransformer<RecordTransformerBenchmark.LargeRecord> wrap1Thread() {
+        return new CachedRecordTransformer<>(start);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public RecordTransformer<RecordTransformerBenchmark.LargeRecord> wrap8Threads() {
+        return new CachedRecordTransformer<>(start);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public RecordTransformer<RecordTransformerBenchmark.LargeRecord> wrap32Threads() {
+        return new CachedRecordTransformer<>(start);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public RecordTransformer<RecordTransformerBenchmark.LargeRecord> wrap64Threads() {
+        return new CachedRecordTransformer<>(start);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public RecordTransformer<RecordTransformerBenchmark.LargeRecord> wrapAndTransform32Threads() {
+        return new CachedRecordTransformer<>(start)
+            .withTypeUnsafe("a", 2)
+            .transform();
+    }
+}
@@ -0,0 +1,103 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import otherpackage.ForeignRecord;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedRecordTransformerTest {
+
+    /**
+     * Loads its own copy of ForeignRecord, so that two different classes share the name otherpackage.ForeignRecord
+     */
+    private static final class IsolatingClassLoader extends ClassLoader {
+        private static final String ISOLATED = ForeignRecord.class.getName();
+
+        IsolatingClassLoader() {
+            super(CachedRecordTransformerTest.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!ISOLATED.equals(name)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded != null) {
+                    return loaded;
+                }
+                String resource = name.replace('.', '/') + ".class";
+                try (InputStream in = getParent().getResourceAsStream(resource)) {
+                    byte[] bytes = in.readAllBytes();
+                    return defineClass(name, bytes, 0, bytes.length);
+                } catch (IOException e) {
+                    throw new ClassNotFoundException(name, e);
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldTransformRecord() {
+        var t = new CachedRecordTransformer<>(new RecordTransformerTest.ExampleRec(1, "foo"));
+        RecordTransformerTest.ExampleRec actual = t.with(t.rec()::a).as(2)
+            .transform()
+            .rec();
+
+        RecordTransformerTest.ExampleRec expected = new RecordTransformerTest.ExampleRec(2, "foo");
+        Assertions.assertEquals(expected, actual);
+
+        // and now while cached
+        t = new CachedRecordTransformer<>(new RecordTransformerTest.ExampleRec(1, "foo"));
+        actual = t.with(t.rec()::a).as(2)
+            .transform()
+            .rec();
+
+        expected = new RecordTransformerTest.ExampleRec(2, "foo");
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void shouldNotMixUpRecordsWithTheSameNameFromDifferentClassLoaders() throws ReflectiveOperationException {
+        var t = new CachedRecordTransformer<>(new ForeignRecord(1, "foo"));
+        Assertions.assertEquals(new ForeignRecord(1, "bar"), t.withTypeUnsafe("b", "bar").transform().rec());
+
+        Record isolated = newIsolatedForeignRecord(new IsolatingClassLoader());
+        Assertions.assertNotEquals(ForeignRecord.class, isolated.getClass());
+        Assertions.assertEquals(ForeignRecord.class.getName(), isolated.getClass().getName());
+
+        var isolatedTransformer = new CachedRecordTransformer<>(isolated);
+        Record actual = isolatedTransformer.withTypeUnsafe("b", "bar").transform().rec();
+        Assertions.assertEquals(isolated.getClass(), actual.getClass());
+        Assertions.assertEquals("ForeignRecord[a=1, b=bar]", actual.toString());
+    }
+
+    @Test
+    void shouldNotPinClassLoaders() throws ReflectiveOperationException, InterruptedException {
+        WeakReference<ClassLoader> loader = transformInIsolatedClassLoader();
+
+        for (int i = 0; i < 50 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assertions.assertNull(loader.get());
+    }
+
+    private WeakReference<ClassLoader> transformInIsolatedClassLoader() throws ReflectiveOperationException {
+        IsolatingClassLoader loader = new IsolatingClassLoader();
+        var t = new CachedRecordTransformer<>(newIsolatedForeignRecord(loader));
+        t.withTypeUnsafe("a", 2).transform();
+        return new WeakReference<>(loader);
+    }
+
+    private static Record newIsolatedForeignRecord(ClassLoader loader) throws ReflectiveOperationException {
+        Class<?> isolatedClass = loader.loadClass(ForeignRecord.class.getName());
+        return (Record) isolatedClass.getConstructor(int.class, String.class).newInstance(1, "foo");
+    }
+}
@@ -0,0 +1,119 @@
+package com.sikina.recordtransformer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many threads bumping a counter in one shared record: through a ConcurrentRecordTransformer, and
+ * through a RecordTransformer guarded by a lock, which is what sharing a transformer took before.
+ * The mixed groups add readers, which never wait for the CAS version but queue up behind the lock.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 2, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 8)
+public class ConcurrentRecordTransformerBenchmark {
+    private final RecordTransformerBenchmark.LargeRecord start =
+        new RecordTransformerBenchmark.LargeRecord(1, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+
+    private final ConcurrentRecordTransformer<RecordTransformerBenchmark.LargeRecord> concurrent =
+        new ConcurrentRecordTransformer<>(start);
+
+    private final RecordTransformer<RecordTransformerBenchmark.LargeRecord> locked = new RecordTransformer<>(start);
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(ConcurrentRecordTransformerBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+
+    private RecordTransformerBenchmark.LargeRecord bumpConcurrent() {
+        return concurrent.update(RecordTransformerBenchmark.LargeRecord::a, a -> a + 1);
+    }
+
+    private RecordTransformerBenchmark.LargeRecord bumpLocked() {
+        synchronized (locked) {
+            return locked.update(locked.rec()::a, a -> a + 1).transform().rec();
+        }
+    }
+
+    private RecordTransformerBenchmark.LargeRecord readLocked() {
+        synchronized (locked) {
+            return locked.rec();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public RecordTransformerBenchmark.LargeRecord concurrent1Thread() {
+        return bumpConcurrent();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public RecordTransformerBenchmark.LargeRecord concurrent8Threads() {
+        return bumpConcurrent();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public RecordTransformerBenchmark.LargeRecord concurrent32Threads() {
+        return bumpConcurrent();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public RecordTransformerBenchmark.LargeRecord synchronized1Thread() {
+        return bumpLocked();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public RecordTransformerBenchmark.LargeRecord synchronized8Threads() {
+        return bumpLocked();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public RecordTransformerBenchmark.LargeRecord synchronized32Threads() {
+        return bumpLocked();
+    }
+
+    @Benchmark
+    @Group("mixedConcurrent")
+    @GroupThreads(6)
+    public RecordTransformerBenchmark.LargeRecord mixedConcurrentRead() {
+        return concurrent.rec();
+    }
+
+    @Benchmark
+    @Group("mixedConcurrent")
+    @GroupThreads(2)
+    public RecordTransformerBenchmark.LargeRecord mixedConcurrentWrite() {
+        return bumpConcurrent();
+    }
+
+    @Benchmark
+    @Group("mixedSynchronized")
+    @GroupThreads(6)
+    public RecordTransformerBenchmark.LargeRecord mixedSynchronizedRead() {
+        return readLocked();
+    }
+
+    @Benchmark
+    @Group("mixedSynchronized")
+    @GroupThreads(2)
+    public RecordTransformerBenchmark.LargeRecord mixedSynchronizedWrite() {
+        return bumpLocked();
+    }
+}
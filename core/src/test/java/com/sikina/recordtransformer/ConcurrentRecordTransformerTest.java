@@ -0,0 +1,121 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import otherpackage.ForeignRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+class ConcurrentRecordTransformerTest {
+
+    public record Counter(int count) {}
+
+    @Test
+    void shouldSetAndUpdate() {
+        var t = new ConcurrentRecordTransformer<>(new RecordTransformerTest.Tick(1, 2L, 3d, "d", 4f, 5));
+
+        Assertions.assertEquals(
+            new RecordTransformerTest.Tick(2, 2L, 3d, "d", 4f, 5),
+            t.set(RecordTransformerTest.Tick::a, 2)
+        );
+        t.update(RecordTransformerTest.Tick::b, b -> b * 10);
+        t.update(RecordTransformerTest.Tick::c, c -> c / 2);
+        t.set(RecordTransformerTest.Tick::d, "x");
+        t.update(RecordTransformerTest.Tick::e, e -> e + 1);
+
+        Assertions.assertEquals(new RecordTransformerTest.Tick(2, 20L, 1.5d, "x", 5f, 5), t.rec());
+    }
+
+    @Test
+    void shouldKeepRecordWhenNothingChanges() {
+        ForeignRecord rec = new ForeignRecord(1, "foo");
+        var t = new ConcurrentRecordTransformer<>(rec);
+
+        Assertions.assertSame(rec, t.set(ForeignRecord::a, 1));
+        Assertions.assertSame(rec, t.update(ForeignRecord::b, b -> b));
+        Assertions.assertSame(rec, t.set(ForeignRecord::hashCode, 5));
+        Assertions.assertSame(rec, t.update(ForeignRecord::hashCode, h -> h + 1));
+        Assertions.assertSame(rec, t.apply(RecordTransformation.builder(ForeignRecord.class).build()));
+        Assertions.assertSame(rec, t.rec());
+    }
+
+    @Test
+    void shouldApplyTransformation() {
+        var t = new ConcurrentRecordTransformer<>(new ForeignRecord(1, "foo"));
+        RecordTransformation<ForeignRecord> bump = RecordTransformation.builder(ForeignRecord.class)
+            .update(ForeignRecord::a, a -> a + 1)
+            .update(ForeignRecord::b, b -> b + "!")
+            .build();
+
+        t.apply(bump);
+        Assertions.assertEquals(new ForeignRecord(3, "foo!!"), t.apply(bump));
+    }
+
+    @Test
+    void shouldCountOnlyTheChangesThatWin() {
+        var t = new ConcurrentRecordTransformer<>(new Counter(0));
+        TransformCounts before = RecordTransformers.counts(Counter.class);
+        boolean[] raced = {false};
+        t.update(Counter::count, count -> {
+            if (!raced[0]) {
+                // another change gets in first, so this one loses its first round and is applied again
+                raced[0] = true;
+                t.set(Counter::count, 10);
+            }
+            return count + 1;
+        });
+        t.set(Counter::count, 11);
+        TransformCounts after = RecordTransformers.counts(Counter.class);
+
+        Assertions.assertEquals(new Counter(11), t.rec());
+        Assertions.assertEquals(2, after.performed() - before.performed());
+        Assertions.assertEquals(1, after.skipped() - before.skipped());
+    }
+
+    @Test
+    void shouldNotLoseUpdatesFromManyThreads() throws Exception {
+        var t = new ConcurrentRecordTransformer<>(new ForeignRecord(0, "foo"));
+        RecordTransformation<ForeignRecord> bump = RecordTransformation.builder(ForeignRecord.class)
+            .update(ForeignRecord::a, a -> a + 1)
+            .build();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        t.update(ForeignRecord::a, a -> a + 1);
+                        t.apply(bump);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertEquals(new ForeignRecord(40_000, "foo"), t.rec());
+    }
+
+    @Test
+    void shouldExplode() {
+        var t = new ConcurrentRecordTransformer<>(new ForeignRecord(1, "foo"));
+        Assertions.assertThrows(ConstructorException.class, () -> t.update(ForeignRecord::a, a -> null));
+
+        var exploding = new ConcurrentRecordTransformer<>(new RecordTransformerTest.ExplodingRecord(1, "foo"));
+        Assertions.assertThrows(
+            GetterException.class,
+            () -> exploding.set(RecordTransformerTest.ExplodingRecord::b, "bar")
+        );
+        Assertions.assertThrows(
+            GetterException.class,
+            () -> exploding.update(RecordTransformerTest.ExplodingRecord::a, a -> a + 1)
+        );
+    }
+}
@@ -0,0 +1,320 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import otherpackage.ForeignRecord;
+
+import java.util.List;
+
+class GeneratedTransformerTest {
+
+    public record EveryType(
+        boolean z, byte b, short s, char c, int i, long j, float f, double d,
+        String str, Object obj, int[] array, List<String> list
+    ) {}
+
+    private record PrivateRecord(int a, String b) {}
+
+    public record EmptyRecord() {}
+
+    public record Pos(int x, String name) {
+        public Pos {
+            if (x < 0) {
+                throw new IllegalArgumentException("negative: " + x);
+            }
+        }
+    }
+
+    public record WideRecord(
+        long a0, long a1, long a2, long a3, long a4, long a5, long a6, long a7, long a8, long a9,
+        double b0, double b1, double b2, double b3, double b4, double b5, double b6, double b7, double b8, double b9,
+        String c0, String c1, String c2, String c3, String c4, String c5, String c6, String c7, String c8, String c9,
+        int d0, int d1, int d2, int d3, int d4, int d5, int d6, int d7, int d8, int d9,
+        long e0, long e1, long e2, long e3, long e4, long e5, long e6, long e7, long e8, long e9,
+        long f0, long f1, long f2, long f3, long f4, long f5, long f6, long f7, long f8, long f9
+    ) {}
+
+    @Test
+    void shouldTransformRecord() {
+        var t = RecordTransformers.generated(new RecordTransformerTest.ExampleRec(1, "foo"));
+        RecordTransformerTest.ExampleRec actual = t.with(t.rec()::a).as(2)
+            .transform()
+            .rec();
+        Assertions.assertEquals(new RecordTransformerTest.ExampleRec(2, "foo"), actual);
+
+        actual = t.withTypeUnsafe("b", "bar")
+            .transform()
+            .rec();
+        Assertions.assertEquals(new RecordTransformerTest.ExampleRec(2, "bar"), actual);
+    }
+
+    @Test
+    void shouldTransformRecordFromAnotherPackage() {
+        var t = RecordTransformers.generated(new ForeignRecord(1, "foo"));
+        ForeignRecord actual = t.with(t.rec()::a).as(2)
+            .with(t.rec()::b).as("bar")
+            .transform()
+            .rec();
+        Assertions.assertEquals(new ForeignRecord(2, "bar"), actual);
+    }
+
+    @Test
+    void shouldTransformPrivateRecord() {
+        var t = RecordTransformers.generated(new PrivateRecord(1, "foo"));
+        Assertions.assertEquals(new PrivateRecord(1, "bar"), t.withTypeUnsafe("b", "bar").transform().rec());
+    }
+
+    @Test
+    void shouldTransformRecordWithNonCanonicalConstructor() {
+        var t = RecordTransformers.generated(new RecordTransformerTest.RecordWithNonCanonicalConstructor(true));
+        Assertions.assertEquals(
+            new RecordTransformerTest.RecordWithNonCanonicalConstructor(2),
+            t.withTypeUnsafe("a", 2).transform().rec()
+        );
+    }
+
+    @Test
+    void shouldTransformRecordWithExtraMethod() {
+        var t = RecordTransformers.generated(new RecordTransformerTest.RecordWithExtraMethod(1));
+        Assertions.assertEquals(
+            new RecordTransformerTest.RecordWithExtraMethod(2),
+            t.with(t.rec()::a).as(2).transform().rec()
+        );
+    }
+
+    @Test
+    void shouldTransformEveryComponentType() {
+        int[] array = {1};
+        var t = RecordTransformers.generated(new EveryType(
+            false, (byte) 1, (short) 1, 'a', 1, 1L, 1f, 1d, "a", 1, array, List.of("a")
+        ));
+        int[] newArray = {2};
+        EveryType actual = t
+            .with(t.rec()::z).as(true)
+            .with(t.rec()::b).as((byte) 2)
+            .with(t.rec()::s).as((short) 2)
+            .with(t.rec()::c).as('b')
+            .with(t.rec()::i).as(2)
+            .with(t.rec()::j).as(2L)
+            .with(t.rec()::f).as(2f)
+            .with(t.rec()::d).as(2d)
+            .with(t.rec()::str).as("b")
+            .with(t.rec()::obj).as("anything")
+            .with(t.rec()::array).as(newArray)
+            .with(t.rec()::list).as(List.of("b"))
+            .transform()
+            .rec();
+        Assertions.assertEquals(
+            new EveryType(true, (byte) 2, (short) 2, 'b', 2, 2L, 2f, 2d, "b", "anything", newArray, List.of("b")),
+            actual
+        );
+    }
+
+    @Test
+    void shouldTransformEmptyRecord() {
+        var t = RecordTransformers.generated(new EmptyRecord());
+        Assertions.assertEquals(new EmptyRecord(), t.withTypeUnsafe("a", 1).transform().rec());
+    }
+
+    @Test
+    void shouldTransformWideRecord() {
+        var start = new WideRecord(
+            0, 1, 2, 3, 4, 5, 6, 7, 8, 9,
+            0, 1, 2, 3, 4, 5, 6, 7, 8, 9,
+            "0", "1", "2", "3", "4", "5", "6", "7", "8", "9",
+            0, 1, 2, 3, 4, 5, 6, 7, 8, 9,
+            0, 1, 2, 3, 4, 5, 6, 7, 8, 9,
+            0, 1, 2, 3, 4, 5, 6, 7, 8, 9
+        );
+        var t = RecordTransformers.generated(start);
+        WideRecord actual = t.with(t.rec()::a0).as(-1L)
+            .with(t.rec()::f9).as(-1L)
+            .with(t.rec()::c5).as("five")
+            .transform()
+            .rec();
+        Assertions.assertEquals(-1L, actual.a0());
+        Assertions.assertEquals(-1L, actual.f9());
+        Assertions.assertEquals("five", actual.c5());
+        Assertions.assertEquals(start.b9(), actual.b9());
+        Assertions.assertEquals(start.e0(), actual.e0());
+    }
+
+    @Test
+    void shouldShareGeneratedClassPerRecordType() {
+        var first = RecordTransformers.generated(new ForeignRecord(1, "foo"));
+        var second = RecordTransformers.generated(new ForeignRecord(2, "bar"));
+        Assertions.assertSame(first.getClass(), second.getClass());
+        Assertions.assertTrue(first.getClass().isHidden());
+        Assertions.assertEquals(new ForeignRecord(1, "foo"), first.transform().rec());
+        Assertions.assertEquals(new ForeignRecord(2, "bar"), second.transform().rec());
+    }
+
+    @Test
+    void shouldIgnoreKeysThatAreNotComponents() {
+        var t = RecordTransformers.generated(new ForeignRecord(1, "foo"));
+        Assertions.assertEquals(new ForeignRecord(1, "foo"), t.withTypeUnsafe("c", 2).transform().rec());
+    }
+
+    @Test
+    void shouldExplodeOnTypeMismatch() {
+        var t = RecordTransformers.generated(new ForeignRecord(1, "foo"));
+        Assertions.assertThrows(ClassCastException.class, () -> t.withTypeUnsafe("a", "foo"));
+        Assertions.assertThrows(ClassCastException.class, () -> t.withTypeUnsafe("b", 1));
+        Assertions.assertThrows(NullPointerException.class, () -> t.withTypeUnsafe("a", null));
+    }
+
+    @Test
+    void shouldExplodeWhenGetterExplodes() {
+        Assertions.assertThrows(
+            GetterException.class,
+            () -> RecordTransformers.generated(new RecordTransformerTest.ExplodingRecord(1, "foo"))
+        );
+    }
+
+    @Test
+    void shouldExplodeOnTransform() {
+        var t = RecordTransformers.generated(new RecordTransformerTest.RecordWithConstructorThatSometimesExplodes(false));
+        var rec = t.rec();
+        t.with(t.rec()::explode).as(true);
+        Assertions.assertThrows(ConstructorException.class, t::transform);
+
+        // the rejected value is dropped, so the next transform starts from the current record again
+        Assertions.assertSame(rec, t.transform().rec());
+        var pos = RecordTransformers.generated(new Pos(1, "a"));
+        pos.withTypeUnsafe("x", -1);
+        Assertions.assertThrows(ConstructorException.class, pos::transform);
+        Assertions.assertEquals(new Pos(1, "b"), pos.withTypeUnsafe("name", "b").transform().rec());
+    }
+
+    @Test
+    void shouldTransformPrimitivesWithoutBoxing() {
+        var t = RecordTransformers.generated(new RecordTransformerTest.Tick(1, 2L, 3d, "d", 4f, 5));
+        RecordTransformerTest.Tick actual = t.withInt(t.rec()::a).as(10)
+            .withLong(t.rec()::b).as(20L)
+            .withDouble(t.rec()::c).as(30.5)
+            .transform()
+            .rec();
+        Assertions.assertEquals(new RecordTransformerTest.Tick(10, 20L, 30.5, "d", 4f, 5), actual);
+
+        actual = t.withInt("b", 7)
+            .withLong("c", 8L)
+            .withDouble("f", 10d)
+            .withTypeUnsafe("a", (short) 11)
+            .transform()
+            .rec();
+        Assertions.assertEquals(new RecordTransformerTest.Tick(11, 7L, 8d, "d", 4f, 10d), actual);
+    }
+
+    @Test
+    void shouldExplodeOnPrimitiveMismatch() {
+        var t = RecordTransformers.generated(new RecordTransformerTest.Tick(1, 2L, 3d, "d", 4f, 5));
+        Assertions.assertThrows(ClassCastException.class, () -> t.withLong("a", 1L));
+        Assertions.assertThrows(ClassCastException.class, () -> t.withDouble("b", 1d));
+        Assertions.assertThrows(ClassCastException.class, () -> t.withInt("d", 1));
+        Assertions.assertThrows(ClassCastException.class, () -> t.withDouble("e", 1d));
+        Assertions.assertEquals(new RecordTransformerTest.Tick(1, 2L, 3d, "d", 4f, 5), t.transform().rec());
+    }
+
+    @Test
+    void shouldWidenIntoOtherPrimitivesAsTheConstructorWould() {
+        var tick = RecordTransformers.generated(new RecordTransformerTest.Tick(1, 2L, 3d, "d", 4f, 5));
+        Assertions.assertEquals(new RecordTransformerTest.Tick(1, 2L, 3d, "d", 7f, 5), tick.withInt("e", 7).transform().rec());
+        Assertions.assertEquals(new RecordTransformerTest.Tick(1, 2L, 3d, "d", 8f, 5), tick.withLong("e", 8L).transform().rec());
+
+        var t = RecordTransformers.generated(new EveryType(
+            false, (byte) 1, (short) 1, 'a', 1, 1L, 1f, 1d, "a", 1, null, List.of("a")
+        ));
+        EveryType actual = t.withTypeUnsafe("s", (byte) 2).withTypeUnsafe("f", 'b').transform().rec();
+        Assertions.assertEquals((short) 2, actual.s());
+        Assertions.assertEquals(98f, actual.f());
+        Assertions.assertThrows(ClassCastException.class, () -> t.withInt("s", 3));
+        Assertions.assertThrows(ClassCastException.class, () -> t.withInt("c", 3));
+    }
+
+    @Test
+    void shouldUpdateFromQueuedValue() {
+        var t = RecordTransformers.generated(new EveryType(
+            false, (byte) 1, (short) 1, 'a', 1, 1L, 1f, 1d, "a", 1, null, List.of("a")
+        ));
+        EveryType actual = t.update(t.rec()::z, z -> !z)
+            .update(t.rec()::b, b -> (byte) (b + 1))
+            .update(t.rec()::s, s -> (short) (s + 1))
+            .update(t.rec()::c, c -> (char) (c + 1))
+            .update(t.rec()::i, i -> i + 1)
+            .with(t.rec()::j).as(5L)
+            .update(t.rec()::j, j -> j + 1)
+            .update(t.rec()::f, f -> f + 1)
+            .update(t.rec()::d, d -> d + 1)
+            .update(t.rec()::str, str -> str + "b")
+            .update(t.rec()::list, list -> List.of("b"))
+            .transform()
+            .rec();
+        Assertions.assertEquals(
+            new EveryType(true, (byte) 2, (short) 2, 'b', 2, 6L, 2f, 2d, "ab", 1, null, List.of("b")),
+            actual
+        );
+    }
+
+    @Test
+    void shouldFuseQueuedUpdates() {
+        var t = RecordTransformers.generated(new RecordTransformerTest.CountingRecord(1, "a"));
+        int before = RecordTransformerTest.CountingRecord.constructed;
+        RecordTransformerTest.CountingRecord actual = t.update(t.rec()::a, a -> a + 1)
+            .update(t.rec()::a, a -> a * 10)
+            .transform()
+            .rec();
+
+        Assertions.assertEquals(new RecordTransformerTest.CountingRecord(20, "a"), actual);
+        Assertions.assertEquals(before + 2, RecordTransformerTest.CountingRecord.constructed);
+    }
+
+    @Test
+    void shouldUpdateNestedComponents() {
+        RecordTransformerTest.Geo geo = new RecordTransformerTest.Geo(1, 2);
+        var t = RecordTransformers.generated(new RecordTransformerTest.Person(
+            new RecordTransformerTest.Address("a", geo, 1), "p"
+        ));
+        RecordTransformerTest.Person actual = t.with(t.rec()::address).then(RecordTransformerTest.Address::city).as("b")
+            .with(t.rec()::address).then(RecordTransformerTest.Address::zip).as(2)
+            .transform()
+            .rec();
+
+        Assertions.assertEquals(
+            new RecordTransformerTest.Person(new RecordTransformerTest.Address("b", geo, 2), "p"),
+            actual
+        );
+        Assertions.assertSame(geo, actual.address().geo());
+    }
+
+    @Test
+    void shouldKeepRecordWhenNothingChanges() {
+        RecordTransformerTest.ExampleRec rec = new RecordTransformerTest.ExampleRec(1, "foo");
+        var t = RecordTransformers.generated(rec);
+        TransformCounts before = RecordTransformers.counts(RecordTransformerTest.ExampleRec.class);
+
+        Assertions.assertSame(rec, t.transform().rec());
+        Assertions.assertSame(rec, t.withInt(t.rec()::a).as(1).with(t.rec()::b).as(rec.b()).transform().rec());
+        t.with(t.rec()::a).as(2).withTypeUnsafe("a", 1);
+        // a value that was changed and then changed back still builds a record
+        Assertions.assertNotSame(rec, t.transform().rec());
+        Assertions.assertEquals(rec, t.rec());
+
+        TransformCounts after = RecordTransformers.counts(RecordTransformerTest.ExampleRec.class);
+        Assertions.assertEquals(before.performed() + 1, after.performed());
+        Assertions.assertEquals(before.skipped() + 2, after.skipped());
+    }
+
+    @Test
+    void shouldResetToAnotherRecord() {
+        var t = RecordTransformers.generated(new RecordTransformerTest.ExampleRec(1, "foo"));
+        t.withTypeUnsafe("b", "dropped");
+
+        RecordTransformerTest.ExampleRec next = new RecordTransformerTest.ExampleRec(5, "bar");
+        Assertions.assertSame(next, t.reset(next).transform().rec());
+        Assertions.assertEquals(new RecordTransformerTest.ExampleRec(6, "bar"), t.withInt("a", 6).transform().rec());
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        GeneratedTransformer<Record> raw = (GeneratedTransformer) t;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> raw.reset(new ForeignRecord(1, "foo")));
+    }
+}
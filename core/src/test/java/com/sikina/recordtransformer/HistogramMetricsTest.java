@@ -0,0 +1,115 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class HistogramMetricsTest {
+
+    public record Measured(int count, String name) {}
+    public record Rare(int count) {}
+    public record Unmeasured(int count) {}
+
+    private final HistogramMetrics metrics = new HistogramMetrics();
+
+    @BeforeEach
+    void install() {
+        RecordTransformers.metrics(metrics);
+    }
+
+    @AfterEach
+    void uninstall() {
+        RecordTransformers.metrics(TransformMetrics.NONE);
+    }
+
+    @Test
+    void shouldInstallAndUninstallMetrics() {
+        Assertions.assertSame(metrics, RecordTransformers.metrics());
+        RecordTransformers.metrics(TransformMetrics.NONE);
+
+        Assertions.assertSame(TransformMetrics.NONE, RecordTransformers.metrics());
+        Assertions.assertThrows(NullPointerException.class, () -> RecordTransformers.metrics(null));
+    }
+
+    @Test
+    void shouldCountTransformsPerRecordType() {
+        var t = new RecordTransformer<>(new Measured(1, "a"));
+        t.with(t.rec()::count).as(2).transform();
+        t.with(t.rec()::count).as(2).transform();
+        t.with(t.rec()::name).as("b").transform();
+        new RecordTransformer<>(new Rare(1)).withInt("count", 2).transform();
+
+        Assertions.assertEquals(new TransformCounts(2, 1), metrics.counts(Measured.class));
+        Assertions.assertEquals(new TransformCounts(1, 0), metrics.counts(Rare.class));
+        Assertions.assertEquals(List.of(Measured.class, Rare.class), metrics.recordTypes());
+        Assertions.assertEquals(3, metrics.latency(Measured.class).count());
+        Assertions.assertTrue(metrics.latency(Measured.class).max() > 0);
+    }
+
+    @Test
+    void shouldMeasureEveryKindOfTransformer() {
+        var generated = RecordTransformers.generated(new Measured(1, "a"));
+        generated.withInt("count", 2).transform();
+        generated.transform();
+        var shared = new ConcurrentRecordTransformer<>(new Measured(1, "a"));
+        shared.set(Measured::count, 3);
+        shared.set(Measured::count, 3);
+        shared.update(Measured::name, name -> name);
+
+        Assertions.assertEquals(new TransformCounts(2, 3), metrics.counts(Measured.class));
+    }
+
+    @Test
+    void shouldReportNothingForUnknownTypes() {
+        Assertions.assertEquals(new TransformCounts(0, 0), metrics.counts(Unmeasured.class));
+        Assertions.assertEquals(0, metrics.latency(Unmeasured.class).count());
+        Assertions.assertEquals(List.of(), metrics.recordTypes());
+    }
+
+    @Test
+    void shouldCountAccessorCacheHitsAndMisses() {
+        var t = new RecordTransformer<>(new Measured(1, "a"));
+        for (int i = 0; i < 3; i++) {
+            // the same method reference expression, so the same lambda class every time
+            t.with(t.rec()::name).as("b" + i);
+        }
+
+        Assertions.assertEquals(1, metrics.accessorCacheMisses());
+        Assertions.assertEquals(2, metrics.accessorCacheHits());
+        Assertions.assertEquals(3, metrics.accessorResolution().count());
+    }
+
+    @Test
+    void shouldCountGetterCacheHitsAndMisses() {
+        record Fresh(int count) {}
+        new CachedRecordTransformer<>(new Fresh(1));
+        new CachedRecordTransformer<>(new Fresh(2));
+        new RecordTransformer<>(new Fresh(3));
+
+        Assertions.assertEquals(1, metrics.getterCacheMisses());
+        Assertions.assertEquals(2, metrics.getterCacheHits());
+    }
+
+    @Test
+    void shouldMeasureNothingWhenUninstalled() {
+        RecordTransformers.metrics(TransformMetrics.NONE);
+        var t = new RecordTransformer<>(new Measured(1, "a"));
+        t.with(t.rec()::count).as(2).transform();
+
+        Assertions.assertEquals(List.of(), metrics.recordTypes());
+        Assertions.assertEquals(0, metrics.accessorResolution().count());
+        Assertions.assertEquals(0, metrics.getterCacheHits() + metrics.getterCacheMisses());
+    }
+
+    @Test
+    void shouldIgnoreHooksItDoesNotImplement() {
+        TransformMetrics partial = new TransformMetrics() {};
+        RecordTransformers.metrics(partial);
+        var t = new RecordTransformer<>(new Measured(1, "a"));
+
+        Assertions.assertEquals(new Measured(2, "a"), t.with(t.rec()::count).as(2).transform().rec());
+    }
+}
@@ -0,0 +1,116 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+
+class InternTableTest {
+
+    public record Point(int x, String label) {}
+
+    public record Cell(int row, int column) {}
+
+    public record Light(String color, long since) {}
+
+    public record Unused(int a) {}
+
+    /**
+     * Every instance hashes to the same slot
+     */
+    private record Collider(int value) {
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
+
+    @Test
+    void shouldReturnTheFirstEqualRecord() {
+        InternTable<Point> table = new InternTable<>(16);
+        Point first = new Point(1, "a");
+
+        Assertions.assertSame(first, table.intern(first));
+        Assertions.assertSame(first, table.intern(new Point(1, "a")));
+        Point other = new Point(2, "a");
+        Assertions.assertSame(other, table.intern(other));
+        Assertions.assertEquals(new InternCounts(1, 2), table.counts());
+    }
+
+    @Test
+    void shouldReplaceRecordsThatShareASlot() {
+        InternTable<Collider> table = new InternTable<>(16);
+        Collider one = new Collider(1);
+        Collider two = new Collider(2);
+
+        table.intern(one);
+        Assertions.assertSame(two, table.intern(two));
+        Collider anotherOne = new Collider(1);
+        Assertions.assertSame(anotherOne, table.intern(anotherOne));
+        Assertions.assertEquals(new InternCounts(0, 3), table.counts());
+    }
+
+    @Test
+    void shouldRoundCapacityUpToAPowerOfTwo() {
+        Assertions.assertEquals(1, new InternTable<Point>(1).capacity());
+        Assertions.assertEquals(8, new InternTable<Point>(5).capacity());
+        Assertions.assertEquals(8, new InternTable<Point>(8).capacity());
+    }
+
+    @Test
+    void shouldNotKeepRecordsAlive() throws InterruptedException {
+        InternTable<Point> table = new InternTable<>(16);
+        WeakReference<Point> interned = new WeakReference<>(table.intern(new Point(1, "gone")));
+
+        for (int i = 0; i < 50 && interned.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        Assertions.assertNull(interned.get());
+    }
+
+    @Test
+    void shouldInternEveryTransformerOnceTurnedOn() {
+        Cell before = new RecordTransformer<>(new Cell(0, 0)).withTypeUnsafe("row", 1).transform().rec();
+        Assertions.assertNotSame(before, new RecordTransformer<>(new Cell(0, 0)).withTypeUnsafe("row", 1).transform().rec());
+
+        RecordTransformers.intern(Cell.class, 64);
+        try {
+            Cell first = new RecordTransformer<>(new Cell(0, 0)).withTypeUnsafe("row", 1).transform().rec();
+            var cached = new CachedRecordTransformer<>(new Cell(5, 5));
+            Assertions.assertSame(first, cached.with(cached.rec()::row).as(1).with(cached.rec()::column).as(0).transform().rec());
+            var generated = RecordTransformers.generated(new Cell(1, 1));
+            Assertions.assertSame(first, generated.with(generated.rec()::column).as(0).transform().rec());
+            var concurrent = new ConcurrentRecordTransformer<>(new Cell(2, 0));
+            Assertions.assertSame(first, concurrent.set(Cell::row, 1));
+
+            Assertions.assertEquals(new InternCounts(3, 1), RecordTransformers.internCounts(Cell.class));
+            Assertions.assertEquals(0.75, RecordTransformers.internCounts(Cell.class).hitRate());
+        } finally {
+            RecordTransformers.intern(Cell.class, 0);
+        }
+        Assertions.assertEquals(new InternCounts(0, 0), RecordTransformers.internCounts(Cell.class));
+    }
+
+    @Test
+    void shouldStartOverWhenInterningIsTurnedOnAgain() {
+        RecordTransformers.intern(Light.class, 4);
+        try {
+            Light red = new RecordTransformer<>(new Light("green", 0)).withTypeUnsafe("color", "red").transform().rec();
+            RecordTransformers.intern(Light.class, 4);
+            Assertions.assertEquals(new InternCounts(0, 0), RecordTransformers.internCounts(Light.class));
+
+            Light again = new RecordTransformer<>(new Light("green", 0)).withTypeUnsafe("color", "red").transform().rec();
+            Assertions.assertNotSame(red, again);
+            Assertions.assertEquals(new InternCounts(0, 1), RecordTransformers.internCounts(Light.class));
+        } finally {
+            RecordTransformers.intern(Light.class, 0);
+        }
+    }
+
+    @Test
+    void shouldRejectNegativeCapacities() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RecordTransformers.intern(Unused.class, -1));
+        Assertions.assertEquals(0, RecordTransformers.internCounts(Unused.class).hitRate());
+    }
+}
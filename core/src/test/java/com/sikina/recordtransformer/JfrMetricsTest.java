@@ -0,0 +1,56 @@
+package com.sikina.recordtransformer;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class JfrMetricsTest {
+
+    public record Recorded(int count) {}
+
+    @AfterEach
+    void uninstall() {
+        RecordTransformers.metrics(TransformMetrics.NONE);
+    }
+
+    @Test
+    void shouldEmitAnEventPerTransform() throws IOException {
+        RecordTransformers.metrics(new JfrMetrics());
+        Path file = Files.createTempFile("transforms", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.sikina.recordtransformer.Transform");
+            recording.start();
+            var t = new RecordTransformer<>(new Recorded(1));
+            t.withInt("count", 2).transform();
+            t.withInt("count", 2).transform();
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().equals("com.sikina.recordtransformer.Transform"))
+                .toList();
+            Assertions.assertEquals(2, events.size());
+            Assertions.assertEquals(Recorded.class.getName(), events.get(0).getClass("recordType").getName());
+            Assertions.assertTrue(events.get(0).getBoolean("constructed"));
+            Assertions.assertFalse(events.get(1).getBoolean("constructed"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void shouldDoNothingOutsideARecording() {
+        RecordTransformers.metrics(new JfrMetrics());
+        var t = new RecordTransformer<>(new Recorded(1));
+
+        Assertions.assertEquals(new Recorded(2), t.withInt("count", 2).transform().rec());
+    }
+}
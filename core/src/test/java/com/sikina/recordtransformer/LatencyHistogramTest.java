@@ -0,0 +1,90 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+class LatencyHistogramTest {
+
+    @Test
+    void shouldBeEmptyAtFirst() {
+        var histogram = new LatencyHistogram();
+
+        Assertions.assertEquals(0, histogram.count());
+        Assertions.assertEquals(0, histogram.max());
+        Assertions.assertEquals(0.0, histogram.mean());
+        Assertions.assertEquals(0, histogram.percentile(99));
+    }
+
+    @Test
+    void shouldCountSmallValuesExactly() {
+        var histogram = new LatencyHistogram();
+        for (int i = 1; i <= 20; i++) {
+            histogram.record(i);
+        }
+
+        Assertions.assertEquals(20, histogram.count());
+        Assertions.assertEquals(20, histogram.max());
+        Assertions.assertEquals(10.5, histogram.mean());
+        Assertions.assertEquals(10, histogram.percentile(50));
+        Assertions.assertEquals(19, histogram.percentile(95));
+        Assertions.assertEquals(20, histogram.percentile(100));
+        Assertions.assertEquals(1, histogram.percentile(0));
+    }
+
+    @Test
+    void shouldKeepLargeValuesWithinThreePercent() {
+        var histogram = new LatencyHistogram();
+        long[] values = {33, 1_000, 12_345, 999_999, 1L << 40, Long.MAX_VALUE / 3};
+        for (long value : values) {
+            var single = new LatencyHistogram();
+            single.record(value);
+            single.record(0);
+            long reported = single.percentile(100);
+            Assertions.assertTrue(reported >= value, value + " reported as " + reported);
+            histogram.record(value);
+        }
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 2; value = value * 3 + 1) {
+            long highest = LatencyHistogram.highest(LatencyHistogram.bucket(value));
+            Assertions.assertTrue(highest >= value && highest - value <= value / 32, value + " is in a bucket up to " + highest);
+        }
+        Assertions.assertEquals(Long.MAX_VALUE / 3, histogram.max());
+    }
+
+    @Test
+    void shouldPutTheLargestValueInTheLastBucket() {
+        Assertions.assertEquals(Long.MAX_VALUE, LatencyHistogram.highest(LatencyHistogram.bucket(Long.MAX_VALUE)));
+        Assertions.assertEquals(31, LatencyHistogram.bucket(31));
+        Assertions.assertEquals(32, LatencyHistogram.bucket(32));
+    }
+
+    @Test
+    void shouldCountNegativeDurationsAsZero() {
+        var histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        Assertions.assertEquals(1, histogram.count());
+        Assertions.assertEquals(0, histogram.percentile(100));
+    }
+
+    @Test
+    void shouldRejectPercentilesOutOfRange() {
+        var histogram = new LatencyHistogram();
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> histogram.percentile(100.1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> histogram.percentile(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> histogram.percentile(Double.NaN));
+    }
+
+    @Test
+    void shouldRecordFromManyThreads() {
+        var histogram = new LatencyHistogram();
+        IntStream.range(0, 100_000).parallel().forEach(i -> histogram.record(i % 1000));
+
+        Assertions.assertEquals(100_000, histogram.count());
+        Assertions.assertEquals(999, histogram.max());
+        Assertions.assertEquals(499.5, histogram.mean(), 0.001);
+        Assertions.assertTrue(histogram.toString().startsWith("LatencyHistogram[count=100000"));
+    }
+}
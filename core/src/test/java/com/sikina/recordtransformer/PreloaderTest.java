@@ -0,0 +1,117 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import otherpackage.ForeignRecord;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+class PreloaderTest {
+
+    @TempDir
+    Path dir;
+
+    @AfterEach
+    void uninstall() {
+        RecordTransformers.metrics(TransformMetrics.NONE);
+    }
+
+    @Test
+    void shouldPreloadRecordsAndTheRecordsInThem() {
+        record Leaf(int x) {}
+        record Branch(Leaf leaf, String name) {}
+        var metrics = new HistogramMetrics();
+        RecordTransformers.metrics(metrics);
+
+        RecordTransformers.preload(Branch.class);
+        Assertions.assertEquals(2, metrics.getterCacheMisses());
+
+        var t = new RecordTransformer<>(new Branch(new Leaf(1), "a"));
+        Assertions.assertEquals(new Leaf(2), t.with(t.rec()::leaf).then(Leaf::x).as(2).transform().rec().leaf());
+        Assertions.assertEquals(2, metrics.getterCacheMisses());
+    }
+
+    @Test
+    void shouldPreloadGeneratedTransformers() {
+        record Generated(int x) {}
+        RecordTransformers.preloadGenerated(Generated.class);
+
+        Assertions.assertEquals(new Generated(2), RecordTransformers.generated(new Generated(1)).withInt("x", 2).transform().rec());
+    }
+
+    @Test
+    void shouldPreloadIndexedRecords() throws IOException {
+        index("# written by the processor", "", "otherpackage.ForeignRecord", "  " + Tick.class.getName() + "  ");
+        try (var loader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, getClass().getClassLoader())) {
+            Assertions.assertEquals(List.of(ForeignRecord.class, Tick.class), RecordTransformers.preloadIndexed(loader));
+        }
+    }
+
+    public record Tick(long time) {}
+
+    @Test
+    void shouldRejectStaleIndexes() throws IOException {
+        index("otherpackage.Deleted");
+        try (var loader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, getClass().getClassLoader())) {
+            Assertions.assertThrows(GetterException.class, () -> RecordTransformers.preloadIndexed(loader));
+        }
+        index("java.lang.String");
+        try (var loader = new URLClassLoader(new URL[]{dir.toUri().toURL()}, getClass().getClassLoader())) {
+            Assertions.assertThrows(GetterException.class, () -> RecordTransformers.preloadIndexed(loader));
+        }
+    }
+
+    private void index(String... lines) throws IOException {
+        Path index = dir.resolve(Preloader.INDEX);
+        Files.createDirectories(index.getParent());
+        Files.write(index, List.of(lines));
+    }
+
+    @Test
+    void shouldScanPackagesInDirectories() throws ReflectiveOperationException {
+        List<Class<? extends Record>> found = RecordTransformers.preloadPackage("otherpackage", getClass().getClassLoader());
+
+        Assertions.assertEquals(2, found.size());
+        Assertions.assertTrue(found.contains(ForeignRecord.class));
+        Assertions.assertTrue(found.contains(Class.forName("otherpackage.PackagePrivateRecord")));
+    }
+
+    @Test
+    void shouldScanPackagesInJars() throws IOException {
+        Path jar = dir.resolve("records.jar");
+        Path classes = Path.of(ForeignRecord.class.getProtectionDomain().getCodeSource().getLocation().getPath());
+        try (var out = new JarOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new JarEntry("otherpackage/"));
+            // without the class Unloadable extends, so that it fails to load
+            for (String name : List.of("ForeignRecord", "PackagePrivateRecord", "Unloadable")) {
+                out.putNextEntry(new JarEntry("otherpackage/" + name + ".class"));
+                Files.copy(classes.resolve("otherpackage").resolve(name + ".class"), (OutputStream) out);
+            }
+        }
+        // not delegating to the class path, so the records come from the jar
+        try (var loader = new URLClassLoader(new URL[]{jar.toUri().toURL()}, ClassLoader.getPlatformClassLoader())) {
+            List<String> found = RecordTransformers.preloadPackage("otherpackage", loader).stream()
+                .peek(type -> Assertions.assertSame(loader, type.getClassLoader()))
+                .map(Class::getName)
+                .toList();
+
+            // the package private record isn't accessible from another class loader's package
+            Assertions.assertEquals(List.of("otherpackage.ForeignRecord"), found);
+        }
+    }
+
+    @Test
+    void shouldFindNothingInUnknownPackages() {
+        Assertions.assertEquals(List.of(), RecordTransformers.preloadPackage("no.such.pkg", getClass().getClassLoader()));
+    }
+}
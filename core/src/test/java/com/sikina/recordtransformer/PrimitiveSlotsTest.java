@@ -0,0 +1,43 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PrimitiveSlotsTest {
+    @Test
+    void shouldOnlyStoreIntLongAndDoubleUnboxed() {
+        Assertions.assertEquals(PrimitiveSlots.INT, PrimitiveSlots.kindOf(int.class));
+        Assertions.assertEquals(PrimitiveSlots.LONG, PrimitiveSlots.kindOf(long.class));
+        Assertions.assertEquals(PrimitiveSlots.DOUBLE, PrimitiveSlots.kindOf(double.class));
+        Assertions.assertEquals(PrimitiveSlots.REFERENCE, PrimitiveSlots.kindOf(float.class));
+        Assertions.assertEquals(PrimitiveSlots.REFERENCE, PrimitiveSlots.kindOf(Integer.class));
+    }
+
+    @Test
+    void shouldAcceptWideningConversions() {
+        Assertions.assertTrue(PrimitiveSlots.acceptsBoxed(PrimitiveSlots.INT, (byte) 1));
+        Assertions.assertTrue(PrimitiveSlots.acceptsBoxed(PrimitiveSlots.LONG, 'a'));
+        Assertions.assertTrue(PrimitiveSlots.acceptsBoxed(PrimitiveSlots.DOUBLE, 1f));
+        Assertions.assertFalse(PrimitiveSlots.acceptsBoxed(PrimitiveSlots.INT, 1L));
+        Assertions.assertFalse(PrimitiveSlots.acceptsBoxed(PrimitiveSlots.LONG, 1d));
+        Assertions.assertFalse(PrimitiveSlots.acceptsBoxed(PrimitiveSlots.INT, null));
+        Assertions.assertFalse(PrimitiveSlots.acceptsBoxed(PrimitiveSlots.INT, "1"));
+    }
+
+    @Test
+    void shouldEncodeValuesForTheSlot() {
+        Assertions.assertEquals(-1L, PrimitiveSlots.fromBoxed(PrimitiveSlots.INT, -1));
+        Assertions.assertEquals(97L, PrimitiveSlots.fromBoxed(PrimitiveSlots.LONG, 'a'));
+        Assertions.assertEquals(5L, PrimitiveSlots.fromBoxed(PrimitiveSlots.LONG, 5L));
+        Assertions.assertEquals(Double.doubleToRawLongBits(5d), PrimitiveSlots.fromBoxed(PrimitiveSlots.DOUBLE, 5L));
+        Assertions.assertEquals(Double.doubleToRawLongBits(1.5d), PrimitiveSlots.fromBoxed(PrimitiveSlots.DOUBLE, 1.5f));
+        Assertions.assertEquals(Double.doubleToRawLongBits(2d), PrimitiveSlots.fromBoxed(PrimitiveSlots.DOUBLE, 2));
+    }
+
+    @Test
+    void shouldBoxSlotsAsTheComponentType() {
+        Assertions.assertEquals(-1, PrimitiveSlots.toBoxed(PrimitiveSlots.INT, -1L));
+        Assertions.assertEquals(5L, PrimitiveSlots.toBoxed(PrimitiveSlots.LONG, 5L));
+        Assertions.assertEquals(1.5d, PrimitiveSlots.toBoxed(PrimitiveSlots.DOUBLE, Double.doubleToRawLongBits(1.5d)));
+    }
+}
@@ -0,0 +1,131 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+class RecordBatchTest {
+
+    public record Trade(long id, int quantity, double price, String symbol, Integer lot, short flags) {}
+
+    private static Trade[] trades(int n) {
+        return IntStream.range(0, n)
+            .mapToObj(i -> new Trade(i, i * 10, i + 0.5, "S" + i, i, (short) i))
+            .toArray(Trade[]::new);
+    }
+
+    @Test
+    void shouldRoundTripRecords() {
+        Trade[] trades = trades(5);
+        var batch = RecordBatch.of(Trade.class, trades);
+
+        Assertions.assertEquals(5, batch.size());
+        Assertions.assertArrayEquals(trades, batch.toArray());
+        Assertions.assertEquals(List.of(trades), batch.toList());
+        Assertions.assertEquals(List.of(trades), batch.stream().toList());
+        Assertions.assertEquals(trades[3], batch.get(3));
+        Assertions.assertNotSame(trades[3], batch.get(3));
+    }
+
+    @Test
+    void shouldUpdatePrimitiveColumnsWithoutBoxing() {
+        var batch = RecordBatch.of(Trade.class, List.of(trades(3)))
+            .updateInt(Trade::quantity, q -> q + 1)
+            .updateLong(Trade::id, id -> id * 100)
+            .updateDouble(Trade::price, p -> p * 2);
+
+        Assertions.assertEquals(List.of(
+            new Trade(0, 1, 1.0, "S0", 0, (short) 0),
+            new Trade(100, 11, 3.0, "S1", 1, (short) 1),
+            new Trade(200, 21, 5.0, "S2", 2, (short) 2)
+        ), batch.toList());
+    }
+
+    @Test
+    void shouldUpdateOtherColumnsWithFunctions() {
+        var batch = RecordBatch.of(Trade.class, trades(2))
+            .update(Trade::symbol, String::toLowerCase)
+            .update(Trade::flags, f -> (short) (f | 4))
+            .update(Trade::quantity, q -> q + 3)
+            .updateInt(Trade::lot, lot -> lot - 1)
+            .update(Trade::price, p -> p + 1);
+
+        Assertions.assertEquals(List.of(
+            new Trade(0, 3, 1.5, "s0", -1, (short) 4),
+            new Trade(1, 13, 2.5, "s1", 0, (short) 5)
+        ), batch.toList());
+    }
+
+    @Test
+    void shouldBoxIntoReferenceColumnsForBoxedComponents() {
+        record Boxed(Long id, Double price) {}
+        var batch = RecordBatch.of(Boxed.class, new Boxed[]{new Boxed(1L, 2.0)})
+            .updateLong(Boxed::id, id -> id + 1)
+            .updateDouble(Boxed::price, p -> p / 2);
+
+        Assertions.assertEquals(new Boxed(2L, 1.0), batch.get(0));
+    }
+
+    @Test
+    void shouldSetColumns() {
+        var batch = RecordBatch.of(Trade.class, trades(2))
+            .set(Trade::symbol, "X")
+            .set(Trade::quantity, 7)
+            .set(Trade::id, 9L)
+            .set(Trade::price, 1.25)
+            .set(Trade::lot, null);
+
+        Assertions.assertEquals(List.of(
+            new Trade(9, 7, 1.25, "X", null, (short) 0),
+            new Trade(9, 7, 1.25, "X", null, (short) 1)
+        ), batch.toList());
+    }
+
+    @Test
+    void shouldRejectValuesOfTheWrongType() {
+        var batch = RecordBatch.of(Trade.class, trades(2));
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Component<Trade, Object> quantity = (Component) (Component<Trade, Integer>) Trade::quantity;
+
+        Assertions.assertThrows(ConstructorException.class, () -> batch.set(quantity, "seven"));
+        Assertions.assertThrows(ConstructorException.class, () -> batch.update(quantity, q -> 1.5));
+        Assertions.assertEquals(trades(2)[1], batch.get(1));
+    }
+
+    @Test
+    void shouldIgnoreComponentsOfOtherRecords() {
+        record Other(int missing) {}
+        Trade[] trades = trades(1);
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Component<Trade, Integer> other = (Component) (Component<Other, Integer>) Other::missing;
+        var batch = RecordBatch.of(Trade.class, trades)
+            .set(other, 1)
+            .update(other, v -> v + 1)
+            .updateInt(other, v -> v + 1);
+
+        Assertions.assertEquals(trades[0], batch.get(0));
+    }
+
+    @Test
+    void shouldRejectIndexesOutOfBounds() {
+        var batch = RecordBatch.of(Trade.class, trades(2));
+
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> batch.get(2));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> batch.get(-1));
+    }
+
+    @Test
+    void shouldRejectNullRecords() {
+        Assertions.assertThrows(GetterException.class, () -> RecordBatch.of(Trade.class, new Trade[]{null}));
+    }
+
+    @Test
+    void shouldHandleEmptyBatches() {
+        var batch = RecordBatch.of(Trade.class, new Trade[0]).updateInt(Trade::quantity, q -> q + 1);
+
+        Assertions.assertEquals(0, batch.size());
+        Assertions.assertEquals(0, batch.toArray().length);
+    }
+}
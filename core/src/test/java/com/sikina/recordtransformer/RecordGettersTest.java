@@ -0,0 +1,58 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import otherpackage.ForeignRecord;
+
+import java.lang.invoke.MethodType;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+class RecordGettersTest {
+    @Test
+    void shouldCompileGetter() throws NoSuchMethodException {
+        Function<Record, Object> getter = RecordGetters.compile(ForeignRecord.class.getMethod("b"));
+        Assertions.assertEquals("foo", getter.apply(new ForeignRecord(1, "foo")));
+    }
+
+    @Test
+    void shouldFallBackToMethodHandle() throws NoSuchMethodException {
+        Function<Record, Object> getter = RecordGetters.compileHandle(ForeignRecord.class.getMethod("a"));
+        Assertions.assertEquals(1, getter.apply(new ForeignRecord(1, "foo")));
+    }
+
+    @Test
+    void shouldRethrowFromMethodHandle() throws NoSuchMethodException {
+        Function<Record, Object> getter = RecordGetters
+            .compileHandle(RecordTransformerTest.ExplodingRecord.class.getMethod("a"));
+        Assertions.assertThrows(
+            RuntimeException.class,
+            () -> getter.apply(new RecordTransformerTest.ExplodingRecord(1, "foo"))
+        );
+    }
+
+    @Test
+    void shouldExplodeWhenAccessorIsInaccessible() throws ReflectiveOperationException {
+        // package-private records can't be reached from another package without a private lookup
+        var accessor = Class.forName("otherpackage.PackagePrivateRecord").getDeclaredMethod("a");
+        Assertions.assertThrows(GetterException.class, () -> RecordGetters.compileHandle(accessor));
+    }
+
+    @Test
+    void shouldCompilePrimitiveGetters() throws NoSuchMethodException {
+        var rec = new RecordTransformerTest.Tick(1, 2L, 3d, "d", 4f, 5);
+        Assertions.assertEquals(1L, RecordGetters.compileLong(RecordTransformerTest.Tick.class.getMethod("a")).applyAsLong(rec));
+        Assertions.assertEquals(2L, RecordGetters.compileLong(RecordTransformerTest.Tick.class.getMethod("b")).applyAsLong(rec));
+        Assertions.assertEquals(3d, RecordGetters.compileDouble(RecordTransformerTest.Tick.class.getMethod("c")).applyAsDouble(rec));
+    }
+
+    @Test
+    void shouldFallBackToMethodHandleForPrimitiveGetters() throws NoSuchMethodException {
+        var rec = new RecordTransformerTest.Tick(1, 2L, 3d, "d", 4f, 5);
+        ToLongFunction<?> getter = RecordGetters.compileHandle(
+            RecordTransformerTest.Tick.class.getMethod("a"), ToLongFunction.class, MethodType.methodType(long.class, Object.class)
+        );
+        //noinspection unchecked
+        Assertions.assertEquals(1L, ((ToLongFunction<Object>) getter).applyAsLong(rec));
+    }
+}
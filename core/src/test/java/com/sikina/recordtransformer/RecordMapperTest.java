@@ -0,0 +1,143 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+class RecordMapperTest {
+
+    public record UserDto(long userId, String first, String last, String email, int age, Integer score, short flags) {}
+
+    public record Email(String address) {}
+
+    public record User(long id, String name, Email email, long age, int score, short flags, int version) {}
+
+    public record V1(int id, String name, double price) {}
+
+    public record V2(int id, String name, double price, Integer stock) {}
+
+    public record Wider(long id, double price, Object name) {}
+
+    public record Narrower(short id) {}
+
+    public record Named(String id) {}
+
+    private static final UserDto DTO = new UserDto(7, "Ada", "Lovelace", "ada@example.com", 36, 99, (short) 3);
+
+    private static RecordMapper<UserDto, User> toUser() {
+        return RecordMapper.builder(UserDto.class, User.class)
+            .map(User::id, UserDto::userId)
+            .map(User::email, UserDto::email, Email::new)
+            .compute(User::name, dto -> dto.first() + " " + dto.last())
+            .set(User::version, 2)
+            .build();
+    }
+
+    @Test
+    void shouldMapByNameAndByMapping() {
+        Assertions.assertEquals(
+            new User(7, "Ada Lovelace", new Email("ada@example.com"), 36, 99, (short) 3, 2),
+            toUser().map(DTO)
+        );
+    }
+
+    @Test
+    void shouldMapToANewVersionOfARecord() {
+        var upgrade = RecordMapper.builder(V1.class, V2.class).set(V2::stock, null).build();
+        var downgrade = RecordMapper.builder(V2.class, V1.class).build();
+
+        Assertions.assertEquals(new V2(1, "a", 2.5, null), upgrade.map(new V1(1, "a", 2.5)));
+        Assertions.assertEquals(new V1(1, "a", 2.5), downgrade.map(new V2(1, "a", 2.5, 4)));
+    }
+
+    @Test
+    void shouldWidenAndBoxComponentsMatchedByName() {
+        var widen = RecordMapper.builder(V1.class, Wider.class).build();
+
+        Assertions.assertEquals(new Wider(1, 2.5, "a"), widen.map(new V1(1, "a", 2.5)));
+    }
+
+    @Test
+    void shouldLetLaterMappingsReplaceEarlierOnes() {
+        var mapper = RecordMapper.builder(V1.class, V1.class)
+            .set(V1::name, "fixed")
+            .compute(V1::name, v -> v.name().toUpperCase())
+            .set(V1::price, 1)
+            .map(V1::price, V1::price)
+            .compute(V1::id, v -> v.id() + 1)
+            .map(V1::id, V1::id)
+            .build();
+
+        Assertions.assertEquals(new V1(1, "A", 2.5), mapper.map(new V1(1, "a", 2.5)));
+    }
+
+    @Test
+    void shouldRejectComponentsWithNoValue() {
+        var missing = Assertions.assertThrows(ConstructorException.class,
+            () -> RecordMapper.builder(V1.class, V2.class).build());
+        Assertions.assertTrue(missing.getCause().getMessage().contains("stock"));
+
+        var narrowing = Assertions.assertThrows(ConstructorException.class,
+            () -> RecordMapper.builder(V1.class, Narrower.class).build());
+        Assertions.assertTrue(narrowing.getCause().getMessage().contains("converter"));
+
+        Assertions.assertThrows(ConstructorException.class, () -> RecordMapper.builder(V1.class, Named.class).build());
+        Component<V1, Object> id = V1::id;
+        Assertions.assertThrows(ConstructorException.class, () -> RecordMapper.builder(V1.class, V1.class).set(id, "one").build());
+    }
+
+    @Test
+    void shouldRejectValuesThatDontFitAtMapTime() {
+        var unboxNull = RecordMapper.builder(UserDto.class, User.class)
+            .map(User::id, UserDto::userId)
+            .map(User::email, UserDto::email, Email::new)
+            .compute(User::name, UserDto::first)
+            .set(User::version, 1)
+            .build();
+        var noScore = new UserDto(1, "a", "b", "c", 1, null, (short) 0);
+        Assertions.assertThrows(ConstructorException.class, () -> unboxNull.map(noScore));
+    }
+
+    @Test
+    void shouldMapInBulkAndInParallel() {
+        List<UserDto> dtos = IntStream.range(0, 5000)
+            .mapToObj(i -> new UserDto(i, "f" + i, "l", "e" + i, i, i, (short) 0))
+            .toList();
+        var mapper = toUser();
+        List<User> expected = dtos.stream().map(mapper::map).toList();
+
+        Assertions.assertEquals(expected, mapper.mapAll(dtos));
+        Assertions.assertEquals(expected, mapper.mapParallel(dtos));
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            Assertions.assertEquals(expected, mapper.mapParallel(dtos, pool));
+        } finally {
+            pool.shutdown();
+        }
+        UserDto[] array = dtos.toArray(UserDto[]::new);
+        Assertions.assertArrayEquals(expected.toArray(), mapper.mapAll(array));
+        Assertions.assertArrayEquals(expected.toArray(), mapper.mapParallel(array));
+        Assertions.assertEquals(User[].class, mapper.mapAll(array).getClass());
+        Assertions.assertEquals(expected, mapper.mapAll(dtos.parallelStream()).toList());
+        Assertions.assertEquals(List.of(), mapper.mapAll(Stream.empty()).toList());
+    }
+
+    @Test
+    void shouldDecideWhichTypesCopyAsTheyAre() {
+        Assertions.assertTrue(RecordMapper.copyable(int.class, long.class));
+        Assertions.assertTrue(RecordMapper.copyable(int.class, Integer.class));
+        Assertions.assertTrue(RecordMapper.copyable(Integer.class, int.class));
+        Assertions.assertTrue(RecordMapper.copyable(short.class, Object.class));
+        Assertions.assertTrue(RecordMapper.copyable(char.class, int.class));
+        Assertions.assertTrue(RecordMapper.copyable(Short.class, short.class));
+        Assertions.assertFalse(RecordMapper.copyable(short.class, float.class));
+        Assertions.assertFalse(RecordMapper.copyable(long.class, int.class));
+        Assertions.assertFalse(RecordMapper.copyable(Object.class, String.class));
+        Assertions.assertFalse(RecordMapper.copyable(String.class, int.class));
+        Assertions.assertFalse(RecordMapper.copyable(Long.class, Integer.class));
+    }
+}
@@ -0,0 +1,67 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import otherpackage.ForeignRecord;
+
+class RecordMetadataTest {
+    @Test
+    void shouldResolveComponentsInConstructorOrder() {
+        RecordMetadata<ForeignRecord> metadata = RecordMetadata.of(ForeignRecord.class);
+
+        Assertions.assertEquals(ForeignRecord.class, metadata.recordClass());
+        Assertions.assertEquals(2, metadata.size());
+        Assertions.assertEquals("a", metadata.name(0));
+        Assertions.assertEquals("b", metadata.name(1));
+        Assertions.assertEquals(0, metadata.indexOf("a"));
+        Assertions.assertEquals(1, metadata.indexOf("b"));
+        Assertions.assertEquals(-1, metadata.indexOf("c"));
+    }
+
+    @Test
+    void shouldResolveOncePerClass() {
+        Assertions.assertSame(RecordMetadata.of(ForeignRecord.class), RecordMetadata.of(ForeignRecord.class));
+    }
+
+    @Test
+    void shouldGetComponents() {
+        RecordMetadata<ForeignRecord> metadata = RecordMetadata.of(ForeignRecord.class);
+        ForeignRecord rec = new ForeignRecord(1, "foo");
+
+        Assertions.assertEquals(1, metadata.getter(0).apply(rec));
+        Assertions.assertEquals("foo", metadata.getter(1).apply(rec));
+    }
+
+    @Test
+    void shouldConstruct() {
+        RecordMetadata<ForeignRecord> metadata = RecordMetadata.of(ForeignRecord.class);
+        Assertions.assertEquals(new ForeignRecord(1, "foo"), metadata.construct(new Object[]{1, "foo"}));
+    }
+
+    @Test
+    void shouldExplodeOnTypeMismatch() {
+        RecordMetadata<ForeignRecord> metadata = RecordMetadata.of(ForeignRecord.class);
+        Assertions.assertThrows(ConstructorException.class, () -> metadata.construct(new Object[]{"foo", 1}));
+        Assertions.assertThrows(ConstructorException.class, () -> metadata.construct(new Object[]{null, "foo"}));
+    }
+
+    @Test
+    void shouldReadAndConstructPrimitiveSlotsUnboxed() {
+        RecordMetadata<RecordTransformerTest.Tick> metadata = RecordMetadata.of(RecordTransformerTest.Tick.class);
+        var rec = new RecordTransformerTest.Tick(-1, 2L, 3.5d, "d", 4f, 5);
+
+        Assertions.assertEquals(PrimitiveSlots.INT, metadata.kind(0));
+        Assertions.assertEquals(PrimitiveSlots.LONG, metadata.kind(1));
+        Assertions.assertEquals(PrimitiveSlots.DOUBLE, metadata.kind(2));
+        Assertions.assertEquals(PrimitiveSlots.REFERENCE, metadata.kind(4));
+        Assertions.assertEquals(-1L, metadata.bits(0, rec));
+        Assertions.assertEquals(2L, metadata.bits(1, rec));
+        Assertions.assertEquals(Double.doubleToRawLongBits(3.5d), metadata.bits(2, rec));
+
+        Object[] references = {null, null, null, "d", 4f, 5};
+        long[] bits = {-1L, 2L, Double.doubleToRawLongBits(3.5d), 0, 0, 0};
+        Assertions.assertEquals(rec, metadata.construct(references, bits));
+        references[4] = "not a float";
+        Assertions.assertThrows(ConstructorException.class, () -> metadata.construct(references, bits));
+    }
+}
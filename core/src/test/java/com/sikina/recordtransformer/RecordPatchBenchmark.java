@@ -0,0 +1,50 @@
+package com.sikina.recordtransformer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ships a change to one component of a wide record: encoding the queued update into a reused
+ * buffer, and decoding it and applying it on the other side. Run with -prof gc to see how little
+ * either allocates beyond the patch and the new record.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 2, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 8)
+public class RecordPatchBenchmark {
+    private final RecordTransformerBenchmark.LargeRecord rec =
+        new RecordTransformerBenchmark.LargeRecord(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+    private final RecordTransformer<RecordTransformerBenchmark.LargeRecord> transformer =
+        new RecordTransformer<>(rec).withInt("j", 42);
+    private final RecordPatch<RecordTransformerBenchmark.LargeRecord> patch = transformer.patch();
+    private final ByteBuffer out = ByteBuffer.allocateDirect(64);
+    private final ByteBuffer in = ByteBuffer.wrap(patch.toBytes());
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(RecordPatchBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+
+    @Benchmark
+    public ByteBuffer exportAndEncode() {
+        return transformer.patch().writeTo(out.clear());
+    }
+
+    @Benchmark
+    public RecordTransformerBenchmark.LargeRecord decodeAndApply() {
+        return RecordPatch.read(RecordTransformerBenchmark.LargeRecord.class, in.rewind()).applyTo(rec);
+    }
+}
@@ -0,0 +1,143 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import otherpackage.ForeignRecord;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+class RecordPatchTest {
+
+    public record Everything(
+        boolean z, byte b, short s, char c, int i, long j, float f, double d,
+        String str, TimeUnit unit, Object obj, RecordTransformerTest.Geo geo
+    ) {}
+
+    private static final Everything START = new Everything(
+        false, (byte) 1, (short) 2, 'c', 3, 4L, 5f, 6d, "str", TimeUnit.SECONDS, null, new RecordTransformerTest.Geo(1, 2)
+    );
+
+    private static <T extends Record> RecordPatch<T> roundTrip(Class<T> type, RecordPatch<T> patch, ByteBuffer buffer) {
+        patch.writeTo(buffer);
+        Assertions.assertEquals(patch.encodedSize(), buffer.position());
+        return RecordPatch.read(type, buffer.flip());
+    }
+
+    @Test
+    void shouldRoundTripEveryKindOfValue() {
+        var t = new RecordTransformer<>(START);
+        t.with(t.rec()::z).as(true)
+            .with(t.rec()::b).as((byte) -1)
+            .with(t.rec()::s).as((short) -2)
+            .with(t.rec()::c).as('\u00e9')
+            .withInt(t.rec()::i).as(-3)
+            .withLong(t.rec()::j).as(Long.MIN_VALUE)
+            .with(t.rec()::f).as(-5f)
+            .withDouble(t.rec()::d).as(Double.NaN)
+            .with(t.rec()::str).as("h\u00e9llo \u20ac \ud83d\ude00 \ud800!")
+            .with(t.rec()::unit).as(TimeUnit.DAYS)
+            .with(t.rec()::obj).as(7L)
+            .with(t.rec()::geo).then(RecordTransformerTest.Geo::lat).as(9d);
+        RecordPatch<Everything> patch = t.patch();
+        Assertions.assertEquals(12, patch.size());
+
+        Everything expected = t.transform().rec();
+        // an unpaired surrogate can't be encoded, so it turns into '?' like it would with String.getBytes
+        expected = new RecordTransformer<>(expected).with(expected::str).as("h\u00e9llo \u20ac \ud83d\ude00 ?!").transform().rec();
+
+        Assertions.assertEquals(expected, roundTrip(Everything.class, patch, ByteBuffer.allocate(256)).applyTo(START));
+        Assertions.assertEquals(expected, roundTrip(Everything.class, patch, ByteBuffer.allocateDirect(256)).applyTo(START));
+        Assertions.assertEquals(expected, RecordPatch.read(Everything.class, ByteBuffer.wrap(patch.toBytes())).applyTo(START));
+    }
+
+    @Test
+    void shouldOnlyEncodeUpdatedComponents() {
+        var t = new RecordTransformer<>(new RecordTransformerBenchmark.LargeRecord(1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+        RecordPatch<RecordTransformerBenchmark.LargeRecord> patch = t.withInt("j", 42).patch();
+
+        // fingerprint, count, index, tag and a raw int
+        Assertions.assertEquals(4 + 1 + 1 + 1 + 4, patch.encodedSize());
+        // the updates stay queued
+        Assertions.assertEquals(42, t.transform().rec().j());
+    }
+
+    @Test
+    void shouldQueueOnTransformer() {
+        var t = new RecordTransformer<>(new ForeignRecord(1, "foo"));
+        RecordPatch<ForeignRecord> patch = t.with(t.rec()::b).as("bar").patch();
+
+        ForeignRecord rec = new ForeignRecord(2, "foo");
+        var other = new RecordTransformer<>(rec);
+        patch.applyTo(other).withInt("a", 3);
+        Assertions.assertEquals(new ForeignRecord(3, "bar"), other.transform().rec());
+
+        ForeignRecord same = new ForeignRecord(5, "bar");
+        Assertions.assertSame(same, patch.applyTo(same));
+        Assertions.assertEquals(0, new RecordTransformer<>(rec).patch().size());
+    }
+
+    @Test
+    void shouldKeepMismatchesForTransform() {
+        var t = new RecordTransformer<>(new ForeignRecord(1, "foo"));
+        RecordPatch<ForeignRecord> patch = t.withTypeUnsafe("a", 5L).withTypeUnsafe("b", 5).patch();
+
+        RecordPatch<ForeignRecord> read = roundTrip(ForeignRecord.class, patch, ByteBuffer.allocate(64));
+        Assertions.assertThrows(ConstructorException.class, () -> read.applyTo(new ForeignRecord(1, "foo")));
+    }
+
+    @Test
+    void shouldRejectValuesItCantEncode() {
+        var t = new RecordTransformer<>(START);
+        RecordPatch<Everything> list = t.with(t.rec()::obj).as(List.of()).patch();
+        Assertions.assertThrows(IllegalArgumentException.class, list::encodedSize);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> list.writeTo(ByteBuffer.allocate(64)));
+
+        // records and enums are only encoded for components declared with their type
+        RecordPatch<Everything> geo = t.with(t.rec()::obj).as(new RecordTransformerTest.Geo(1, 2)).patch();
+        Assertions.assertThrows(IllegalArgumentException.class, geo::toBytes);
+    }
+
+    @Test
+    void shouldRejectMalformedPatches() {
+        byte[] bytes = new RecordTransformer<>(new ForeignRecord(1, "foo")).withTypeUnsafe("b", "bar").patch().toBytes();
+
+        Assertions.assertThrows(
+            IllegalArgumentException.class,
+            () -> RecordPatch.read(RecordTransformerTest.Geo.class, ByteBuffer.wrap(bytes))
+        );
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+        Assertions.assertThrows(BufferUnderflowException.class, () -> RecordPatch.read(ForeignRecord.class, ByteBuffer.wrap(truncated)));
+
+        byte[] badSlot = bytes.clone();
+        badSlot[5] = 9;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RecordPatch.read(ForeignRecord.class, ByteBuffer.wrap(badSlot)));
+        byte[] badCount = bytes.clone();
+        badCount[4] = 9;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RecordPatch.read(ForeignRecord.class, ByteBuffer.wrap(badCount)));
+        byte[] badTag = bytes.clone();
+        badTag[6] = 99;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RecordPatch.read(ForeignRecord.class, ByteBuffer.wrap(badTag)));
+        byte[] badVarint = bytes.clone();
+        for (int i = 4; i < badVarint.length; i++) {
+            badVarint[i] = (byte) 0xFF;
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RecordPatch.read(ForeignRecord.class, ByteBuffer.wrap(badVarint)));
+    }
+
+    @Test
+    void shouldRejectRecordsAndEnumsForOtherTypes() {
+        var t = new RecordTransformer<>(START);
+        byte[] unit = t.with(t.rec()::unit).as(TimeUnit.DAYS).patch().toBytes();
+        byte[] geo = new RecordTransformer<>(START).with(START::geo).as(new RecordTransformerTest.Geo(3, 4)).patch().toBytes();
+        // point both at the str component, index 8
+        unit[5] = 8;
+        geo[5] = 8;
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RecordPatch.read(Everything.class, ByteBuffer.wrap(unit)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RecordPatch.read(Everything.class, ByteBuffer.wrap(geo)));
+    }
+}
@@ -0,0 +1,54 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class RecordPathTest {
+
+    @Test
+    void shouldResolvePathOnce() {
+        RecordMetadata<RecordTransformerTest.Person> metadata = RecordMetadata.of(RecordTransformerTest.Person.class);
+        Component<RecordTransformerTest.Address, RecordTransformerTest.Geo> geo = RecordTransformerTest.Address::geo;
+        Component<RecordTransformerTest.Geo, Double> lon = RecordTransformerTest.Geo::lon;
+        RecordPath path = metadata.path(0).then(geo).then(lon);
+
+        Assertions.assertTrue(path.resolved());
+        Assertions.assertEquals(2, path.depth());
+        Assertions.assertSame(RecordMetadata.of(RecordTransformerTest.Geo.class), path.metadata(1));
+        Assertions.assertEquals(1, path.slot(0));
+        Assertions.assertEquals(1, path.slot(1));
+        Assertions.assertSame(
+            path,
+            metadata.path(0).then(geo).then(lon)
+        );
+    }
+
+    @Test
+    void shouldNotResolveUnknownComponent() {
+        Component<RecordTransformerTest.Address, Integer> hash = RecordTransformerTest.Address::hashCode;
+        RecordPath path = RecordPath.root(RecordTransformerTest.Address.class).then(hash);
+
+        Assertions.assertFalse(path.resolved());
+        Assertions.assertSame(path, path.then(hash));
+    }
+
+    @Test
+    void shouldExplodeOnNonRecord() {
+        RecordPath path = RecordPath.root(Record.class);
+        Component<Record, Integer> hash = Record::hashCode;
+        Assertions.assertThrows(GetterException.class, () -> path.then(hash));
+    }
+
+    @Test
+    void shouldRebuildPath() {
+        RecordTransformerTest.Geo geo = new RecordTransformerTest.Geo(1, 2);
+        RecordTransformerTest.Address address = new RecordTransformerTest.Address("a", geo, 1);
+        Component<RecordTransformerTest.Address, String> component = RecordTransformerTest.Address::city;
+        RecordPath city = RecordPath.root(RecordTransformerTest.Address.class).then(component);
+
+        RecordTransformerTest.Address actual = (RecordTransformerTest.Address) city.rebuild(address, "b");
+        Assertions.assertEquals(new RecordTransformerTest.Address("b", geo, 1), actual);
+        Assertions.assertSame(geo, actual.geo());
+        Assertions.assertEquals(new RecordTransformerTest.Address("a", geo, 1), address);
+    }
+}
@@ -0,0 +1,246 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class RecordStateStoreTest {
+
+    public record Account(String id, long balance, int deposits) {}
+
+    public record Counter(String key, int count) {}
+
+    private static RecordStateStore<String, Account> accounts(int shards) {
+        return RecordStateStore.builder(Account.class, (String id) -> new Account(id, 0, 0))
+            .shards(shards)
+            .build();
+    }
+
+    private static void deposit(RecordStateStore<String, Account> store, String id, long amount) {
+        store.update(id, t -> t.update(t.rec()::balance, balance -> balance + amount)
+            .update(t.rec()::deposits, deposits -> deposits + 1));
+    }
+
+    @Test
+    void shouldStartKeysFromTheirInitialRecord() {
+        try (var store = accounts(2)) {
+            Assertions.assertNull(store.get("alice"));
+            deposit(store, "alice", 10);
+            deposit(store, "alice", 5);
+            deposit(store, "bob", 1);
+            store.flush().join();
+
+            Assertions.assertEquals(new Account("alice", 15, 2), store.get("alice"));
+            Assertions.assertEquals(new Account("bob", 1, 1), store.get("bob"));
+            Assertions.assertEquals(2, store.size());
+        }
+    }
+
+    @Test
+    void shouldApplyPutsAndRemovesInOrder() {
+        try (var store = accounts(1)) {
+            deposit(store, "alice", 10);
+            store.put("alice", new Account("alice", 100, 7));
+            deposit(store, "alice", 1);
+            store.remove("bob");
+            store.put("bob", new Account("bob", 3, 3));
+            store.remove("bob");
+            deposit(store, "carol", 2);
+            store.remove("carol");
+            deposit(store, "carol", 4);
+            store.flush().join();
+
+            Assertions.assertEquals(new Account("alice", 101, 8), store.get("alice"));
+            Assertions.assertNull(store.get("bob"));
+            Assertions.assertEquals(new Account("carol", 4, 1), store.get("carol"));
+
+            store.remove("alice");
+            store.flush().join();
+            Assertions.assertNull(store.get("alice"));
+        }
+    }
+
+    @Test
+    void shouldCoalesceABatchOfUpdatesToOneKeyIntoOneRecord() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (var store = RecordStateStore.builder(Counter.class, (String key) -> new Counter(key, 0)).shards(1).build()) {
+            store.update("blocker", t -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            started.await();
+            long before = RecordTransformers.counts(Counter.class).performed();
+            for (int i = 0; i < 100; i++) {
+                store.update("hot", t -> t.update(t.rec()::count, count -> count + 1));
+            }
+            release.countDown();
+            store.flush().join();
+
+            Assertions.assertEquals(new Counter("hot", 100), store.get("hot"));
+            Assertions.assertEquals(1, RecordTransformers.counts(Counter.class).performed() - before);
+        }
+    }
+
+    @Test
+    void shouldSkipOnlyTheUpdatesThatThrow() {
+        List<String> failed = new CopyOnWriteArrayList<>();
+        try (var store = RecordStateStore.builder(Account.class, (String id) -> new Account(id, 0, 0))
+            .shards(1)
+            .errors((key, e) -> failed.add(key + ": " + e.getMessage()))
+            .build()) {
+            deposit(store, "alice", 10);
+            store.update("alice", t -> {
+                throw new IllegalStateException("boom");
+            });
+            deposit(store, "alice", 5);
+            store.update("alice", t -> t.withTypeUnsafe("balance", "not a long"));
+            store.put("bob", new Account("bob", 1, 1));
+            store.flush().join();
+
+            Assertions.assertEquals(new Account("alice", 15, 2), store.get("alice"));
+            Assertions.assertEquals(new Account("bob", 1, 1), store.get("bob"));
+            Assertions.assertEquals(2, failed.size());
+            Assertions.assertEquals("alice: boom", failed.get(0));
+        }
+    }
+
+    @Test
+    void shouldKeepGoingAfterErrorsAndHandlersThatThrow() {
+        List<Throwable> failed = new CopyOnWriteArrayList<>();
+        try (var store = RecordStateStore.builder(Account.class, (String id) -> new Account(id, 0, 0))
+            .shards(1)
+            .errors((key, e) -> {
+                failed.add(e);
+                throw new IllegalStateException("handler");
+            })
+            .threadFactory(runnable -> {
+                Thread thread = new Thread(runnable);
+                thread.setUncaughtExceptionHandler((t, e) -> failed.add(e));
+                return thread;
+            })
+            .build()) {
+            store.update("alice", t -> {
+                throw new AssertionError("error");
+            });
+            store.flush().join();
+            deposit(store, "alice", 10);
+            store.flush().join();
+
+            Assertions.assertEquals(new Account("alice", 10, 1), store.get("alice"));
+            Assertions.assertEquals(List.of("error", "handler"), failed.stream().map(Throwable::getMessage).toList());
+        }
+    }
+
+    @Test
+    void shouldApplyOrRejectEverythingSubmittedWhileClosing() throws Exception {
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 200; round++) {
+                var store = accounts(2);
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<List<CompletableFuture<Void>>>> done = new ArrayList<>();
+                for (int w = 0; w < 4; w++) {
+                    done.add(writers.submit(() -> {
+                        List<CompletableFuture<Void>> flushes = new ArrayList<>();
+                        start.await();
+                        try {
+                            for (int i = 0; i < 100; i++) {
+                                deposit(store, "k" + i % 10, 1);
+                                flushes.add(store.flush());
+                            }
+                        } catch (IllegalStateException closed) {
+                            // submitted after close
+                        }
+                        return flushes;
+                    }));
+                }
+                start.countDown();
+                store.close();
+                for (Future<List<CompletableFuture<Void>>> f : done) {
+                    for (CompletableFuture<Void> flush : f.get()) {
+                        flush.get(10, TimeUnit.SECONDS);
+                    }
+                }
+            }
+        } finally {
+            writers.shutdown();
+        }
+    }
+
+    @Test
+    void shouldApplyEveryUpdateFromConcurrentWriters() throws Exception {
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        try (var store = accounts(3)) {
+            List<Future<?>> done = new ArrayList<>();
+            for (int w = 0; w < 4; w++) {
+                done.add(writers.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        deposit(store, "k" + i % 10, 1);
+                    }
+                }));
+            }
+            for (Future<?> f : done) {
+                f.get();
+            }
+            store.flush().join();
+
+            for (int k = 0; k < 10; k++) {
+                Assertions.assertEquals(new Account("k" + k, 400, 400), store.get("k" + k));
+            }
+        } finally {
+            writers.shutdown();
+        }
+    }
+
+    @Test
+    void shouldRejectUpdatesOnceClosed() {
+        var store = accounts(1);
+        deposit(store, "alice", 10);
+        store.close();
+        store.close();
+
+        Assertions.assertEquals(new Account("alice", 10, 1), store.get("alice"));
+        Assertions.assertThrows(IllegalStateException.class, () -> deposit(store, "alice", 1));
+        Assertions.assertThrows(IllegalStateException.class, store::flush);
+    }
+
+    @Test
+    void shouldUseTheGivenThreadFactory() {
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        try (var store = RecordStateStore.builder(Account.class, (String id) -> new Account(id, 0, 0))
+            .shards(2)
+            .batchSize(1)
+            .threadFactory(runnable -> {
+                Thread thread = new Thread(runnable);
+                threads.add(thread);
+                return thread;
+            })
+            .build()) {
+            deposit(store, "alice", 10);
+            store.flush().join();
+            Assertions.assertEquals(2, threads.size());
+        }
+        Assertions.assertFalse(threads.get(0).isAlive());
+    }
+
+    @Test
+    void shouldRejectInvalidSettings() {
+        var builder = RecordStateStore.builder(Account.class, (String id) -> new Account(id, 0, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.shards(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.batchSize(0));
+    }
+}
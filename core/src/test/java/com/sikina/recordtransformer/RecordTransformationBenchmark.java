@@ -0,0 +1,87 @@
+package com.sikina.recordtransformer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Re-stamps one component of a large batch of records, the way a nightly job would: once with a
+ * transformer per record, and once with a single RecordTransformation applied to the whole batch.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 2, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 8)
+public class RecordTransformationBenchmark {
+    private static final int RECORDS = 1_000_000;
+
+    private final List<RecordTransformerBenchmark.LargeRecord> records = IntStream.range(0, RECORDS)
+        .mapToObj(i -> new RecordTransformerBenchmark.LargeRecord(i, i, i, i, i, i, i, i, i, i))
+        .toList();
+
+    private final RecordTransformation<RecordTransformerBenchmark.LargeRecord> restamp = RecordTransformation
+        .builder(RecordTransformerBenchmark.LargeRecord.class)
+        .set(RecordTransformerBenchmark.LargeRecord::j, 42)
+        .build();
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(RecordTransformationBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+
+    @Benchmark
+    public List<RecordTransformerBenchmark.LargeRecord> transformerPerRecord() {
+        List<RecordTransformerBenchmark.LargeRecord> out = new ArrayList<>(RECORDS);
+        for (RecordTransformerBenchmark.LargeRecord rec : records) {
+            out.add(new RecordTransformer<>(rec).withInt("j", 42).transform().rec());
+        }
+        return out;
+    }
+
+    @Benchmark
+    public List<RecordTransformerBenchmark.LargeRecord> transformerReset() {
+        List<RecordTransformerBenchmark.LargeRecord> out = new ArrayList<>(RECORDS);
+        RecordTransformer<RecordTransformerBenchmark.LargeRecord> transformer = new RecordTransformer<>(records.get(0));
+        for (RecordTransformerBenchmark.LargeRecord rec : records) {
+            out.add(transformer.reset(rec).withInt("j", 42).transform().rec());
+        }
+        return out;
+    }
+
+    @Benchmark
+    public List<RecordTransformerBenchmark.LargeRecord> transformerThreadLocal() {
+        List<RecordTransformerBenchmark.LargeRecord> out = new ArrayList<>(RECORDS);
+        for (RecordTransformerBenchmark.LargeRecord rec : records) {
+            out.add(RecordTransformers.threadLocal(rec).withInt("j", 42).transform().rec());
+        }
+        return out;
+    }
+
+    @Benchmark
+    public List<RecordTransformerBenchmark.LargeRecord> transformationApplyAll() {
+        return restamp.applyAll(records);
+    }
+
+    @Benchmark
+    public List<RecordTransformerBenchmark.LargeRecord> transformationApplyParallel() {
+        return restamp.applyParallel(records);
+    }
+
+    @Benchmark
+    public List<RecordTransformerBenchmark.LargeRecord> transformationParallelStream() {
+        return restamp.applyAll(records.parallelStream()).toList();
+    }
+}
@@ -0,0 +1,147 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import otherpackage.ForeignRecord;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+class RecordTransformationTest {
+
+    @Test
+    void shouldApplyUpdates() {
+        RecordTransformation<ForeignRecord> transformation = RecordTransformation.builder(ForeignRecord.class)
+            .set(ForeignRecord::a, 2)
+            .update(ForeignRecord::b, b -> b + "!")
+            .build();
+
+        Assertions.assertEquals(new ForeignRecord(2, "foo!"), transformation.apply(new ForeignRecord(1, "foo")));
+        Assertions.assertEquals(new ForeignRecord(2, "bar!"), transformation.apply(new ForeignRecord(5, "bar")));
+    }
+
+    @Test
+    void shouldReturnTheSameRecordWithoutUpdates() {
+        RecordTransformation<ForeignRecord> transformation = RecordTransformation.builder(ForeignRecord.class)
+            .setTypeUnsafe("c", 1)
+            .build();
+        ForeignRecord rec = new ForeignRecord(1, "foo");
+
+        Assertions.assertSame(rec, transformation.apply(rec));
+        Assertions.assertSame(rec, transformation.applyAll(List.of(rec)).get(0));
+    }
+
+    @Test
+    void shouldApplyUpdatesToTheSameComponentInOrder() {
+        RecordTransformation<RecordTransformerTest.Tick> transformation = RecordTransformation
+            .builder(RecordTransformerTest.Tick.class)
+            .update(RecordTransformerTest.Tick::a, a -> a * 10)
+            .update(RecordTransformerTest.Tick::a, a -> a + 1)
+            .set(RecordTransformerTest.Tick::b, 5L)
+            .update(RecordTransformerTest.Tick::b, b -> b * 2)
+            .update(RecordTransformerTest.Tick::c, c -> c / 2)
+            .setTypeUnsafe("d", "x")
+            .set(RecordTransformerTest.Tick::d, "y")
+            .build();
+
+        Assertions.assertEquals(
+            new RecordTransformerTest.Tick(21, 10L, 1.5, "y", 4f, 5),
+            transformation.apply(new RecordTransformerTest.Tick(2, 2L, 3d, "d", 4f, 5))
+        );
+    }
+
+    @Test
+    void shouldApplyToCollections() {
+        RecordTransformation<ForeignRecord> transformation = RecordTransformation.builder(ForeignRecord.class)
+            .update(ForeignRecord::a, a -> -a)
+            .build();
+        List<ForeignRecord> records = IntStream.range(0, 10)
+            .mapToObj(i -> new ForeignRecord(i, "r" + i))
+            .toList();
+        List<ForeignRecord> expected = IntStream.range(0, 10)
+            .mapToObj(i -> new ForeignRecord(-i, "r" + i))
+            .toList();
+
+        Assertions.assertEquals(expected, transformation.applyAll(records));
+        ForeignRecord[] array = records.toArray(ForeignRecord[]::new);
+        Assertions.assertEquals(expected, List.of(transformation.applyAll(array)));
+        Assertions.assertEquals(records, List.of(array));
+        Assertions.assertEquals(expected, transformation.applyAll(records.stream()).toList());
+        Assertions.assertEquals(
+            expected,
+            transformation.applyAll(records.parallelStream()).collect(Collectors.toList())
+        );
+    }
+
+    @Test
+    void shouldApplyInParallel() {
+        RecordTransformation<ForeignRecord> transformation = RecordTransformation.builder(ForeignRecord.class)
+            .update(ForeignRecord::a, a -> a + 1)
+            .build();
+        // big enough to be split up several times
+        List<ForeignRecord> records = IntStream.range(0, 10_000)
+            .mapToObj(i -> new ForeignRecord(i, "r"))
+            .toList();
+        List<ForeignRecord> expected = IntStream.range(0, 10_000)
+            .mapToObj(i -> new ForeignRecord(i + 1, "r"))
+            .toList();
+
+        Assertions.assertEquals(expected, transformation.applyParallel(records));
+        Assertions.assertEquals(expected, List.of(transformation.applyParallel(records.toArray(ForeignRecord[]::new))));
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Assertions.assertEquals(expected, transformation.applyParallel(records, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void shouldExplodeOnMismatchedConstant() {
+        var builder = RecordTransformation.builder(ForeignRecord.class).setTypeUnsafe("a", "foo");
+        Assertions.assertThrows(ConstructorException.class, builder::build);
+
+        var transformation = RecordTransformation.builder(ForeignRecord.class).setTypeUnsafe("b", 1).build();
+        Assertions.assertThrows(ConstructorException.class, () -> transformation.apply(new ForeignRecord(1, "foo")));
+    }
+
+    @Test
+    void shouldExplodeOnMismatchedFunctionResult() {
+        RecordTransformation<ForeignRecord> transformation = RecordTransformation.builder(ForeignRecord.class)
+            .update(ForeignRecord::a, a -> null)
+            .build();
+        Assertions.assertThrows(ConstructorException.class, () -> transformation.apply(new ForeignRecord(1, "foo")));
+    }
+
+    @Test
+    void shouldExplodeWhenGetterExplodes() {
+        RecordTransformation<RecordTransformerTest.ExplodingRecord> transformation = RecordTransformation
+            .builder(RecordTransformerTest.ExplodingRecord.class)
+            .set(RecordTransformerTest.ExplodingRecord::b, "bar")
+            .build();
+        var rec = new RecordTransformerTest.ExplodingRecord(1, "foo");
+        Assertions.assertThrows(GetterException.class, () -> transformation.apply(rec));
+        Assertions.assertThrows(GetterException.class, () -> transformation.applyParallel(List.of(rec)));
+        Assertions.assertThrows(
+            GetterException.class,
+            () -> RecordTransformation.builder(RecordTransformerTest.ExplodingRecord.class)
+                .update(RecordTransformerTest.ExplodingRecord::a, a -> a + 1)
+                .build()
+                .applyAll(Stream.of(rec))
+                .toList()
+        );
+    }
+
+    @Test
+    void shouldReuseBuilder() {
+        var builder = RecordTransformation.builder(ForeignRecord.class).set(ForeignRecord::a, 2);
+        RecordTransformation<ForeignRecord> first = builder.build();
+        RecordTransformation<ForeignRecord> second = builder.set(ForeignRecord::b, "bar").build();
+
+        Assertions.assertEquals(new ForeignRecord(2, "foo"), first.apply(new ForeignRecord(1, "foo")));
+        Assertions.assertEquals(new ForeignRecord(2, "bar"), second.apply(new ForeignRecord(1, "foo")));
+    }
+}
@@ -0,0 +1,296 @@
+package com.sikina.recordtransformer;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 2, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 8)
+public class RecordTransformerBenchmark {
+    private static final int ITERATIONS = 10;
+    public record LargeRecord(int a, int b, int c, int d, int e, int f, int g, int h, int i, int j){}
+
+    private final LargeRecord getterTarget = new LargeRecord(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+
+    // The getters RecordTransformer used before they were compiled: one Method.invoke per component
+    private final List<Function<LargeRecord, Object>> reflectiveGetters = Arrays
+        .stream(LargeRecord.class.getRecordComponents())
+        .map(RecordComponent::getAccessor)
+        .map(RecordTransformerBenchmark::reflectiveGetter)
+        .toList();
+
+    private final RecordMetadata<LargeRecord> metadata = RecordMetadata.of(LargeRecord.class);
+
+    private static Function<LargeRecord, Object> reflectiveGetter(Method m) {
+        return (LargeRecord referenceRecord) -> {
+            try {
+                return m.invoke(referenceRecord);
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+            .include(RecordTransformerBenchmark.class.getSimpleName())
+            .forks(1)
+            .build();
+
+        new Runner(opt).run();
+    }
+    @Benchmark
+    public void unsafeTransform() {
+        LargeRecord start = new LargeRecord(1, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+        RecordTransformer<LargeRecord> lens = new RecordTransformer<>(start);
+        for (int i = 0; i < ITERATIONS; i++) {
+            lens = lens
+                .withTypeUnsafe("a", i)
+                .withTypeUnsafe("b", i)
+                .withTypeUnsafe("c", i)
+                .withTypeUnsafe("d", i)
+                .withTypeUnsafe("e", i)
+                .withTypeUnsafe("f", i)
+                .withTypeUnsafe("g", i)
+                .withTypeUnsafe("h", i)
+                .withTypeUnsafe("i", i)
+                .withTypeUnsafe("j", i)
+                .transform();
+        }
+
+    }
+
+    @Benchmark
+    public void safeTransform() {
+        LargeRecord start = new LargeRecord(1, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+        RecordTransformer<LargeRecord> lens = new RecordTransformer<>(start);
+        for (int i = 0; i < ITERATIONS; i++) {
+            lens = lens
+                .with(lens.rec()::a).as(i)
+                .with(lens.rec()::b).as(i)
+                .with(lens.rec()::c).as(i)
+                .with(lens.rec()::d).as(i)
+                .with(lens.rec()::e).as(i)
+                .with(lens.rec()::f).as(i)
+                .with(lens.rec()::g).as(i)
+                .with(lens.rec()::h).as(i)
+                .with(lens.rec()::i).as(i)
+                .with(lens.rec()::j).as(i)
+                .transform();
+        }
+
+    }
+
+    @Benchmark
+    public void safeCachedTransform() {
+        LargeRecord start = new LargeRecord(1, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+        RecordTransformer<LargeRecord> lens = new CachedRecordTransformer<>(start);
+        for (int i = 0; i < ITERATIONS; i++) {
+            lens = lens
+                .with(lens.rec()::a).as(i)
+                .with(lens.rec()::b).as(i)
+                .with(lens.rec()::c).as(i)
+                .with(lens.rec()::d).as(i)
+                .with(lens.rec()::e).as(i)
+                .with(lens.rec()::f).as(i)
+                .with(lens.rec()::g).as(i)
+                .with(lens.rec()::h).as(i)
+                .with(lens.rec()::i).as(i)
+                .with(lens.rec()::j).as(i)
+                .transform();
+        }
+
+    }
+
+    @Benchmark
+    public void primitiveTransform() {
+        LargeRecord start = new LargeRecord(1, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+        RecordTransformer<LargeRecord> lens = new RecordTransformer<>(start);
+        for (int i = 0; i < ITERATIONS; i++) {
+            lens = lens
+                .withInt("a", i)
+                .withInt("b", i)
+                .withInt("c", i)
+                .withInt("d", i)
+                .withInt("e", i)
+                .withInt("f", i)
+                .withInt("g", i)
+                .withInt("h", i)
+                .withInt("i", i)
+                .withInt("j", i)
+                .transform();
+        }
+
+    }
+
+    @Benchmark
+    public void primitiveSafeTransform() {
+        LargeRecord start = new LargeRecord(1, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+        RecordTransformer<LargeRecord> lens = new RecordTransformer<>(start);
+        for (int i = 0; i < ITERATIONS; i++) {
+            lens = lens
+                .withInt(lens.rec()::a).as(i)
+                .withInt(lens.rec()::b).as(i)
+                .withInt(lens.rec()::c).as(i)
+                .withInt(lens.rec()::d).as(i)
+                .withInt(lens.rec()::e).as(i)
+                .withInt(lens.rec()::f).as(i)
+                .withInt(lens.rec()::g).as(i)
+                .withInt(lens.rec()::h).as(i)
+                .withInt(lens.rec()::i).as(i)
+                .withInt(lens.rec()::j).as(i)
+                .transform();
+        }
+
+    }
+
+    @Benchmark
+    public void generatedPrimitiveTransform() {
+        LargeRecord start = new LargeRecord(1, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+        GeneratedTransformer<LargeRecord> lens = RecordTransformers.generated(start);
+        for (int i = 0; i < ITERATIONS; i++) {
+            lens = lens
+                .withInt("a", i)
+                .withInt("b", i)
+                .withInt("c", i)
+                .withInt("d", i)
+                .withInt("e", i)
+                .withInt("f", i)
+                .withInt("g", i)
+                .withInt("h", i)
+                .withInt("i", i)
+                .withInt("j", i)
+                .transform();
+        }
+
+    }
+
+    // A chain of reducers that each bump one counter: transforming after every step builds a record per step
+    @Benchmark
+    public LargeRecord reducersTransformingEachStep() {
+        RecordTransformer<LargeRecord> lens = new RecordTransformer<>(new LargeRecord(1, 1, 1, 1, 1, 1, 1, 1, 1, 1));
+        for (int i = 0; i < ITERATIONS; i++) {
+            lens = lens.update(lens.rec()::a, a -> a + 1).transform();
+        }
+        return lens.rec();
+    }
+
+    // ...while updates queued on the same transformer fuse, and only the last step builds a record
+    @Benchmark
+    public LargeRecord reducersFused() {
+        RecordTransformer<LargeRecord> lens = new RecordTransformer<>(new LargeRecord(1, 1, 1, 1, 1, 1, 1, 1, 1, 1));
+        for (int i = 0; i < ITERATIONS; i++) {
+            lens = lens.update(lens.rec()::a, a -> a + 1);
+        }
+        return lens.transform().rec();
+    }
+
+    public record Inner(int x, int y, String label) {}
+    public record Middle(Inner inner, String name, List<String> tags) {}
+    public record Outer(Middle middle, int version) {}
+
+    private final Outer nestedTarget = new Outer(new Middle(new Inner(1, 2, "i"), "m", List.of("t")), 1);
+
+    // Two updates two records down, by hand: a transformer per level, and the middle one built twice
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Outer nestedByHand() {
+        RecordTransformer<Outer> outer = new RecordTransformer<>(nestedTarget);
+        RecordTransformer<Middle> middle = new RecordTransformer<>(outer.rec().middle());
+        RecordTransformer<Inner> inner = new RecordTransformer<>(middle.rec().inner());
+        middle = middle.with(middle.rec()::inner).as(inner.with(inner.rec()::x).as(5).transform().rec()).transform();
+        inner = new RecordTransformer<>(middle.rec().inner());
+        middle = middle.with(middle.rec()::inner).as(inner.with(inner.rec()::label).as("j").transform().rec()).transform();
+        return outer.with(outer.rec()::middle).as(middle.rec()).transform().rec();
+    }
+
+    // ...and through paths, which fuse into one rebuild of each record on the way down
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Outer nestedPaths() {
+        RecordTransformer<Outer> outer = new RecordTransformer<>(nestedTarget);
+        return outer.with(outer.rec()::middle).then(Middle::inner).then(Inner::x).as(5)
+            .with(outer.rec()::middle).then(Middle::inner).then(Inner::label).as("j")
+            .transform()
+            .rec();
+    }
+
+    @Benchmark
+    public void generatedUnsafeTransform() {
+        LargeRecord start = new LargeRecord(1, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+        GeneratedTransformer<LargeRecord> lens = RecordTransformers.generated(start);
+        for (int i = 0; i < ITERATIONS; i++) {
+            lens = lens
+                .withTypeUnsafe("a", i)
+                .withTypeUnsafe("b", i)
+                .withTypeUnsafe("c", i)
+                .withTypeUnsafe("d", i)
+                .withTypeUnsafe("e", i)
+                .withTypeUnsafe("f", i)
+                .withTypeUnsafe("g", i)
+                .withTypeUnsafe("h", i)
+                .withTypeUnsafe("i", i)
+                .withTypeUnsafe("j", i)
+                .transform();
+        }
+
+    }
+
+    @Benchmark
+    public void generatedSafeTransform() {
+        LargeRecord start = new LargeRecord(1, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+        GeneratedTransformer<LargeRecord> lens = RecordTransformers.generated(start);
+        for (int i = 0; i < ITERATIONS; i++) {
+            lens = lens
+                .with(lens.rec()::a).as(i)
+                .with(lens.rec()::b).as(i)
+                .with(lens.rec()::c).as(i)
+                .with(lens.rec()::d).as(i)
+                .with(lens.rec()::e).as(i)
+                .with(lens.rec()::f).as(i)
+                .with(lens.rec()::g).as(i)
+                .with(lens.rec()::h).as(i)
+                .with(lens.rec()::i).as(i)
+                .with(lens.rec()::j).as(i)
+                .transform();
+        }
+
+    }
+
+    // The one-off cost of generating and defining a transformer class, paid the first time a record type is seen
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public GeneratedTransformer<LargeRecord> generateTransformerClass() {
+        return GeneratedTransformer.prototype(metadata);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void reflectiveGetters(Blackhole bh) {
+        for (Function<LargeRecord, Object> getter : reflectiveGetters) {
+            bh.consume(getter.apply(getterTarget));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public void compiledGetters(Blackhole bh) {
+        for (int i = 0; i < metadata.size(); i++) {
+            bh.consume(metadata.getter(i).apply(getterTarget));
+        }
+    }
+}
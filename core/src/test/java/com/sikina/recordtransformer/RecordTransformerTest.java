@@ -0,0 +1,603 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import otherpackage.ForeignRecord;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+class RecordTransformerTest {
+
+    public record ExampleRec(int a, String b){}
+
+    public record RecordWithNonCanonicalConstructor(int a) {
+        RecordWithNonCanonicalConstructor(boolean ignored) {
+            this(1);
+        }
+    }
+
+    public record RecordWithExtraMethod(int a) {
+        public int b() {
+            return 0;
+        }
+    }
+
+    public record RecordWithNonSerializableField(int a, NonSerializable b){}
+
+    public static final class NonSerializable{
+        private final String s;
+
+        public NonSerializable(String s) {
+            this.s = s;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof NonSerializable that)) return false;
+            return s.equals(that.s);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(s);
+        }
+    }
+
+    public record RecordWithConstructorThatSometimesExplodes(boolean explode){
+        public RecordWithConstructorThatSometimesExplodes(boolean explode) {
+            this.explode = explode;
+            if (explode) {
+                throw new RuntimeException();
+            }
+        }
+    }
+
+    public record Tick(int a, long b, double c, String d, float e, Object f){}
+
+    public record CountingRecord(int a, String b) {
+        static int constructed;
+
+        public CountingRecord {
+            constructed++;
+        }
+    }
+
+    public record Geo(double lat, double lon) {}
+
+    public record Address(String city, Geo geo, int zip) {
+        static int constructed;
+
+        public Address {
+            constructed++;
+        }
+    }
+
+    public record Person(Address address, String name) {}
+
+    public record Envelope(Record contents) {}
+
+    public record Positive(int v) {
+        public Positive {
+            if (v < 0) {
+                throw new IllegalArgumentException("negative: " + v);
+            }
+        }
+    }
+
+    public record Holder(Positive in, String name) {}
+
+    public record ExplodingRecord(int a, String b) {
+        public int a() {
+            throw new RuntimeException();
+        }
+    }
+
+    @Test
+    void shouldConstructObject() {
+        var t = new RecordTransformer<>(new ExampleRec(1, "foo"));
+        Assertions.assertNotNull(t);
+    }
+
+    @Test
+    void shouldConstructForeignRecord() {
+        // I thought records in another package could cause IllegalAccessExceptions.
+        // This test is just verifying that they don't.
+        var t = new RecordTransformer<>(new ForeignRecord(1, "foo"));
+        Assertions.assertNotNull(t);
+    }
+
+    @Test
+    void shouldConstructRecordThatHasNonCanonicalConstructor() {
+        var t = new RecordTransformer<>(new RecordWithNonCanonicalConstructor(true));
+        Assertions.assertNotNull(t);
+    }
+
+    @Test
+    void shouldConstructRecordThatHasExtraMethod() {
+        var t = new RecordTransformer<>(new RecordWithExtraMethod(1));
+        Assertions.assertNotNull(t);
+    }
+
+    @Test
+    void shouldTransformRecord() {
+        var t = new RecordTransformer<>(new ExampleRec(1, "foo"));
+        ExampleRec actual = t.with(t.rec()::a).as(2)
+            .transform()
+            .rec();
+
+        ExampleRec expected = new ExampleRec(2, "foo");
+        Assertions.assertEquals(expected, actual);
+
+        actual = t.withTypeUnsafe("b", "bar")
+            .transform()
+            .rec();
+        expected = new ExampleRec(2, "bar");
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void shouldTransformRecordFromAnotherPackage() {
+        var t = new RecordTransformer<>(new ForeignRecord(1, "foo"));
+        ForeignRecord actual = t.with(t.rec()::a).as(2)
+            .transform()
+            .rec();
+
+        ForeignRecord expected = new ForeignRecord(2, "foo");
+        Assertions.assertEquals(expected, actual);
+
+        actual = t.withTypeUnsafe("b", "bar")
+            .transform()
+            .rec();
+        expected = new ForeignRecord(2, "bar");
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void shouldTransformRecordWithNonCanonicalConstructor() {
+        var t = new RecordTransformer<>(new RecordWithNonCanonicalConstructor(1));
+        RecordWithNonCanonicalConstructor actual = t.with(t.rec()::a).as(2)
+            .transform()
+            .rec();
+
+        RecordWithNonCanonicalConstructor expected = new RecordWithNonCanonicalConstructor(2);
+        Assertions.assertEquals(expected, actual);
+
+        actual = t.withTypeUnsafe("a", 3)
+            .transform()
+            .rec();
+        expected = new RecordWithNonCanonicalConstructor(3);
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void shouldTransformRecordWithExtraMethod() {
+        var t = new RecordTransformer<>(new RecordWithExtraMethod(1));
+        RecordWithExtraMethod actual = t.with(t.rec()::a).as(2)
+            .transform()
+            .rec();
+
+        RecordWithExtraMethod expected = new RecordWithExtraMethod(2);
+        Assertions.assertEquals(expected, actual);
+
+        actual = t.withTypeUnsafe("a", 3)
+            .transform()
+            .rec();
+        expected = new RecordWithExtraMethod(3);
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void shouldTransformRecordWithNonSerializableField() {
+        // Non-serializable fields should not impact the wrapper because nothing actually gets serialized
+        // We just use serializable lambda to get method names
+        var t = new RecordTransformer<>(new RecordWithNonSerializableField(1, new NonSerializable("foo")));
+        RecordWithNonSerializableField actual = t.with(t.rec()::a).as(2)
+            .transform()
+            .rec();
+
+        RecordWithNonSerializableField expected = new RecordWithNonSerializableField(2, new NonSerializable("foo"));
+        Assertions.assertEquals(expected, actual);
+
+        actual = t.withTypeUnsafe("b", new NonSerializable("bar"))
+            .transform()
+            .rec();
+        expected = new RecordWithNonSerializableField(2, new NonSerializable("bar"));
+        Assertions.assertEquals(expected, actual);
+    }
+
+    @Test
+    void shouldExplode() {
+        var t = new RecordTransformer<>(new ExplodingRecord(1, "foo"));
+        // with nothing queued there is nothing to build, so the getters are only read once a field changes
+        t.withTypeUnsafe("b", "bar");
+        Assertions.assertThrows(GetterException.class, t::transform);
+    }
+
+    @Test
+    void shouldNotReadFieldsThatAreBeingReplaced() {
+        // ExplodingRecord's a() throws, but it never needs to be called if a is being replaced
+        var t = new RecordTransformer<>(new ExplodingRecord(1, "foo"));
+        ExplodingRecord actual = t.withTypeUnsafe("a", 2)
+            .withTypeUnsafe("b", "bar")
+            .transform()
+            .rec();
+        Assertions.assertEquals("bar", actual.b());
+    }
+
+    @Test
+    void shouldIgnoreKeysThatAreNotComponents() {
+        var t = new RecordTransformer<>(new ExampleRec(1, "foo"));
+        ExampleRec actual = t.withTypeUnsafe("c", 2)
+            .transform()
+            .rec();
+        Assertions.assertEquals(new ExampleRec(1, "foo"), actual);
+    }
+
+    @Test
+    void shouldExplodeOnTransform() {
+        // This is a really janky test. RecordWithConstructorThatSometimesExplodes will throw a RTE if
+        // set to true. We make the first record with it set to false, then transform to true
+        // to get the exception and verify that it is captured correctly.
+        var t = new RecordTransformer<>(new RecordWithConstructorThatSometimesExplodes(false));
+        t.with(t.rec()::explode).as(true);
+        Assertions.assertThrows(ConstructorException.class, t::transform);
+    }
+
+    @Test
+    void shouldTransformPrimitivesWithoutBoxing() {
+        var t = new RecordTransformer<>(new Tick(1, 2L, 3d, "d", 4f, 5));
+        Tick actual = t.withInt(t.rec()::a).as(10)
+            .withLong(t.rec()::b).as(20L)
+            .withDouble(t.rec()::c).as(30.5)
+            .transform()
+            .rec();
+        Assertions.assertEquals(new Tick(10, 20L, 30.5, "d", 4f, 5), actual);
+
+        actual = t.withInt("a", -1)
+            .withLong("b", Long.MIN_VALUE)
+            .withDouble("c", Double.NaN)
+            .transform()
+            .rec();
+        Assertions.assertEquals(new Tick(-1, Long.MIN_VALUE, Double.NaN, "d", 4f, 5), actual);
+    }
+
+    @Test
+    void shouldWidenPrimitivesLikeTheConstructorWould() {
+        var t = new RecordTransformer<>(new Tick(1, 2L, 3d, "d", 4f, 5));
+        Tick actual = t.withInt("b", 7)
+            .withLong("c", 8L)
+            .withInt("e", 9)
+            .withDouble("f", 10d)
+            .withTypeUnsafe("a", (short) 11)
+            .transform()
+            .rec();
+        Assertions.assertEquals(new Tick(11, 7L, 8d, "d", 9f, 10d), actual);
+
+        actual = t.withTypeUnsafe("c", 'c')
+            .withTypeUnsafe("b", 12)
+            .transform()
+            .rec();
+        Assertions.assertEquals(new Tick(11, 12L, 99d, "d", 9f, 10d), actual);
+    }
+
+    @Test
+    void shouldExplodeOnPrimitiveMismatch() {
+        var t = new RecordTransformer<>(new Tick(1, 2L, 3d, "d", 4f, 5));
+        t.withLong("a", 1L);
+        Assertions.assertThrows(ConstructorException.class, t::transform);
+        t.withDouble("b", 1d);
+        Assertions.assertThrows(ConstructorException.class, t::transform);
+        t.withTypeUnsafe("c", "foo");
+        Assertions.assertThrows(ConstructorException.class, t::transform);
+        t.withInt("d", 1);
+        Assertions.assertThrows(ConstructorException.class, t::transform);
+
+        // failed updates are dropped, like any other update when the constructor fails
+        Assertions.assertEquals(new Tick(1, 2L, 3d, "d", 4f, 5), t.transform().rec());
+    }
+
+    @Test
+    void shouldUpdateFromCurrentValue() {
+        var t = new RecordTransformer<>(new Tick(1, 2L, 3d, "d", 4f, 5));
+        Tick actual = t.update(t.rec()::a, a -> a + 1)
+            .update(t.rec()::b, b -> b * 2)
+            .update(t.rec()::c, c -> c / 2)
+            .update(t.rec()::d, d -> d + "!")
+            .transform()
+            .rec();
+        Assertions.assertEquals(new Tick(2, 4L, 1.5, "d!", 4f, 5), actual);
+    }
+
+    @Test
+    void shouldFuseQueuedUpdates() {
+        var t = new RecordTransformer<>(new CountingRecord(1, "a"));
+        int before = CountingRecord.constructed;
+        CountingRecord actual = t.update(t.rec()::a, a -> a + 1)
+            .update(t.rec()::a, a -> a * 10)
+            .withInt(t.rec()::a).as(5)
+            .update(t.rec()::a, a -> a + 1)
+            .with(t.rec()::b).as("b")
+            .update(t.rec()::b, b -> b + b)
+            .transform()
+            .rec();
+
+        Assertions.assertEquals(new CountingRecord(6, "bb"), actual);
+        // the assertion above builds one record, transform builds the other
+        Assertions.assertEquals(before + 2, CountingRecord.constructed);
+    }
+
+    @Test
+    void shouldExplodeWhenUpdatedFieldCantBeRead() {
+        var t = new RecordTransformer<>(new ExplodingRecord(1, "foo"));
+        Assertions.assertThrows(GetterException.class, () -> t.update(t.rec()::a, a -> a + 1));
+    }
+
+    @Test
+    void shouldUpdateNestedComponents() {
+        Geo geo = new Geo(1, 2);
+        var t = new RecordTransformer<>(new Person(new Address("a", geo, 1), "p"));
+        Person actual = t.with(t.rec()::address).then(Address::city).as("b")
+            .with(t.rec()::address).then(Address::zip).as(2)
+            .transform()
+            .rec();
+
+        Assertions.assertEquals(new Person(new Address("b", geo, 2), "p"), actual);
+        // untouched subtrees are shared, not copied
+        Assertions.assertSame(geo, actual.address().geo());
+
+        actual = t.with(t.rec()::address).then(Address::geo).then(Geo::lat).as(5d)
+            .transform()
+            .rec();
+        Assertions.assertEquals(new Person(new Address("b", new Geo(5, 2), 2), "p"), actual);
+    }
+
+    @Test
+    void shouldBuildNestedRecordsOnce() {
+        var t = new RecordTransformer<>(new Person(new Address("a", new Geo(1, 2), 1), "p"));
+        int before = Address.constructed;
+        t.with(t.rec()::address).then(Address::city).as("b")
+            .with(t.rec()::address).then(Address::zip).as(2)
+            .with(t.rec()::address).then(Address::geo).then(Geo::lon).as(3d)
+            .with(t.rec()::name).as("q")
+            .transform();
+
+        Assertions.assertEquals(before + 1, Address.constructed);
+    }
+
+    @Test
+    void shouldApplyNestedUpdatesToQueuedValue() {
+        var t = new RecordTransformer<>(new Person(new Address("a", new Geo(1, 2), 1), "p"));
+        Address replaced = new Address("b", new Geo(3, 4), 2);
+        Person actual = t.with(t.rec()::address).as(replaced)
+            .with(t.rec()::address).then(Address::city).as("c")
+            .transform()
+            .rec();
+
+        Assertions.assertEquals(new Person(new Address("c", new Geo(3, 4), 2), "p"), actual);
+        Assertions.assertSame(replaced.geo(), actual.address().geo());
+
+        actual = t.with(t.rec()::address).then(Address::geo).then(Geo::lat).as(5d)
+            .with(t.rec()::address).as(replaced)
+            .transform()
+            .rec();
+        // a later set replaces the nested updates before it
+        Assertions.assertEquals(new Person(replaced, "p"), actual);
+    }
+
+    @Test
+    void shouldUpdateAfterNestedUpdate() {
+        var t = new RecordTransformer<>(new Person(new Address("a", new Geo(1, 2), 1), "p"));
+        Person actual = t.with(t.rec()::address).then(Address::zip).as(2)
+            .update(t.rec()::address, address -> new Address(address.city() + "!", address.geo(), address.zip() * 10))
+            .transform()
+            .rec();
+
+        Assertions.assertEquals(new Person(new Address("a!", new Geo(1, 2), 20), "p"), actual);
+    }
+
+    @Test
+    void shouldIgnoreUnknownNestedComponents() {
+        Person person = new Person(new Address("a", new Geo(1, 2), 1), "p");
+        var t = new RecordTransformer<>(person);
+        Person actual = t.with(t.rec()::address).then(Address::hashCode).as(1)
+            .withTypeUnsafe("nope", 1)
+            .transform()
+            .rec();
+
+        Assertions.assertEquals(person, actual);
+    }
+
+    @Test
+    void shouldExplodeOnNestedTypeMismatch() {
+        var t = new RecordTransformer<>(new Person(new Address("a", new Geo(1, 2), 1), "p"));
+        var envelope = new RecordTransformer<>(new Envelope(new Geo(1, 2)));
+        // the record class isn't known until there is a value, so there are no components to update
+        var partial = envelope.with(envelope.rec()::contents);
+        Assertions.assertThrows(GetterException.class, () -> partial.then(Record::hashCode));
+
+        t.with(t.rec()::address).then(Address::geo).then(Geo::lat).as(null);
+        Assertions.assertThrows(ConstructorException.class, t::transform);
+    }
+
+    @Test
+    void shouldDropNestedUpdatesWhoseRecordFailsToBuild() {
+        var t = new RecordTransformer<>(new Holder(new Positive(1), "a"));
+        t.with(Holder::in).then(Positive::v).as(-1);
+        Assertions.assertThrows(ConstructorException.class, t::transform);
+
+        Assertions.assertEquals(new Holder(new Positive(1), "b"), t.withTypeUnsafe("name", "b").transform().rec());
+    }
+
+    @Test
+    void shouldExplodeOnNullNestedRecord() {
+        var t = new RecordTransformer<>(new Person(null, "p"));
+        t.with(t.rec()::address).then(Address::city).as("b");
+        Assertions.assertThrows(GetterException.class, t::transform);
+    }
+
+    @Test
+    void shouldKeepRecordWhenNothingChanges() {
+        Address address = new Address("a", new Geo(1, 2), 1);
+        Person person = new Person(address, "p");
+        var t = new RecordTransformer<>(person);
+        TransformCounts before = RecordTransformers.counts(Person.class);
+
+        Assertions.assertSame(person, t.transform().rec());
+        Assertions.assertSame(person, t.with(t.rec()::address).as(address).with(t.rec()::name).as("p").transform().rec());
+        // unchanged nested records are kept too, all the way up
+        Assertions.assertSame(person, t.with(t.rec()::address).then(Address::zip).as(1)
+            .with(t.rec()::address).then(Address::geo).then(Geo::lat).as(1d)
+            .transform()
+            .rec());
+        t.with(t.rec()::address).then(Address::zip).as(2).transform();
+        Assertions.assertNotSame(person, t.rec());
+
+        TransformCounts after = RecordTransformers.counts(Person.class);
+        Assertions.assertEquals(before.performed() + 1, after.performed());
+        Assertions.assertEquals(before.skipped() + 3, after.skipped());
+    }
+
+    @Test
+    void shouldCompareConfiguredComponentsWithEquals() {
+        Tick tick = new Tick(1, 2L, 3d, "d", 4f, List.of(1));
+        var t = new RecordTransformer<>(tick);
+        // boxed floats are compared by value whatever the configuration
+        t.with(t.rec()::e).as(4f).withTypeUnsafe("b", 2);
+        Assertions.assertSame(tick, t.transform().rec());
+
+        t.with(t.rec()::f).as(List.of(1));
+        Assertions.assertNotSame(tick, t.transform().rec());
+
+        RecordTransformers.compare(Tick.class, Tick::f, Comparison.EQUALS);
+        RecordTransformers.compare(Tick.class, Tick::e, Comparison.IDENTITY);
+        RecordTransformers.compare(Tick.class, Tick::hashCode, Comparison.EQUALS);
+        try {
+            Tick current = t.rec();
+            Assertions.assertSame(current, t.with(t.rec()::f).as(List.of(1)).transform().rec());
+            Assertions.assertSame(current, t.with(t.rec()::e).as(4f).transform().rec());
+        } finally {
+            RecordTransformers.compare(Tick.class, Tick::f, Comparison.IDENTITY);
+        }
+    }
+
+    @Test
+    void shouldStillExplodeOnMismatchWhenNothingChanges() {
+        var t = new RecordTransformer<>(new ForeignRecord(1, "foo"));
+        t.withTypeUnsafe("a", "foo");
+        Assertions.assertThrows(ConstructorException.class, t::transform);
+    }
+
+    @Test
+    void shouldResetToAnotherRecord() {
+        var t = new RecordTransformer<>(new ForeignRecord(1, "foo"));
+        t.with(t.rec()::a).as(2).transform();
+        t.with(t.rec()::b).as("dropped");
+
+        ForeignRecord next = new ForeignRecord(5, "bar");
+        Assertions.assertSame(next, t.reset(next).transform().rec());
+        Assertions.assertEquals(new ForeignRecord(6, "bar"), t.withInt("a", 6).transform().rec());
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        RecordTransformer<Record> raw = (RecordTransformer) t;
+        Assertions.assertThrows(IllegalArgumentException.class, () -> raw.reset(new ExampleRec(1, "foo")));
+    }
+
+    @Test
+    void shouldReuseThreadLocalTransformer() throws Exception {
+        RecordTransformer<ForeignRecord> first = RecordTransformers.threadLocal(new ForeignRecord(1, "foo"));
+        first.withInt("a", 2);
+        RecordTransformer<ForeignRecord> second = RecordTransformers.threadLocal(new ForeignRecord(3, "bar"));
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(new ForeignRecord(3, "baz"), second.withTypeUnsafe("b", "baz").transform().rec());
+
+        AtomicReference<RecordTransformer<ForeignRecord>> others = new AtomicReference<>();
+        Thread other = new Thread(() -> others.set(RecordTransformers.threadLocal(new ForeignRecord(1, "foo"))));
+        other.start();
+        other.join();
+        Assertions.assertNotNull(others.get());
+        Assertions.assertNotSame(first, others.get());
+    }
+
+    @Test
+    void shouldNameFieldsWithUnboundGetters() {
+        var t = new RecordTransformer<>(new ExampleRec(1, "foo"));
+        ExampleRec actual = t.with(ExampleRec::b).as("bar")
+            .update(ExampleRec::a, a -> a + 1)
+            .transform()
+            .rec();
+
+        Assertions.assertEquals(new ExampleRec(2, "bar"), actual);
+    }
+
+    @Test
+    void shouldBuildLazyRecordOnceWhenRead() {
+        var t = RecordTransformers.lazy(new CountingRecord(0, "a"));
+        int before = CountingRecord.constructed;
+        for (int i = 0; i < 10; i++) {
+            t.update(CountingRecord::a, a -> a + 1).transform();
+        }
+        t.with(CountingRecord::b).as("b").transform();
+        Assertions.assertEquals(before, CountingRecord.constructed);
+
+        Assertions.assertEquals(new CountingRecord(10, "b"), t.rec());
+        Assertions.assertSame(t.rec(), t.rec());
+        Assertions.assertEquals(before + 2, CountingRecord.constructed);
+    }
+
+    @Test
+    void shouldOnlyBuildTransformedUpdatesOfLazyRecord() {
+        var t = RecordTransformers.lazy(new ExampleRec(1, "foo"));
+        t.withInt("a", 2).transform().withTypeUnsafe("b", "queued");
+
+        Assertions.assertEquals(new ExampleRec(2, "foo"), t.rec());
+        Assertions.assertEquals(new ExampleRec(2, "queued"), t.transform().rec());
+        Assertions.assertEquals(new ExampleRec(1, "x"), t.withTypeUnsafe("b", "y").transform().reset(new ExampleRec(1, "x")).rec());
+    }
+
+    @Test
+    void shouldKeepLazyRecordWhenTransformsCancelOut() {
+        ExampleRec rec = new ExampleRec(1, "foo");
+        var t = RecordTransformers.lazy(rec);
+        t.withInt("a", 2).transform().withInt("a", 1).transform();
+
+        Assertions.assertSame(rec, t.rec());
+    }
+
+    @Test
+    void shouldApplyNestedUpdatesToLazilyTransformedValue() {
+        var t = RecordTransformers.lazy(new Person(new Address("a", new Geo(1, 2), 1), "p"));
+        t.with(Person::address).then(Address::city).as("b").transform();
+        t.with(Person::address).then(Address::zip).as(2).transform();
+        t.update(Person::address, address -> new Address(address.city() + "!", address.geo(), address.zip() * 10)).transform();
+
+        Assertions.assertEquals(new Person(new Address("b!", new Geo(1, 2), 20), "p"), t.rec());
+    }
+
+    @Test
+    void shouldExplodeOnReadOfLazyRecord() {
+        ExampleRec rec = new ExampleRec(1, "foo");
+        var t = RecordTransformers.lazy(rec);
+        t.withTypeUnsafe("a", "not an int").transform();
+
+        Assertions.assertThrows(ConstructorException.class, t::rec);
+        // the failed transforms are dropped, as an eager transform drops them
+        Assertions.assertSame(rec, t.rec());
+    }
+
+    @Test
+    void shouldExplodeOnTransformOfLazyNestedRecord() {
+        Holder rec = new Holder(new Positive(1), "a");
+        var t = RecordTransformers.lazy(rec);
+        t.withTypeUnsafe("name", "b");
+        t.with(Holder::in).then(Positive::v).as(-1);
+
+        // nested records are built as the transform folds them in
+        Assertions.assertThrows(ConstructorException.class, t::transform);
+        Assertions.assertSame(rec, t.rec());
+        Assertions.assertEquals(new Holder(new Positive(2), "a"), t.with(Holder::in).then(Positive::v).as(2).transform().rec());
+    }
+}
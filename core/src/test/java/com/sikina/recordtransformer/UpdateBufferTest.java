@@ -0,0 +1,82 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class UpdateBufferTest {
+    @Test
+    void shouldTrackDirtySlots() {
+        var buffer = new UpdateBuffer(3);
+        buffer.put(1, "foo");
+
+        Assertions.assertFalse(buffer.isDirty(0));
+        Assertions.assertTrue(buffer.isDirty(1));
+        Assertions.assertFalse(buffer.isDirty(2));
+        Assertions.assertEquals("foo", buffer.get(1));
+    }
+
+    @Test
+    void shouldTrackNullUpdates() {
+        var buffer = new UpdateBuffer(1);
+        buffer.put(0, null);
+
+        Assertions.assertTrue(buffer.isDirty(0));
+        Assertions.assertNull(buffer.get(0));
+    }
+
+    @Test
+    void shouldTrackSlotsPastTheFirstWord() {
+        var buffer = new UpdateBuffer(130);
+        buffer.put(64, "a");
+        buffer.put(129, "b");
+
+        Assertions.assertFalse(buffer.isDirty(0));
+        Assertions.assertTrue(buffer.isDirty(64));
+        Assertions.assertTrue(buffer.isDirty(129));
+        Assertions.assertFalse(buffer.isDirty(1));
+    }
+
+    @Test
+    void shouldClearDirtySlots() {
+        var buffer = new UpdateBuffer(130);
+        buffer.put(3, "a");
+        buffer.put(100, "b");
+        buffer.clear();
+
+        Assertions.assertFalse(buffer.isDirty(3));
+        Assertions.assertFalse(buffer.isDirty(100));
+        Assertions.assertNull(buffer.get(3));
+        Assertions.assertNull(buffer.get(100));
+    }
+
+    @Test
+    void shouldTrackUnboxedSlots() {
+        var buffer = new UpdateBuffer(70);
+        buffer.putBits(65, 42L);
+        buffer.put(3, "a");
+
+        Assertions.assertTrue(buffer.isDirty(65));
+        Assertions.assertTrue(buffer.hasBits(65));
+        Assertions.assertEquals(42L, buffer.getBits(65));
+        Assertions.assertFalse(buffer.hasBits(3));
+
+        buffer.put(65, "b");
+        Assertions.assertFalse(buffer.hasBits(65));
+        buffer.putBits(3, 1L);
+        buffer.clear();
+        Assertions.assertFalse(buffer.hasBits(3));
+        Assertions.assertFalse(buffer.isDirty(3));
+    }
+
+    @Test
+    void shouldBeEmptyUntilWrittenAndAfterClear() {
+        var buffer = new UpdateBuffer(130);
+        Assertions.assertTrue(buffer.isEmpty());
+
+        buffer.putBits(129, 1L);
+        Assertions.assertFalse(buffer.isEmpty());
+
+        buffer.clear();
+        Assertions.assertTrue(buffer.isEmpty());
+    }
+}
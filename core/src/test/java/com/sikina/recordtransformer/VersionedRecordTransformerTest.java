@@ -0,0 +1,153 @@
+package com.sikina.recordtransformer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import otherpackage.ForeignRecord;
+
+class VersionedRecordTransformerTest {
+
+    private static VersionedRecordTransformer<ForeignRecord> counted(VersionedRecordTransformer<ForeignRecord> t, int versions) {
+        for (int i = 0; i < versions; i++) {
+            t.withTypeUnsafe("a", t.rec().a() + 1).transform();
+        }
+        return t;
+    }
+
+    @Test
+    void shouldUndoAndRedo() {
+        ForeignRecord start = new ForeignRecord(0, "foo");
+        var t = new VersionedRecordTransformer<>(start);
+        t.with(t.rec()::a).as(1).transform();
+        t.with(t.rec()::b).as("bar").transform();
+        Assertions.assertEquals(2, t.version());
+
+        Assertions.assertEquals(new ForeignRecord(1, "foo"), t.undo().rec());
+        Assertions.assertSame(start, t.undo().rec());
+        Assertions.assertSame(start, t.undo().rec());
+        Assertions.assertEquals(0, t.version());
+
+        Assertions.assertEquals(new ForeignRecord(1, "foo"), t.redo().rec());
+        Assertions.assertEquals(new ForeignRecord(1, "bar"), t.redo().rec());
+        Assertions.assertEquals(new ForeignRecord(1, "bar"), t.redo().rec());
+        Assertions.assertEquals(2, t.latestVersion());
+    }
+
+    @Test
+    void shouldDropRedoneVersionsOnTransform() {
+        var t = counted(new VersionedRecordTransformer<>(new ForeignRecord(0, "foo")), 3);
+        t.undo().undo();
+        t.with(t.rec()::b).as("bar").transform();
+
+        Assertions.assertEquals(2, t.version());
+        Assertions.assertEquals(2, t.latestVersion());
+        Assertions.assertEquals(new ForeignRecord(1, "bar"), t.rec());
+        Assertions.assertEquals(new ForeignRecord(1, "foo"), t.at(1));
+    }
+
+    @Test
+    void shouldNotVersionTransformsThatChangeNothing() {
+        var t = new VersionedRecordTransformer<>(new ForeignRecord(0, "foo"));
+        t.transform().with(t.rec()::a).as(0).transform();
+        Assertions.assertEquals(0, t.latestVersion());
+    }
+
+    @Test
+    void shouldLookUpEveryVersion() {
+        var t = counted(VersionedRecordTransformer.builder(new ForeignRecord(0, "foo")).snapshotEvery(4).build(), 20);
+        for (int v = 0; v <= 20; v++) {
+            Assertions.assertEquals(new ForeignRecord(v, "foo"), t.at(v));
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> t.at(21));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> t.at(-1));
+    }
+
+    @Test
+    void shouldKeepPrimitiveDiffs() {
+        var t = new VersionedRecordTransformer<>(new RecordTransformerTest.Tick(1, 2L, 3d, "d", 4f, 5));
+        t.withInt(t.rec()::a).as(10).withDouble(t.rec()::c).as(0.5).transform();
+        t.withLong(t.rec()::b).as(20L).transform();
+
+        Assertions.assertEquals(new RecordTransformerTest.Tick(10, 2L, 0.5, "d", 4f, 5), t.at(1));
+    }
+
+    @Test
+    void shouldDropOldestVersionsPastTheBudget() {
+        var t = counted(
+            VersionedRecordTransformer.builder(new ForeignRecord(0, "foo")).maxVersions(5).snapshotEvery(3).build(),
+            12
+        );
+        Assertions.assertEquals(8, t.oldestVersion());
+        Assertions.assertEquals(12, t.latestVersion());
+        for (int v = 8; v <= 12; v++) {
+            Assertions.assertEquals(new ForeignRecord(v, "foo"), t.at(v));
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> t.at(7));
+
+        for (int i = 0; i < 10; i++) {
+            t.undo();
+        }
+        Assertions.assertEquals(new ForeignRecord(8, "foo"), t.rec());
+    }
+
+    @Test
+    void shouldRebuildDiffsAfterTheirSnapshotIsDropped() {
+        var t = counted(VersionedRecordTransformer.builder(new ForeignRecord(0, "foo")).maxVersions(3).build(), 10);
+        for (int v = 8; v <= 10; v++) {
+            Assertions.assertEquals(new ForeignRecord(v, "foo"), t.at(v));
+        }
+    }
+
+    @Test
+    void shouldKeepThePreviousVersionWithRoomForTwo() {
+        var t = counted(VersionedRecordTransformer.builder(new ForeignRecord(0, "x")).maxVersions(2).build(), 3);
+        Assertions.assertEquals(2, t.oldestVersion());
+        Assertions.assertEquals(new ForeignRecord(2, "x"), t.at(2));
+        Assertions.assertEquals(new ForeignRecord(3, "x"), t.at(3));
+        Assertions.assertEquals(new ForeignRecord(2, "x"), t.undo().rec());
+        Assertions.assertEquals(new ForeignRecord(3, "x"), t.redo().rec());
+    }
+
+    @Test
+    void shouldKeepOnlyTheCurrentVersionWithTinyBudgets() {
+        var single = counted(VersionedRecordTransformer.builder(new ForeignRecord(0, "foo")).maxVersions(1).build(), 3);
+        Assertions.assertEquals(3, single.oldestVersion());
+        Assertions.assertEquals(new ForeignRecord(3, "foo"), single.undo().rec());
+
+        var noBytes = counted(VersionedRecordTransformer.builder(new ForeignRecord(0, "foo")).maxBytes(0).build(), 3);
+        Assertions.assertEquals(3, noBytes.oldestVersion());
+        Assertions.assertEquals(new ForeignRecord(3, "foo"), noBytes.at(3));
+    }
+
+    @Test
+    void shouldBoundBytes() {
+        var t = counted(VersionedRecordTransformer.builder(new ForeignRecord(0, "foo")).maxBytes(1_000).build(), 100);
+        Assertions.assertTrue(t.oldestVersion() > 0);
+        Assertions.assertTrue(t.latestVersion() - t.oldestVersion() > 1);
+        for (long v = t.oldestVersion(); v <= t.latestVersion(); v++) {
+            Assertions.assertEquals(new ForeignRecord((int) v, "foo"), t.at(v));
+        }
+    }
+
+    @Test
+    void shouldRejectEmptyBudgets() {
+        var builder = VersionedRecordTransformer.builder(new ForeignRecord(0, "foo"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.maxVersions(0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> builder.snapshotEvery(0));
+    }
+
+    @Test
+    void shouldStartNewHistoryOnReset() {
+        var t = counted(VersionedRecordTransformer.builder(new ForeignRecord(0, "foo")).maxVersions(3).build(), 5);
+        ForeignRecord next = new ForeignRecord(10, "bar");
+        t.reset(next);
+
+        Assertions.assertEquals(0, t.version());
+        Assertions.assertEquals(0, t.oldestVersion());
+        Assertions.assertEquals(0, t.latestVersion());
+        Assertions.assertSame(next, t.undo().rec());
+
+        counted(t, 4);
+        Assertions.assertEquals(2, t.oldestVersion());
+        Assertions.assertEquals(new ForeignRecord(12, "bar"), t.at(2));
+    }
+}
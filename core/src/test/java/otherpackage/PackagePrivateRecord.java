@@ -0,0 +1,3 @@
+package otherpackage;
+
+record PackagePrivateRecord(int a) {}
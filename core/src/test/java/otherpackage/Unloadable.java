@@ -0,0 +1,8 @@
+package otherpackage;
+
+/**
+ * Copied into a jar without MissingBase, which it extends, this class can't be loaded from it.
+ */
+public class Unloadable extends MissingBase {}
+
+class MissingBase {}
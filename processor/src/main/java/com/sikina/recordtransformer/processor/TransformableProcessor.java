@@ -0,0 +1,103 @@
+package com.sikina.recordtransformer.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Generates a reflection-free {@code XxxTransformer} for every record annotated with
+ * {@code @Transformable}. Add this module to your compiler's annotation processor path to use it.
+ *
+ * It also lists the binary names of those records, one per line, in {@value #INDEX}, from which
+ * {@code RecordTransformers.preloadIndexed} finds them at startup. The index only covers the records
+ * compiled together, so an incremental build that recompiles some of them leaves the others out until
+ * the next full build.
+ */
+@SupportedAnnotationTypes(TransformableProcessor.TRANSFORMABLE)
+public class TransformableProcessor extends AbstractProcessor {
+    static final String TRANSFORMABLE = "com.sikina.recordtransformer.Transformable";
+    // the same path as Preloader.INDEX in the core module
+    static final String INDEX = "META-INF/recordlens/records";
+
+    private final Set<TypeElement> indexed = new LinkedHashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.RECORD) {
+                    error("@Transformable can only be applied to records", element);
+                } else if (!isAccessibleFromPackage(element)) {
+                    error("@Transformable records must be visible to the rest of their package", element);
+                } else {
+                    write(new TransformerSource(processingEnv, (TypeElement) element));
+                    indexed.add((TypeElement) element);
+                }
+            }
+        }
+        if (roundEnv.processingOver() && !indexed.isEmpty()) {
+            writeIndex();
+        }
+        return true;
+    }
+
+    private static boolean isAccessibleFromPackage(Element element) {
+        for (Element e = element; e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+            if (e.getModifiers().contains(Modifier.PRIVATE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void write(TransformerSource source) {
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(source.qualifiedName(), source.record());
+            try (Writer writer = file.openWriter()) {
+                writer.write(source.render());
+            }
+        } catch (IOException e) {
+            error("Could not write " + source.qualifiedName() + ": " + e.getMessage(), source.record());
+        }
+    }
+
+    private void writeIndex() {
+        Elements elements = processingEnv.getElementUtils();
+        try {
+            FileObject file = processingEnv.getFiler()
+                .createResource(StandardLocation.CLASS_OUTPUT, "", INDEX, indexed.toArray(new Element[0]));
+            try (Writer writer = file.openWriter()) {
+                for (TypeElement record : indexed) {
+                    writer.write(elements.getBinaryName(record) + "\n");
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(
+                Diagnostic.Kind.ERROR, "Could not write " + INDEX + ": " + e.getMessage()
+            );
+        }
+    }
+
+    private void error(String message, Element element) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,261 @@
+package com.sikina.recordtransformer.processor;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Renders the source of the companion transformer for one record.
+ *
+ * The generated class keeps one typed slot per component and a bitmask of the slots that have
+ * been written. transform() passes either the slot or the current record's value straight to the
+ * canonical constructor, so there is no reflection, boxing or argument array involved.
+ */
+final class TransformerSource {
+    private static final String TRANSFORMER = "com.sikina.recordtransformer.Transformer";
+    private static final String CONSTRUCTOR_EXCEPTION = "com.sikina.recordtransformer.ConstructorException";
+
+    private final TypeElement record;
+    private final Types types;
+    private final String packageName;
+    private final String simpleName;
+    private final String typeParameters;
+    private final String typeArguments;
+    private final String recordType;
+    private final List<? extends RecordComponentElement> components;
+
+    TransformerSource(ProcessingEnvironment env, TypeElement record) {
+        this.record = record;
+        this.types = env.getTypeUtils();
+        packageName = env.getElementUtils().getPackageOf(record).getQualifiedName().toString();
+        simpleName = enclosingNames(record) + "Transformer";
+        List<? extends TypeParameterElement> parameters = record.getTypeParameters();
+        typeParameters = parameters.isEmpty() ? "" : parameters.stream()
+            .map(TransformerSource::declaration)
+            .collect(Collectors.joining(", ", "<", ">"));
+        typeArguments = parameters.isEmpty() ? "" : parameters.stream()
+            .map(p -> p.getSimpleName().toString())
+            .collect(Collectors.joining(", ", "<", ">"));
+        recordType = record.getQualifiedName() + typeArguments;
+        components = record.getRecordComponents();
+    }
+
+    TypeElement record() {
+        return record;
+    }
+
+    String qualifiedName() {
+        return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    }
+
+    String render() {
+        String self = simpleName + typeArguments;
+        StringBuilder out = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("/**\n")
+            .append(" * Reflection-free transformer for {@link ").append(record.getQualifiedName()).append("}.\n")
+            .append(" * Generated by recordlens from the @Transformable annotation. Do not edit.\n")
+            .append(" */\n")
+            .append("@javax.annotation.processing.Generated(\"")
+            .append(TransformableProcessor.class.getName()).append("\")\n")
+            .append("public final class ").append(simpleName).append(typeParameters)
+            .append(" implements ").append(TRANSFORMER).append("<").append(recordType).append("> {\n");
+
+        out.append("    private ").append(recordType).append(" rec;\n");
+        for (int word = 0; word < dirtyWords(); word++) {
+            out.append("    private long dirty").append(word).append(";\n");
+        }
+        for (int i = 0; i < components.size(); i++) {
+            out.append("    private ").append(type(i)).append(" slot").append(i).append(";\n");
+        }
+
+        out.append("\n    public ").append(simpleName).append("(").append(recordType).append(" rec) {\n")
+            .append("        this.rec = rec;\n")
+            .append("    }\n");
+
+        out.append("\n    @Override\n")
+            .append("    public ").append(recordType).append(" rec() {\n")
+            .append("        return rec;\n")
+            .append("    }\n");
+
+        for (int i = 0; i < components.size(); i++) {
+            out.append("\n    public ").append(self).append(" ").append(witherName(i))
+                .append("(").append(type(i)).append(" value) {\n")
+                .append("        slot").append(i).append(" = value;\n")
+                .append("        dirty").append(i >>> 6).append(" |= ").append(mask(i)).append(";\n")
+                .append("        return this;\n")
+                .append("    }\n");
+        }
+
+        out.append("\n    /**\n")
+            .append("     * Unlike RecordTransformer, a value that doesn't match the component's type fails here,\n")
+            .append("     * with a ClassCastException, rather than in transform().\n")
+            .append("     */\n")
+            .append("    @Override\n")
+            .append("    @SuppressWarnings(\"unchecked\")\n")
+            .append("    public ").append(self).append(" withTypeUnsafe(java.lang.String key, java.lang.Object value) {\n")
+            .append("        switch (key) {\n");
+        for (int i = 0; i < components.size(); i++) {
+            out.append("            case \"").append(name(i)).append("\": return ").append(witherName(i))
+                .append("((").append(boxedType(i)).append(") value);\n");
+        }
+        out.append("            default: return this;\n")
+            .append("        }\n")
+            .append("    }\n");
+
+        primitiveWither(out, self, "withInt", TypeKind.INT);
+        primitiveWither(out, self, "withLong", TypeKind.LONG);
+        primitiveWither(out, self, "withDouble", TypeKind.DOUBLE);
+
+        out.append("\n    /**\n")
+            .append("     * If the constructor throws, the written slots are dropped, as RecordTransformer drops them,\n")
+            .append("     * and what it threw is wrapped in a ConstructorException.\n")
+            .append("     */\n")
+            .append("    @Override\n")
+            .append("    public ").append(self).append(" transform() {\n")
+            .append("        // if every written slot is the same as the current value, keep the current record\n")
+            .append("        boolean changed =");
+        for (int i = 0; i < components.size(); i++) {
+            out.append(i == 0 ? "\n            " : "\n            || ")
+                .append("(dirty").append(i >>> 6).append(" & ").append(mask(i)).append(") != 0 && ")
+                .append(differs(i));
+        }
+        out.append(components.isEmpty() ? " false;\n" : ";\n")
+            .append("        if (changed) {\n")
+            .append("            try {\n")
+            .append("                rec = new ").append(record.getQualifiedName())
+            .append(typeArguments.isEmpty() ? "" : "<>").append("(");
+        for (int i = 0; i < components.size(); i++) {
+            out.append(i == 0 ? "\n" : ",\n")
+                .append("                    (dirty").append(i >>> 6).append(" & ").append(mask(i)).append(") != 0 ? slot")
+                .append(i).append(" : rec.").append(name(i)).append("()");
+        }
+        out.append("\n                );\n")
+            .append("            } catch (java.lang.RuntimeException e) {\n")
+            .append("                clear();\n")
+            .append("                throw new ").append(CONSTRUCTOR_EXCEPTION).append("(e);\n")
+            .append("            }\n")
+            .append("        }\n")
+            .append("        clear();\n")
+            .append("        return this;\n")
+            .append("    }\n");
+
+        out.append("\n    private void clear() {\n");
+        for (int word = 0; word < dirtyWords(); word++) {
+            out.append("        dirty").append(word).append(" = 0L;\n");
+        }
+        for (int i = 0; i < components.size(); i++) {
+            if (!type(i).getKind().isPrimitive()) {
+                // don't keep replaced values reachable from the transformer
+                out.append("        slot").append(i).append(" = null;\n");
+            }
+        }
+        out.append("    }\n")
+            .append("}\n");
+        return out.toString();
+    }
+
+    /**
+     * Overrides one of the Transformer's primitive withers so that a value for a primitive component
+     * goes straight to its typed wither without being boxed. Components the value can't be assigned
+     * to fall through to withTypeUnsafe, like the interface's default does.
+     */
+    private void primitiveWither(StringBuilder out, String self, String method, TypeKind kind) {
+        PrimitiveType valueType = types.getPrimitiveType(kind);
+        List<Integer> accepting = new ArrayList<>();
+        for (int i = 0; i < components.size(); i++) {
+            if (type(i).getKind().isPrimitive() && types.isAssignable(valueType, type(i))) {
+                accepting.add(i);
+            }
+        }
+        if (accepting.isEmpty()) {
+            return;
+        }
+        out.append("\n    @Override\n")
+            .append("    public ").append(self).append(" ").append(method).append("(java.lang.String key, ")
+            .append(valueType).append(" value) {\n")
+            .append("        switch (key) {\n");
+        for (int i : accepting) {
+            out.append("            case \"").append(name(i)).append("\": return ").append(witherName(i))
+                .append("(value);\n");
+        }
+        out.append("            default: return withTypeUnsafe(key, value);\n")
+            .append("        }\n")
+            .append("    }\n");
+    }
+
+    /**
+     * @return an expression that is true if the slot differs from the current record's value. References
+     * are compared by identity, like RecordTransformer does by default, and floating point values bit for bit.
+     */
+    private String differs(int i) {
+        String current = "rec." + name(i) + "()";
+        TypeKind kind = type(i).getKind();
+        if (kind == TypeKind.DOUBLE) {
+            return "java.lang.Double.doubleToRawLongBits(slot" + i + ") != java.lang.Double.doubleToRawLongBits("
+                + current + ")";
+        } else if (kind == TypeKind.FLOAT) {
+            return "java.lang.Float.floatToRawIntBits(slot" + i + ") != java.lang.Float.floatToRawIntBits("
+                + current + ")";
+        }
+        return "slot" + i + " != " + current;
+    }
+
+    private int dirtyWords() {
+        return (components.size() + 63) >>> 6;
+    }
+
+    private TypeMirror type(int i) {
+        return components.get(i).asType();
+    }
+
+    private String boxedType(int i) {
+        TypeMirror type = type(i);
+        return type.getKind().isPrimitive()
+            ? types.boxedClass((PrimitiveType) type).getQualifiedName().toString()
+            : type.toString();
+    }
+
+    private String name(int i) {
+        return components.get(i).getSimpleName().toString();
+    }
+
+    private String witherName(int i) {
+        String name = name(i);
+        return "with" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String mask(int i) {
+        return "0x" + Long.toHexString(1L << i) + "L";
+    }
+
+    private static String declaration(TypeParameterElement parameter) {
+        String bounds = parameter.getBounds().stream()
+            .map(TypeMirror::toString)
+            .filter(bound -> !bound.equals("java.lang.Object"))
+            .collect(Collectors.joining(" & "));
+        return bounds.isEmpty() ? parameter.getSimpleName().toString() : parameter.getSimpleName() + " extends " + bounds;
+    }
+
+    private static String enclosingNames(TypeElement record) {
+        Deque<String> names = new ArrayDeque<>();
+        for (Element e = record; e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+            names.push(e.getSimpleName().toString());
+        }
+        return String.join("_", names);
+    }
+}
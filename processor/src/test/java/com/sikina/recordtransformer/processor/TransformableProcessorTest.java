@@ -0,0 +1,318 @@
+package com.sikina.recordtransformer.processor;
+
+import com.sikina.recordtransformer.ConstructorException;
+import com.sikina.recordtransformer.Transformer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+class TransformableProcessorTest {
+
+    @TempDir
+    Path output;
+
+    private static final class Source extends SimpleJavaFileObject {
+        private final String code;
+
+        Source(String className, String code) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.code = code;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return code;
+        }
+    }
+
+    private record Result(boolean success, List<Diagnostic<? extends JavaFileObject>> diagnostics, ClassLoader loader) {
+        String errors() {
+            return diagnostics.stream()
+                .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+                .map(d -> d.getMessage(null))
+                .collect(Collectors.joining("\n"));
+        }
+    }
+
+    private Result compile(Source... sources) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Path classes = Files.createDirectories(output.resolve("classes"));
+        Path generated = Files.createDirectories(output.resolve("generated"));
+        List<String> options = List.of(
+            "-d", classes.toString(),
+            "-s", generated.toString(),
+            "-classpath", location(Transformer.class)
+        );
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, diagnostics, options, null, List.of(sources));
+        task.setProcessors(List.of(new TransformableProcessor()));
+        boolean success = task.call();
+        ClassLoader loader = new URLClassLoader(new URL[]{classes.toUri().toURL()}, getClass().getClassLoader());
+        return new Result(success, diagnostics.getDiagnostics(), loader);
+    }
+
+    private static String location(Class<?> type) throws URISyntaxException {
+        return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Transformer<Record> newTransformer(ClassLoader loader, String transformer, String record, Object... args)
+        throws ReflectiveOperationException {
+        Class<?> recordClass = loader.loadClass(record);
+        Record rec = (Record) recordClass.getDeclaredConstructors()[0].newInstance(args);
+        return (Transformer<Record>) loader.loadClass(transformer).getConstructor(recordClass).newInstance(rec);
+    }
+
+    @Test
+    void shouldGenerateTransformer() throws Exception {
+        Result result = compile(new Source("example.Point", """
+            package example;
+
+            @com.sikina.recordtransformer.Transformable
+            public record Point(int x, String label) {}
+            """));
+        Assertions.assertTrue(result.success(), result.errors());
+
+        Transformer<Record> t = newTransformer(result.loader(), "example.PointTransformer", "example.Point", 1, "a");
+        t.getClass().getMethod("withX", int.class).invoke(t, 2);
+        Assertions.assertEquals("Point[x=2, label=a]", t.transform().rec().toString());
+
+        Assertions.assertEquals("Point[x=2, label=b]", t.withTypeUnsafe("label", "b").transform().rec().toString());
+        Assertions.assertEquals("Point[x=2, label=b]", t.withTypeUnsafe("nope", 5).transform().rec().toString());
+        Assertions.assertThrows(ClassCastException.class, () -> t.withTypeUnsafe("x", "not an int"));
+    }
+
+    @Test
+    void shouldIndexTransformableRecords() throws Exception {
+        Result result = compile(
+            new Source("example.Point", """
+                package example;
+
+                @com.sikina.recordtransformer.Transformable
+                public record Point(int x, String label) {}
+                """),
+            new Source("example.Outer", """
+                package example;
+
+                public class Outer {
+                    @com.sikina.recordtransformer.Transformable
+                    public record Inner(int x) {}
+
+                    public record NotAnnotated(int x) {}
+                }
+                """)
+        );
+        Assertions.assertTrue(result.success(), result.errors());
+
+        List<String> index = Files.readAllLines(output.resolve("classes").resolve(TransformableProcessor.INDEX));
+        Assertions.assertEquals(List.of("example.Point", "example.Outer$Inner"), index);
+    }
+
+    @Test
+    void shouldNotWriteAnEmptyIndex() throws Exception {
+        Result result = compile(new Source("example.Plain", """
+            package example;
+
+            public record Plain(int x) {}
+            """));
+        Assertions.assertTrue(result.success(), result.errors());
+
+        Assertions.assertFalse(Files.exists(output.resolve("classes").resolve(TransformableProcessor.INDEX)));
+    }
+
+    @Test
+    void shouldKeepRecordWhenNothingChanges() throws Exception {
+        Result result = compile(new Source("example.Quote", """
+            package example;
+
+            @com.sikina.recordtransformer.Transformable
+            public record Quote(int size, double price, float ratio, String symbol) {}
+            """));
+        Assertions.assertTrue(result.success(), result.errors());
+
+        Transformer<Record> t = newTransformer(
+            result.loader(), "example.QuoteTransformer", "example.Quote", 1, 2d, 3f, "a"
+        );
+        Record rec = t.rec();
+        Assertions.assertSame(rec, t.transform().rec());
+        String symbol = (String) rec.getClass().getMethod("symbol").invoke(rec);
+        Assertions.assertSame(rec, t.withInt("size", 1)
+            .withDouble("price", 2d)
+            .withTypeUnsafe("ratio", 3f)
+            .withTypeUnsafe("symbol", symbol)
+            .transform()
+            .rec());
+
+        Assertions.assertNotSame(rec, t.withDouble("price", -0d).transform().rec());
+        Assertions.assertEquals("Quote[size=1, price=-0.0, ratio=3.0, symbol=a]", t.rec().toString());
+    }
+
+    @Test
+    void shouldPassPrimitivesToTypedWithers() throws Exception {
+        Result result = compile(new Source("example.Tick", """
+            package example;
+
+            @com.sikina.recordtransformer.Transformable
+            public record Tick(int size, long time, double price, float ratio, String symbol) {}
+            """));
+        Assertions.assertTrue(result.success(), result.errors());
+
+        Transformer<Record> t = newTransformer(
+            result.loader(), "example.TickTransformer", "example.Tick", 1, 2L, 3d, 4f, "a"
+        );
+        Record actual = t.withInt("size", 10)
+            .withInt("ratio", 5)
+            .withLong("time", 20L)
+            .withDouble("price", 30.5)
+            .transform()
+            .rec();
+        Assertions.assertEquals("Tick[size=10, time=20, price=30.5, ratio=5.0, symbol=a]", actual.toString());
+
+        // values that can't be assigned to the component go through withTypeUnsafe
+        Assertions.assertThrows(ClassCastException.class, () -> t.withLong("size", 1L));
+        Assertions.assertThrows(ClassCastException.class, () -> t.withInt("symbol", 1));
+        Assertions.assertSame(t, t.withDouble("nope", 1d));
+    }
+
+    @Test
+    void shouldDropWrittenSlotsWhenTheConstructorThrows() throws Exception {
+        Result result = compile(new Source("example.Pos", """
+            package example;
+
+            @com.sikina.recordtransformer.Transformable
+            public record Pos(int x, String name) {
+                public Pos {
+                    if (x < 0) {
+                        throw new IllegalArgumentException("negative: " + x);
+                    }
+                }
+            }
+            """));
+        Assertions.assertTrue(result.success(), result.errors());
+
+        Transformer<Record> t = newTransformer(result.loader(), "example.PosTransformer", "example.Pos", 1, "a");
+        ConstructorException thrown = Assertions.assertThrows(ConstructorException.class, () -> t.withInt("x", -1).transform());
+        Assertions.assertInstanceOf(IllegalArgumentException.class, thrown.getCause());
+
+        Assertions.assertEquals("Pos[x=1, name=b]", t.withTypeUnsafe("name", "b").transform().rec().toString());
+    }
+
+    @Test
+    void shouldNotUseReflection() throws Exception {
+        Result result = compile(new Source("example.Point", """
+            package example;
+
+            @com.sikina.recordtransformer.Transformable
+            public record Point(int x, String label) {}
+            """));
+        Assertions.assertTrue(result.success(), result.errors());
+
+        String source = Files.readString(output.resolve("generated/example/PointTransformer.java"));
+        Assertions.assertFalse(source.contains("java.lang.reflect"));
+        Assertions.assertFalse(source.contains("java.lang.invoke"));
+        Assertions.assertTrue(source.contains("rec = new example.Point("));
+    }
+
+    @Test
+    void shouldGenerateTransformerForNestedGenericRecord() throws Exception {
+        Result result = compile(new Source("example.Outer", """
+            package example;
+
+            public class Outer {
+                @com.sikina.recordtransformer.Transformable
+                public record Box<T extends Comparable<T>>(T value, long count, java.util.List<T> history) {}
+            }
+            """));
+        Assertions.assertTrue(result.success(), result.errors());
+
+        Transformer<Record> t = newTransformer(
+            result.loader(), "example.Outer_BoxTransformer", "example.Outer$Box", "a", 1L, List.of("a")
+        );
+        t.getClass().getMethod("withValue", Comparable.class).invoke(t, "b");
+        t.getClass().getMethod("withCount", long.class).invoke(t, 2L);
+        Assertions.assertEquals("Box[value=b, count=2, history=[a]]", t.transform().rec().toString());
+    }
+
+    @Test
+    void shouldGenerateTransformerInUnnamedPackage() throws Exception {
+        Result result = compile(new Source("Empty", """
+            @com.sikina.recordtransformer.Transformable
+            public record Empty() {}
+            """));
+        Assertions.assertTrue(result.success(), result.errors());
+
+        Transformer<Record> t = newTransformer(result.loader(), "EmptyTransformer", "Empty");
+        Record before = t.rec();
+        Assertions.assertEquals(before, t.withTypeUnsafe("a", 1).transform().rec());
+    }
+
+    @Test
+    void shouldTrackMoreThanSixtyFourComponents() throws Exception {
+        String components = IntStream.range(0, 70)
+            .mapToObj(i -> "int c" + i)
+            .collect(Collectors.joining(", "));
+        Result result = compile(new Source("example.Wide", """
+            package example;
+
+            @com.sikina.recordtransformer.Transformable
+            public record Wide(%s) {}
+            """.formatted(components)));
+        Assertions.assertTrue(result.success(), result.errors());
+
+        Object[] args = IntStream.range(0, 70).boxed().toArray();
+        Transformer<Record> t = newTransformer(result.loader(), "example.WideTransformer", "example.Wide", args);
+        Record actual = t.withTypeUnsafe("c1", -1)
+            .withTypeUnsafe("c65", -65)
+            .transform()
+            .rec();
+
+        Assertions.assertEquals(-1, actual.getClass().getMethod("c1").invoke(actual));
+        Assertions.assertEquals(64, actual.getClass().getMethod("c64").invoke(actual));
+        Assertions.assertEquals(-65, actual.getClass().getMethod("c65").invoke(actual));
+    }
+
+    @Test
+    void shouldRejectNonRecords() throws Exception {
+        Result result = compile(new Source("example.NotARecord", """
+            package example;
+
+            @com.sikina.recordtransformer.Transformable
+            public class NotARecord {}
+            """));
+        Assertions.assertFalse(result.success());
+        Assertions.assertTrue(result.errors().contains("can only be applied to records"), result.errors());
+    }
+
+    @Test
+    void shouldRejectInaccessibleRecords() throws Exception {
+        Result result = compile(new Source("example.Hidden", """
+            package example;
+
+            public class Hidden {
+                private static class Inner {
+                    @com.sikina.recordtransformer.Transformable
+                    record Rec(int a) {}
+                }
+            }
+            """));
+        Assertions.assertFalse(result.success());
+        Assertions.assertTrue(result.errors().contains("must be visible to the rest of their package"), result.errors());
+    }
+}